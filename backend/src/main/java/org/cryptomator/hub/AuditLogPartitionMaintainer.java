@@ -0,0 +1,57 @@
+package org.cryptomator.hub;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.cryptomator.hub.cluster.ClusterSingleton;
+import org.cryptomator.hub.entities.events.AuditEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+/**
+ * Periodically creates the monthly partitions of the audit log ahead of time and, if a retention is configured, detaches
+ * partitions that have become too old.
+ */
+@ApplicationScoped
+public class AuditLogPartitionMaintainer {
+
+	private static final Logger LOG = Logger.getLogger(AuditLogPartitionMaintainer.class);
+
+	@Inject
+	@ConfigProperty(name = "hub.audit-log.partitions.months-ahead", defaultValue = "3")
+	int monthsAhead;
+
+	@Inject
+	@ConfigProperty(name = "hub.audit-log.partitions.retention-months")
+	Optional<Integer> retentionMonths;
+
+	@Inject
+	AuditEvent.Repository auditEventRepo;
+
+	@Scheduled(identity = "audit-log-partition-maintenance", every = "{hub.audit-log.partitions.maintenance-period}", skipExecutionIf = ClusterSingleton.class)
+	@Transactional
+	void maintain() {
+		maintain(YearMonth.now(ZoneOffset.UTC));
+	}
+
+	//visible for testing
+	void maintain(YearMonth currentMonth) {
+		for (int i = 0; i <= monthsAhead; i++) {
+			var month = currentMonth.plusMonths(i);
+			if (auditEventRepo.createPartition(month)) {
+				LOG.infof("Created audit log partition for %s", month);
+			}
+		}
+		if (retentionMonths.isPresent()) {
+			var detached = auditEventRepo.detachPartitionsBefore(currentMonth.minusMonths(retentionMonths.get()));
+			for (var table : detached) {
+				LOG.infof("Detached audit log partition %s, which may now be archived or dropped", table);
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.cryptomator.hub;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.NotAuthorizedException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Long-lived Keycloak admin client shared by all components talking to the Keycloak admin API.
+ * <p>
+ * Reusing a single {@link Keycloak} instance keeps its HTTP connections alive between requests and lets its token manager
+ * cache the syncer's access token, refreshing it only when it is about to expire, instead of logging in again on every call.
+ */
+@ApplicationScoped
+public class KeycloakAdminClient {
+
+	private static final Logger LOG = Logger.getLogger(KeycloakAdminClient.class);
+
+	@Inject
+	SyncerConfig syncerConfig;
+
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.version-cache-ttl", defaultValue = "10m")
+	Duration versionCacheTtl;
+
+	//visible for testing
+	Clock clock = Clock.systemUTC();
+
+	private Keycloak keycloak;
+	private volatile CachedVersion cachedVersion;
+
+	/**
+	 * Runs the given request against the configured realm. If Keycloak rejects the current session, e.g. because it has been
+	 * revoked, a new token is obtained and the request is attempted once more.
+	 * <p>
+	 * The result must not be lazy (e.g. a stream still fetching data), as the realm may only be used until the request returns.
+	 *
+	 * @param request request to run
+	 * @return result of the request
+	 */
+	public <T> T withRealm(Function<RealmResource, T> request) {
+		return withKeycloak(keycloak -> request.apply(keycloak.realm(syncerConfig.getKeycloakRealm())));
+	}
+
+	/**
+	 * Returns the version of the Keycloak server, which is looked up at most once per {@code hub.keycloak.version-cache-ttl}.
+	 *
+	 * @return Keycloak version
+	 */
+	public String serverVersion() {
+		var cached = cachedVersion;
+		var now = clock.instant();
+		if (cached == null || !now.isBefore(cached.expiresAt())) {
+			var version = withKeycloak(keycloak -> keycloak.serverInfo().getInfo().getSystemInfo().getVersion());
+			cached = new CachedVersion(version, now.plus(versionCacheTtl));
+			cachedVersion = cached;
+		}
+		return cached.version();
+	}
+
+	private <T> T withKeycloak(Function<Keycloak, T> request) {
+		var current = keycloak();
+		try {
+			return request.apply(current);
+		} catch (NotAuthorizedException e) {
+			LOG.debug("Keycloak rejected the admin session, logging in again");
+			// the client is shared with concurrent requests, so only its token is replaced instead of closing it:
+			var tokenManager = current.tokenManager();
+			tokenManager.invalidate(tokenManager.getAccessTokenString());
+			return request.apply(current);
+		}
+	}
+
+	private synchronized Keycloak keycloak() {
+		if (keycloak == null || keycloak.isClosed()) {
+			keycloak = createKeycloak();
+		}
+		return keycloak;
+	}
+
+	//visible for testing
+	Keycloak createKeycloak() {
+		return Keycloak.getInstance(syncerConfig.getKeycloakUrl(), syncerConfig.getKeycloakRealm(), syncerConfig.getUsername(), syncerConfig.getPassword(), syncerConfig.getKeycloakClientId());
+	}
+
+	@PreDestroy
+	synchronized void close() {
+		if (keycloak != null) {
+			keycloak.close();
+			keycloak = null;
+		}
+	}
+
+	private record CachedVersion(String version, Instant expiresAt) {
+	}
+}
@@ -2,52 +2,107 @@ package org.cryptomator.hub;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
 import org.cryptomator.hub.entities.Authority;
 import org.cryptomator.hub.entities.Group;
 import org.cryptomator.hub.entities.User;
-import org.keycloak.admin.client.Keycloak;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class KeycloakRemoteUserProvider implements RemoteUserProvider {
 
+	private static final Logger LOG = Logger.getLogger(KeycloakRemoteUserProvider.class);
+
 	//visible for testing
 	static final int MAX_COUNT_PER_REQUEST = 5_000;
 
 	@Inject
 	SyncerConfig syncerConfig;
 
+	@Inject
+	KeycloakAdminClient keycloakAdminClient;
+
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.syncer-parallelism", defaultValue = "8")
+	int parallelism;
+
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.syncer-max-retries", defaultValue = "3")
+	int maxRetries;
+
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.syncer-retry-delay", defaultValue = "500ms")
+	Duration retryDelay;
+
 	@Override
 	public List<User> users() {
-		try (Keycloak keycloak = Keycloak.getInstance(syncerConfig.getKeycloakUrl(), syncerConfig.getKeycloakRealm(), syncerConfig.getUsername(), syncerConfig.getPassword(), syncerConfig.getKeycloakClientId())) {
-			return users(keycloak.realm(syncerConfig.getKeycloakRealm()));
-		}
+		return keycloakAdminClient.withRealm(this::users);
 	}
 
 	//visible for testing
 	List<User> users(RealmResource realm) {
-		List<User> users = new ArrayList<>();
-		List<User> currentRequestedUsers;
+		// fetch all pages known to exist concurrently...
+		int count = withRetry(() -> realm.users().count());
+		int pageCount = Math.ceilDiv(count, MAX_COUNT_PER_REQUEST);
+		var pages = fetchConcurrently(IntStream.range(0, pageCount).mapToObj(page -> (Callable<List<UserRepresentation>>) () -> withRetry(() -> realm.users().list(page * MAX_COUNT_PER_REQUEST, MAX_COUNT_PER_REQUEST))).toList());
+		var representations = pages.stream().flatMap(List::stream).collect(Collectors.toCollection(ArrayList::new));
 
-		do {
-			currentRequestedUsers = realm.users().list(users.size(), MAX_COUNT_PER_REQUEST).stream().filter(notSyncerUser()).map(this::mapToUser).toList();
-			users.addAll(currentRequestedUsers);
-		} while (currentRequestedUsers.size() == MAX_COUNT_PER_REQUEST);
+		// ... and continue sequentially in case of users created in the meantime
+		List<UserRepresentation> currentRequestedUsers = pages.isEmpty() ? List.of() : pages.getLast();
+		int offset = pageCount * MAX_COUNT_PER_REQUEST;
+		while (pageCount == 0 || currentRequestedUsers.size() == MAX_COUNT_PER_REQUEST) {
+			int first = offset;
+			currentRequestedUsers = withRetry(() -> realm.users().list(first, MAX_COUNT_PER_REQUEST));
+			representations.addAll(currentRequestedUsers);
+			offset += MAX_COUNT_PER_REQUEST;
+			pageCount++;
+		}
+
+		// pages may overlap if users have been created or deleted in the meantime
+		var users = new LinkedHashMap<String, User>();
+		representations.stream().filter(notSyncerUser()).map(this::mapToUser).forEach(user -> users.putIfAbsent(user.getId(), user));
 
 		var cliUser = cryptomatorCliUser(realm);
-		cliUser.ifPresent(users::add);
+		cliUser.ifPresent(user -> users.putIfAbsent(user.getId(), user));
 
-		return users;
+		return new ArrayList<>(users.values());
+	}
+
+	@Override
+	public Stream<List<User>> userPages(int pageSize) {
+		// pages are fetched while the stream is consumed, so each of them needs its own request to the realm:
+		var pages = paged(pageSize, (first, max) -> keycloakAdminClient.withRealm(realm -> realm.users().list(first, max))) //
+				.map(page -> page.stream().filter(notSyncerUser()).map(this::mapToUser).toList());
+		var cliUser = Stream.generate(() -> keycloakAdminClient.withRealm(this::cryptomatorCliUser).stream().toList()).limit(1);
+		return Stream.concat(pages, cliUser).filter(page -> !page.isEmpty());
+	}
+
+	@Override
+	public Set<String> missingUsers(List<String> ids) {
+		return keycloakAdminClient.withRealm(realm -> missing(ids, id -> () -> realm.users().get(id).toRepresentation()));
 	}
 
 	//visible for testing
@@ -85,20 +140,55 @@ public class KeycloakRemoteUserProvider implements RemoteUserProvider {
 
 	@Override
 	public List<Group> groups() {
-		try (Keycloak keycloak = Keycloak.getInstance(syncerConfig.getKeycloakUrl(), syncerConfig.getKeycloakRealm(), syncerConfig.getUsername(), syncerConfig.getPassword(), syncerConfig.getKeycloakClientId())) {
-			return groups(keycloak.realm(syncerConfig.getKeycloakRealm()));
-		}
+		return keycloakAdminClient.withRealm(this::groups);
 	}
 
 	//visible for testing
 	List<Group> groups(RealmResource realm) {
-		return deepCollectGroups(realm).stream().map(group -> {
-			// TODO add sub groups and the members of the sub group to it too using `group.getSubGroups()` recursively
-			var members = deepCollectMembers(realm, group.getId());
+		return mapToGroups(realm, deepCollectGroups(realm));
+	}
+
+	@Override
+	public Stream<List<Group>> groupPages(int pageSize) {
+		return paged(pageSize, (first, max) -> keycloakAdminClient.withRealm(realm -> realm.groups().groups(first, max))) //
+				.map(page -> keycloakAdminClient.withRealm(realm -> mapToGroups(realm, page)));
+	}
+
+	@Override
+	public Set<String> missingGroups(List<String> ids) {
+		return keycloakAdminClient.withRealm(realm -> missing(ids, id -> () -> realm.groups().group(id).toRepresentation()));
+	}
+
+	/**
+	 * Keycloak can't look up several authorities by id at once, so the lookups run {@link #fetchConcurrently(List) concurrently}.
+	 *
+	 * @param ids ids to look up
+	 * @param lookup request for a single id, failing with {@link NotFoundException} if it doesn't exist
+	 * @return ids not found
+	 */
+	private Set<String> missing(List<String> ids, Function<String, Callable<?>> lookup) {
+		var exists = fetchConcurrently(ids.stream().map(id -> (Callable<Boolean>) () -> exists(lookup.apply(id))).toList());
+		return IntStream.range(0, ids.size()).filter(i -> !exists.get(i)).mapToObj(ids::get).collect(Collectors.toSet());
+	}
+
+	private boolean exists(Callable<?> request) {
+		try {
+			withRetry(request);
+			return true;
+		} catch (NotFoundException e) {
+			return false;
+		}
+	}
+
+	private List<Group> mapToGroups(RealmResource realm, List<GroupRepresentation> groups) {
+		// TODO add sub groups and the members of the sub group to it too using `group.getSubGroups()` recursively
+		var members = fetchConcurrently(groups.stream().map(group -> (Callable<Set<Authority>>) () -> deepCollectMembers(realm, group.getId())).toList());
+		return IntStream.range(0, groups.size()).mapToObj(i -> {
+			var group = groups.get(i);
 			var groupEntity = new Group();
 			groupEntity.setId(group.getId());
 			groupEntity.setName(group.getName());
-			groupEntity.setMembers(members);
+			groupEntity.setMembers(members.get(i));
 			return groupEntity;
 		}).toList();
 	}
@@ -110,7 +200,8 @@ public class KeycloakRemoteUserProvider implements RemoteUserProvider {
 		List<GroupRepresentation> currentRequestedGroups;
 
 		do {
-			currentRequestedGroups = group.groups(groups.size(), MAX_COUNT_PER_REQUEST);
+			int first = groups.size();
+			currentRequestedGroups = withRetry(() -> group.groups(first, MAX_COUNT_PER_REQUEST));
 			groups.addAll(currentRequestedGroups);
 		} while (currentRequestedGroups.size() == MAX_COUNT_PER_REQUEST);
 
@@ -124,10 +215,108 @@ public class KeycloakRemoteUserProvider implements RemoteUserProvider {
 		List<UserRepresentation> currentRequestedMemebers;
 
 		do {
-			currentRequestedMemebers = group.members(members.size(), MAX_COUNT_PER_REQUEST);
+			int first = members.size();
+			currentRequestedMemebers = withRetry(() -> group.members(first, MAX_COUNT_PER_REQUEST));
 			members.addAll(currentRequestedMemebers);
 		} while (currentRequestedMemebers.size() == MAX_COUNT_PER_REQUEST);
 
 		return members.stream().filter(notSyncerUser()).map(this::mapToUser).collect(Collectors.toSet());
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Lazily fetches pages until a page is not full. Only the current page is held in memory.
+	 *
+	 * @param pageSize maximum number of items per page
+	 * @param request request for a page, given the offset and page size
+	 * @return stream of non-empty pages
+	 */
+	private <T> Stream<List<T>> paged(int pageSize, BiFunction<Integer, Integer, List<T>> request) {
+		var firstPage = new Page<>(0, withRetry(() -> request.apply(0, pageSize)));
+		return Stream.iterate(firstPage, page -> !page.items().isEmpty(), page -> {
+			int next = page.first() + pageSize;
+			if (page.items().size() < pageSize) {
+				return new Page<T>(next, List.of());
+			} else {
+				return new Page<>(next, withRetry(() -> request.apply(next, pageSize)));
+			}
+		}).map(Page::items);
+	}
+
+	private record Page<T>(int first, List<T> items) {
+	}
+
+	/**
+	 * Runs the given requests on virtual threads, at most {@link #parallelism} at a time. Failures are not retried here, as
+	 * requests consisting of several calls to Keycloak retry each of them {@link #withRetry(Callable) individually}.
+	 *
+	 * @param requests requests to run
+	 * @return results in the same order as the requests
+	 */
+	//visible for testing
+	<T> List<T> fetchConcurrently(List<Callable<T>> requests) {
+		if (requests.isEmpty()) {
+			return List.of();
+		}
+		try (var executor = Executors.newFixedThreadPool(Math.max(1, parallelism), Thread.ofVirtual().name("keycloak-fetch-", 0).factory())) {
+			var futures = requests.stream().map(request -> executor.submit(request)).toList();
+			var results = new ArrayList<T>(futures.size());
+			for (var future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					executor.shutdownNow();
+					if (e.getCause() instanceof RuntimeException re) {
+						throw re;
+					} else {
+						throw new IllegalStateException("Fetching from Keycloak failed", e.getCause());
+					}
+				}
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while fetching from Keycloak", e);
+		}
+	}
+
+	/**
+	 * Runs the given request, retrying it with exponential backoff up to {@link #maxRetries} times if it fails due to
+	 * network errors, server errors or rate limiting.
+	 *
+	 * @param request request to run
+	 * @return result of the first successful attempt
+	 */
+	//visible for testing
+	<T> T withRetry(Callable<T> request) {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return request.call();
+			} catch (ProcessingException | WebApplicationException e) {
+				if (!isTransient(e) || attempt >= maxRetries) {
+					throw e;
+				}
+				var delay = retryDelay.multipliedBy(1L << attempt);
+				LOG.debugf("Request to Keycloak failed (%s), retrying in %s", e.getMessage(), delay);
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private static boolean isTransient(RuntimeException e) {
+		if (e instanceof WebApplicationException wae) {
+			int status = wae.getResponse().getStatus();
+			return status == 429 || status >= 500;
+		} else {
+			return e instanceof ProcessingException;
+		}
+	}
+}
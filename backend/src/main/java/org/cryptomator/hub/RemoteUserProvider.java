@@ -4,6 +4,8 @@ import org.cryptomator.hub.entities.Group;
 import org.cryptomator.hub.entities.User;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface RemoteUserProvider {
 
@@ -19,4 +21,34 @@ public interface RemoteUserProvider {
 	 */
 	List<Group> groups();
 
+	/**
+	 * Get all remote users page by page. Pages are fetched lazily while the stream is consumed.
+	 * Users may appear more than once if they are created or deleted in the meantime.
+	 * @param pageSize Maximum number of users per page
+	 * @return Stream of pages
+	 */
+	Stream<List<User>> userPages(int pageSize);
+
+	/**
+	 * Get all remote groups including their members page by page. Pages are fetched lazily while the stream is consumed.
+	 * Groups may appear more than once if they are created or deleted in the meantime.
+	 * @param pageSize Maximum number of groups per page
+	 * @return Stream of pages
+	 */
+	Stream<List<Group>> groupPages(int pageSize);
+
+	/**
+	 * Checks which of the given users don't exist remotely
+	 * @param ids Ids of the users
+	 * @return Ids of the users that don't exist
+	 */
+	Set<String> missingUsers(List<String> ids);
+
+	/**
+	 * Checks which of the given groups don't exist remotely
+	 * @param ids Ids of the groups
+	 * @return Ids of the groups that don't exist
+	 */
+	Set<String> missingGroups(List<String> ids);
+
 }
@@ -1,22 +1,41 @@
 package org.cryptomator.hub;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.scheduler.Scheduled;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.cryptomator.hub.cluster.ClusterSingleton;
 import org.cryptomator.hub.entities.Authority;
 import org.cryptomator.hub.entities.Group;
 import org.cryptomator.hub.entities.User;
+import org.cryptomator.hub.filters.VaultRoleCache;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class RemoteUserPuller {
 
+	private static final Logger LOG = Logger.getLogger(RemoteUserPuller.class);
+
 	@Inject
 	Authority.Repository authorityRepo;
 	@Inject
@@ -25,12 +44,44 @@ public class RemoteUserPuller {
 	User.Repository userRepo;
 	@Inject
 	RemoteUserProvider remoteUserProvider;
+	@Inject
+	VaultRoleCache vaultRoleCache;
+
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.syncer-incremental", defaultValue = "false")
+	boolean incremental;
+
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.syncer-full-period", defaultValue = "24h")
+	Duration fullSyncPeriod;
+
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.syncer-batch-size", defaultValue = "500")
+	int batchSize;
 
-	@Scheduled(every = "{hub.keycloak.syncer-period}")
+	@Inject
+	@ConfigProperty(name = "hub.keycloak.syncer-streaming", defaultValue = "false")
+	boolean streaming;
+
+	private Instant lastFullSync = Instant.MIN;
+
+	@Scheduled(identity = "remote-user-sync", every = "{hub.keycloak.syncer-period}", skipExecutionIf = ClusterSingleton.class)
 	void sync() {
+		if (streaming) {
+			syncStreaming();
+			return;
+		}
 		var keycloakGroups = remoteUserProvider.groups().stream().collect(Collectors.toMap(Authority::getId, Function.identity()));
 		var keycloakUsers = remoteUserProvider.users().stream().collect(Collectors.toMap(Authority::getId, Function.identity()));
-		sync(keycloakGroups, keycloakUsers);
+		keycloakGroups.values().forEach(group -> group.setSyncHash(syncHash(group)));
+		keycloakUsers.values().forEach(user -> user.setSyncHash(syncHash(user)));
+		var now = Instant.now();
+		if (incremental && now.isBefore(lastFullSync.plus(fullSyncPeriod))) {
+			syncIncrementally(keycloakGroups, keycloakUsers);
+		} else {
+			sync(keycloakGroups, keycloakUsers);
+			lastFullSync = now;
+		}
 	}
 
 	@Transactional
@@ -40,6 +91,171 @@ public class RemoteUserPuller {
 		sync(keycloakGroups, keycloakUsers, databaseGroups, databaseUsers);
 	}
 
+	/**
+	 * Applies only the differences detected by comparing the {@link Authority#getSyncHash() sync hashes} of the remote
+	 * authorities with the ones stored in the database. Unchanged authorities (including the member lists of unchanged
+	 * groups) are not loaded from the database at all. Changes are written in transactions of at most {@link #batchSize}
+	 * authorities each.
+	 *
+	 * @param keycloakGroups remote groups with sync hashes
+	 * @param keycloakUsers remote users with sync hashes
+	 */
+	//visible for testing
+	void syncIncrementally(Map<String, Group> keycloakGroups, Map<String, User> keycloakUsers) {
+		var databaseUserHashes = userRepo.findSyncHashes();
+		var addedUsers = diff(keycloakUsers.keySet(), databaseUserHashes.keySet());
+		var deletedUsers = diff(databaseUserHashes.keySet(), keycloakUsers.keySet());
+		var updatedUsers = changed(keycloakUsers, databaseUserHashes);
+		inBatches(addedUsers, batch -> batch.forEach(id -> authorityRepo.persist(keycloakUsers.get(id))));
+		inBatches(deletedUsers, this::deleteAll);
+		inBatches(updatedUsers, batch -> syncUpdatedUsers(keycloakUsers, findAllInList(batch, User.class), Set.of()));
+
+		var databaseGroupHashes = groupRepo.findSyncHashes();
+		var addedGroups = diff(keycloakGroups.keySet(), databaseGroupHashes.keySet());
+		var deletedGroups = diff(databaseGroupHashes.keySet(), keycloakGroups.keySet());
+		var updatedGroups = changed(keycloakGroups, databaseGroupHashes);
+		inBatches(addedGroups, batch -> batch.forEach(id -> authorityRepo.persist(keycloakGroups.get(id))));
+		inBatches(deletedGroups, this::deleteAll);
+		inBatches(updatedGroups, batch -> syncUpdatedGroups(keycloakGroups, findAllInList(batch, Group.class), Set.of()));
+
+		LOG.debugf("Incremental sync: %d/%d/%d users and %d/%d/%d groups added/deleted/updated", addedUsers.size(), deletedUsers.size(), updatedUsers.size(), addedGroups.size(), deletedGroups.size(), updatedGroups.size());
+	}
+
+	/**
+	 * Synchronizes users and groups page by page, so only {@link #batchSize} remote authorities (and the members of these groups)
+	 * are held in memory at any time, regardless of the size of the realm. Each page is matched against the database by id and
+	 * committed in its own transaction, together with marking its authorities as seen.
+	 * <p>
+	 * Since Keycloak pages by offset, an authority may be skipped if others get deleted while paging. Therefore, authorities not
+	 * seen by this sync are only deleted after confirming that they no longer exist remotely.
+	 */
+	//visible for testing
+	void syncStreaming() {
+		inTransaction(authorityRepo::clearSyncSeen);
+		try (var pages = remoteUserProvider.userPages(batchSize)) {
+			pages.forEach(page -> inTransaction(() -> authorityRepo.markSyncSeen(syncUserPage(page))));
+		}
+		var deletedUsers = syncUnseenAuthorities(User.class, remoteUserProvider::missingUsers);
+		try (var pages = remoteUserProvider.groupPages(batchSize)) {
+			pages.forEach(page -> inTransaction(() -> authorityRepo.markSyncSeen(syncGroupPage(page))));
+		}
+		var deletedGroups = syncUnseenAuthorities(Group.class, remoteUserProvider::missingGroups);
+		inTransaction(authorityRepo::clearSyncSeen);
+		LOG.debugf("Streaming sync: deleted %d users and %d groups", deletedUsers, deletedGroups);
+	}
+
+	private List<String> syncUserPage(List<User> page) {
+		var keycloakUsers = withSyncHashes(page, RemoteUserPuller::syncHash);
+		var databaseUsers = findAllInList(List.copyOf(keycloakUsers.keySet()), User.class);
+		syncAddedAuthorities(keycloakUsers, databaseUsers);
+		syncUpdatedUsers(keycloakUsers, databaseUsers, unchanged(keycloakUsers, databaseUsers));
+		return List.copyOf(keycloakUsers.keySet());
+	}
+
+	private List<String> syncGroupPage(List<Group> page) {
+		var keycloakGroups = withSyncHashes(page, RemoteUserPuller::syncHash);
+		var databaseGroups = findAllInList(List.copyOf(keycloakGroups.keySet()), Group.class);
+		syncAddedAuthorities(keycloakGroups, databaseGroups);
+		syncUpdatedGroups(keycloakGroups, databaseGroups, unchanged(keycloakGroups, databaseGroups));
+		return List.copyOf(keycloakGroups.keySet());
+	}
+
+	private <T extends Authority> Map<String, T> withSyncHashes(List<T> authorities, Function<T, String> syncHash) {
+		authorities.forEach(authority -> authority.setSyncHash(syncHash.apply(authority)));
+		return authorities.stream().collect(Collectors.toMap(Authority::getId, Function.identity(), (first, duplicate) -> first, LinkedHashMap::new));
+	}
+
+	private <T extends Authority> Set<String> unchanged(Map<String, T> keycloakAuthorities, Map<String, T> databaseAuthorities) {
+		return databaseAuthorities.values().stream() //
+				.filter(authority -> Objects.equals(authority.getSyncHash(), keycloakAuthorities.get(authority.getId()).getSyncHash())) //
+				.map(Authority::getId) //
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * Deletes authorities of the given type that haven't been seen by the current sync and no longer exist remotely. The unseen
+	 * ids are read from the database in batches, each of them checked remotely at once.
+	 *
+	 * @return number of deleted authorities
+	 */
+	private int syncUnseenAuthorities(Class<? extends Authority> type, Function<List<String>, Set<String>> missingRemotely) {
+		int deleted = 0;
+		var afterId = "";
+		while (true) {
+			var from = afterId;
+			var ids = new ArrayList<String>();
+			inTransaction(() -> ids.addAll(authorityRepo.findSyncUnseenIds(type, from, batchSize)));
+			if (ids.isEmpty()) {
+				return deleted;
+			}
+			var missing = List.copyOf(missingRemotely.apply(ids));
+			if (!missing.isEmpty()) {
+				inTransaction(() -> deleteAll(missing));
+			}
+			deleted += missing.size();
+			afterId = ids.getLast();
+		}
+	}
+
+	private <T extends Authority> Set<String> changed(Map<String, T> keycloakAuthorities, Map<String, String> databaseHashes) {
+		return keycloakAuthorities.values().stream() //
+				.filter(authority -> databaseHashes.containsKey(authority.getId()) && !Objects.equals(authority.getSyncHash(), databaseHashes.get(authority.getId()))) //
+				.map(Authority::getId) //
+				.collect(Collectors.toSet());
+	}
+
+	private void deleteAll(List<String> ids) {
+		authorityRepo.deleteAllInList(ids);
+		vaultRoleCache.invalidateAllOnCommit();
+	}
+
+	private <T extends Authority> Map<String, T> findAllInList(List<String> ids, Class<T> type) {
+		return authorityRepo.findAllInList(ids).filter(type::isInstance).map(type::cast).collect(Collectors.toMap(Authority::getId, Function.identity()));
+	}
+
+	private void inBatches(Set<String> ids, Consumer<List<String>> action) {
+		var list = List.copyOf(ids);
+		for (int i = 0; i < list.size(); i += batchSize) {
+			var batch = list.subList(i, Math.min(i + batchSize, list.size()));
+			inTransaction(() -> action.accept(batch));
+		}
+	}
+
+	//visible for testing
+	void inTransaction(Runnable task) {
+		QuarkusTransaction.requiringNew().run(task);
+	}
+
+	/**
+	 * Computes a hash of all synchronized attributes of the given user.
+	 */
+	//visible for testing
+	static String syncHash(User user) {
+		return sha256(Stream.of("USER", user.getName(), user.getEmail(), user.getPictureUrl()));
+	}
+
+	/**
+	 * Computes a hash of all synchronized attributes of the given group, including the ids of its members.
+	 */
+	//visible for testing
+	static String syncHash(Group group) {
+		var memberIds = group.getMembers().stream().map(Authority::getId).sorted();
+		return sha256(Stream.concat(Stream.of("GROUP", group.getName()), memberIds));
+	}
+
+	private static String sha256(Stream<String> values) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			values.forEach(value -> {
+				digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			});
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every implementation of the Java platform is required to support SHA-256", e);
+		}
+	}
+
 	//visible for testing
 	void sync(Map<String, Group> keycloakGroups, Map<String, User> keycloakUsers, Map<String, Group> databaseGroups, Map<String, User> databaseUsers) {
 		syncAddedAuthorities(keycloakUsers, databaseUsers);
@@ -64,6 +280,9 @@ public class RemoteUserPuller {
 		for (var id : deletedAuthorities) {
 			authorityRepo.delete(databaseAuthorities.get(id));
 		}
+		if (!deletedAuthorities.isEmpty()) {
+			vaultRoleCache.invalidateAllOnCommit();
+		}
 		return deletedAuthorities;
 	}
 
@@ -76,6 +295,7 @@ public class RemoteUserPuller {
 			dbUser.setPictureUrl(kcUser.getPictureUrl());
 			dbUser.setName(kcUser.getName());
 			dbUser.setEmail(kcUser.getEmail());
+			dbUser.setSyncHash(kcUser.getSyncHash());
 			userRepo.persist(dbUser);
 		}
 	}
@@ -88,9 +308,15 @@ public class RemoteUserPuller {
 			var kcGroup = keycloakGroups.get(id);
 
 			dbGroup.setName(kcGroup.getName());
+			dbGroup.setSyncHash(kcGroup.getSyncHash());
 
-			dbGroup.getMembers().addAll(diff(kcGroup.getMembers(), dbGroup.getMembers()));
-			dbGroup.getMembers().removeAll(diff(dbGroup.getMembers(), kcGroup.getMembers()));
+			var addedMembers = diff(kcGroup.getMembers(), dbGroup.getMembers());
+			var removedMembers = diff(dbGroup.getMembers(), kcGroup.getMembers());
+			dbGroup.getMembers().addAll(addedMembers);
+			dbGroup.getMembers().removeAll(removedMembers);
+			if (!addedMembers.isEmpty() || !removedMembers.isEmpty()) {
+				vaultRoleCache.invalidateAllOnCommit();
+			}
 			// TODO why don't we run dbGroup.persist()?
 		}
 	}
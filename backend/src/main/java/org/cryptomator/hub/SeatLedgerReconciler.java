@@ -0,0 +1,48 @@
+package org.cryptomator.hub;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.cryptomator.hub.cluster.ClusterSingleton;
+import org.cryptomator.hub.entities.EffectiveVaultAccess;
+import org.cryptomator.hub.entities.SeatLedger;
+import org.jboss.logging.Logger;
+
+/**
+ * Periodically verifies the incrementally maintained {@link SeatLedger} against a recount based on the recursive
+ * definition of the effective vault access. If any drift is detected, the ledger is rebuilt along with the materialized
+ * effective group membership and effective vault access it is derived from.
+ */
+@ApplicationScoped
+public class SeatLedgerReconciler {
+
+	private static final Logger LOG = Logger.getLogger(SeatLedgerReconciler.class);
+
+	@Inject
+	EffectiveVaultAccess.Repository effectiveVaultAccessRepo;
+	@Inject
+	SeatLedger.Repository seatLedgerRepo;
+
+	@Scheduled(identity = "seat-ledger-reconcile", every = "{hub.seat-ledger.reconcile-period}", skipExecutionIf = ClusterSingleton.class)
+	@Transactional
+	void reconcile() {
+		var expected = new Counts(effectiveVaultAccessRepo.recountSeatOccupyingUsers(), effectiveVaultAccessRepo.recountSeatOccupyingUsersWithAccessToken());
+		var ledger = new Counts(seatLedgerRepo.countEntries(), seatLedgerRepo.countEntriesWithAccessToken());
+		var summary = new Counts(seatLedgerRepo.countOccupied(), seatLedgerRepo.countOccupiedWithAccessToken());
+		if (!expected.equals(ledger) || !expected.equals(summary)) {
+			LOG.warnf("Seat ledger drifted (expected %s, ledger %s, summary %s). Rebuilding...", expected, ledger, summary);
+			seatLedgerRepo.rebuild();
+		} else {
+			LOG.debugf("Seat ledger consistent: %s", expected);
+		}
+	}
+
+	record Counts(long occupiedSeats, long occupiedSeatsWithAccessToken) {
+
+		@Override
+		public String toString() {
+			return occupiedSeats + " seats/" + occupiedSeatsWithAccessToken + " with access token";
+		}
+	}
+}
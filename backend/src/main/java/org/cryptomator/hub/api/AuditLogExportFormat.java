@@ -0,0 +1,137 @@
+package org.cryptomator.hub.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Formats supported by the audit log export. Events are written one by one, so the export doesn't need to hold more than
+ * a single event in memory.
+ */
+enum AuditLogExportFormat {
+
+	/**
+	 * One JSON object per line, serialized like the events returned by {@link AuditLogResource#getAllEvents}.
+	 */
+	NDJSON("application/x-ndjson", "ndjson") {
+		@Override
+		EventWriter open(ObjectMapper objectMapper, OutputStream out) {
+			var eventWriter = objectMapper.writerFor(AuditLogResource.AuditEventDto.class);
+			var buffered = new BufferedOutputStream(out);
+			return new EventWriter() {
+				@Override
+				public void write(AuditLogResource.AuditEventDto event) throws IOException {
+					buffered.write(eventWriter.writeValueAsBytes(event));
+					buffered.write('\n');
+				}
+
+				@Override
+				public void flush() throws IOException {
+					buffered.flush();
+				}
+
+				@Override
+				public void close() throws IOException {
+					buffered.close();
+				}
+			};
+		}
+	},
+
+	/**
+	 * RFC 4180 CSV with a header row. Columns not applicable to an event's type are left empty. Values that spreadsheet
+	 * applications would interpret as formulas are prefixed with <code>'</code>.
+	 */
+	CSV("text/csv", "csv") {
+		@Override
+		EventWriter open(ObjectMapper objectMapper, OutputStream out) {
+			var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			return new EventWriter() {
+				private boolean headerWritten;
+
+				@Override
+				public void write(AuditLogResource.AuditEventDto event) throws IOException {
+					if (!headerWritten) {
+						writeRow(CSV_COLUMNS);
+						headerWritten = true;
+					}
+					JsonNode node = objectMapper.valueToTree(event);
+					writeRow(CSV_COLUMNS.stream().map(column -> node.hasNonNull(column) ? node.get(column).asText() : "").toList());
+				}
+
+				private void writeRow(List<String> values) throws IOException {
+					for (int i = 0; i < values.size(); i++) {
+						if (i > 0) {
+							writer.write(',');
+						}
+						writer.write(escape(values.get(i)));
+					}
+					writer.write("\r\n");
+				}
+
+				@Override
+				public void flush() throws IOException {
+					writer.flush();
+				}
+
+				@Override
+				public void close() throws IOException {
+					if (!headerWritten) {
+						writeRow(CSV_COLUMNS);
+					}
+					writer.close();
+				}
+			};
+		}
+	};
+
+	/**
+	 * Union of the properties of all {@link AuditLogResource.AuditEventDto} types
+	 */
+	//visible for testing
+	static final List<String> CSV_COLUMNS = List.of("id", "timestamp", "type", //
+			"vaultId", "vaultName", "vaultDescription", "vaultArchived", "authorityId", "role", "result", //
+			"deviceId", "deviceName", "deviceType", "userId", "signerId", "signerKey", "signature", //
+			"createdBy", "retrievedBy", "addedBy", "removedBy", "updatedBy", "claimedBy", "registeredBy", "grantedBy");
+
+	final String mediaType;
+	final String fileExtension;
+
+	AuditLogExportFormat(String mediaType, String fileExtension) {
+		this.mediaType = mediaType;
+		this.fileExtension = fileExtension;
+	}
+
+	abstract EventWriter open(ObjectMapper objectMapper, OutputStream out);
+
+	/**
+	 * Characters that make spreadsheet applications evaluate a cell as formula (see OWASP "CSV Injection")
+	 */
+	private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+	//visible for testing
+	static String escape(String value) {
+		if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) != -1) {
+			value = "'" + value; // user-controlled names and descriptions must not be evaluated when opening the export
+		}
+		if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+			return '"' + value.replace("\"", "\"\"") + '"';
+		} else {
+			return value;
+		}
+	}
+
+	interface EventWriter extends Flushable, Closeable {
+
+		void write(AuditLogResource.AuditEventDto event) throws IOException;
+	}
+}
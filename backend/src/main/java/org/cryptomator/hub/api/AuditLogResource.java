@@ -3,6 +3,8 @@ package org.cryptomator.hub.api;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.BadRequestException;
@@ -11,7 +13,10 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.cryptomator.hub.entities.Device;
 import org.cryptomator.hub.entities.VaultAccess;
 import org.cryptomator.hub.entities.events.AuditEvent;
@@ -27,11 +32,15 @@ import org.cryptomator.hub.entities.events.VaultMemberUpdatedEvent;
 import org.cryptomator.hub.entities.events.VaultOwnershipClaimedEvent;
 import org.cryptomator.hub.entities.events.VaultUpdatedEvent;
 import org.cryptomator.hub.license.LicenseHolder;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.ParameterIn;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
@@ -43,6 +52,16 @@ public class AuditLogResource {
 	AuditEvent.Repository auditEventRepo;
 	@Inject
 	LicenseHolder license;
+	@Inject
+	ObjectMapper objectMapper;
+
+	@Inject
+	@ConfigProperty(name = "hub.audit-log.export.fetch-size", defaultValue = "1000")
+	int exportFetchSize;
+
+	@Inject
+	@ConfigProperty(name = "hub.audit-log.export.timeout", defaultValue = "1h")
+	Duration exportTimeout;
 
 	@GET
 	@RolesAllowed("admin")
@@ -77,6 +96,63 @@ public class AuditLogResource {
 		return auditEventRepo.findAllInPeriod(startDate, endDate, paginationId, order.equals("asc"), pageSize).map(AuditEventDto::fromEntity).toList();
 	}
 
+	@GET
+	@Path("/export")
+	@RolesAllowed("admin")
+	@Produces({"application/x-ndjson", "text/csv"})
+	@Operation(summary = "export all auditlog entries within a period", description = "streams all auditlog entries from a period specified by a start and end date in ascending order, regardless of their number")
+	@Parameter(name = "startDate", description = "the start date of the period as ISO 8601 datetime string, inclusive", in = ParameterIn.QUERY)
+	@Parameter(name = "endDate", description = "the end date of the period as ISO 8601 datetime string, exclusive", in = ParameterIn.QUERY)
+	@Parameter(name = "paginationId", description = "The highest audit entry id already received, not included in results. Used to resume an interrupted export. Defaults to 0.", in = ParameterIn.QUERY)
+	@Parameter(name = "format", description = "The export format. Allowed values are 'ndjson' (default, one JSON object per line) or 'csv'.", in = ParameterIn.QUERY)
+	@APIResponse(responseCode = "200", description = "Body contains all events in the specified time interval")
+	@APIResponse(responseCode = "400", description = "startDate or endDate not specified, startDate > endDate or format not in ['ndjson','csv']")
+	@APIResponse(responseCode = "402", description = "Community license used or license expired")
+	@APIResponse(responseCode = "403", description = "requesting user does not have admin role")
+	public Response exportEvents(@QueryParam("startDate") Instant startDate, @QueryParam("endDate") Instant endDate, @QueryParam("paginationId") @DefaultValue("0") long paginationId, @QueryParam("format") @DefaultValue("ndjson") String format) {
+		if (!license.isSet() || license.isExpired()) {
+			throw new PaymentRequiredException("Community license used or license expired");
+		}
+
+		if (startDate == null || endDate == null) {
+			throw new BadRequestException("startDate and endDate must be specified");
+		} else if (startDate.isAfter(endDate)) {
+			throw new BadRequestException("startDate must be before endDate");
+		}
+		var exportFormat = switch (format) {
+			case "ndjson" -> AuditLogExportFormat.NDJSON;
+			case "csv" -> AuditLogExportFormat.CSV;
+			default -> throw new BadRequestException("format must be either 'ndjson' or 'csv'");
+		};
+
+		StreamingOutput body = out -> {
+			try (var writer = exportFormat.open(objectMapper, out)) {
+				QuarkusTransaction.requiringNew().timeout((int) exportTimeout.toSeconds()).run(() -> export(startDate, endDate, paginationId, writer));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		};
+		return Response.ok(body, exportFormat.mediaType) //
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"auditlog." + exportFormat.fileExtension + "\"") //
+				.build();
+	}
+
+	private void export(Instant startDate, Instant endDate, long paginationId, AuditLogExportFormat.EventWriter writer) {
+		try (var events = auditEventRepo.streamAllInPeriod(startDate, endDate, paginationId, exportFetchSize)) {
+			var iterator = events.iterator();
+			for (int i = 1; iterator.hasNext(); i++) {
+				writer.write(AuditEventDto.fromEntity(iterator.next()));
+				if (i % exportFetchSize == 0) {
+					// keep memory constant: forget exported events and push them to the client
+					auditEventRepo.getEntityManager().clear();
+					writer.flush();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
 	@JsonSubTypes({ //
 			@JsonSubTypes.Type(value = DeviceRegisteredEventDto.class, name = DeviceRegisteredEvent.TYPE), //
@@ -9,6 +9,7 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import org.cryptomator.hub.entities.Authority;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.jboss.resteasy.reactive.NoCache;
@@ -22,14 +23,18 @@ public class AuthorityResource {
 	@Inject
 	Authority.Repository authorityRepo;
 
+	@Inject
+	@ConfigProperty(name = "hub.authority-search.max-results", defaultValue = "20")
+	int searchMaxResults;
+
 	@GET
 	@Path("/search")
 	@RolesAllowed("user")
 	@Produces(MediaType.APPLICATION_JSON)
 	@NoCache
-	@Operation(summary = "search authority by name")
+	@Operation(summary = "search authority by name", description = "lists the best matching authorities whose name or email contains the query, limited to a fixed number of results")
 	public List<AuthorityDto> search(@QueryParam("query") @NotBlank String query) {
-		return authorityRepo.byName(query).map(AuthorityDto::fromEntity).toList();
+		return authorityRepo.search(query, searchMaxResults).map(AuthorityDto::fromEntity).toList();
 	}
 
 	@GET
@@ -0,0 +1,51 @@
+package org.cryptomator.hub.api;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET for resources versioned by the database. The version is used as strong entity tag, allowing clients
+ * holding the current representation to skip the response body via <code>If-None-Match</code>.
+ * <p>
+ * This doesn't relax the <code>Cache-Control: no-store</code> of the API, it is meant for clients keeping representations
+ * in memory, e.g. while polling.
+ */
+final class ConditionalGet {
+
+	private ConditionalGet() {
+	}
+
+	/**
+	 * Responds with <code>304 Not Modified</code> if the client's entity tag matches the current version. Otherwise the
+	 * entity is loaded and returned along with its entity tag.
+	 * <p>
+	 * The version needs to be looked up <em>before</em> loading the entity. If a concurrent change happens in between, the
+	 * newer entity gets tagged with an outdated version, causing a needless reload next time instead of a missed update.
+	 *
+	 * @param request the current request
+	 * @param version the current version or an empty optional if the resource is not versioned
+	 * @param variant distinguishes different representations of the same version, e.g. depending on query parameters
+	 * @param entity loads the entity
+	 * @return the response
+	 */
+	static Response respond(Request request, Optional<Long> version, String variant, Supplier<?> entity) {
+		if (version.isEmpty()) {
+			return Response.ok(entity.get()).build();
+		}
+		var tag = entityTag(version.get(), variant);
+		var notModified = request.evaluatePreconditions(tag);
+		if (notModified != null) {
+			return notModified.build();
+		}
+		return Response.ok(entity.get()).tag(tag).build();
+	}
+
+	//visible for testing
+	static EntityTag entityTag(long version, String variant) {
+		return new EntityTag(variant.isEmpty() ? Long.toString(version) : version + "-" + variant);
+	}
+}
@@ -13,4 +13,8 @@ public final class GroupDto extends AuthorityDto {
 		return new GroupDto(group.getId(), group.getName());
 	}
 
+	public static GroupDto fromSummary(Group.Summary group) {
+		return new GroupDto(group.id(), group.name());
+	}
+
 }
@@ -2,15 +2,26 @@ package org.cryptomator.hub.api;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.cryptomator.hub.entities.Authority;
 import org.cryptomator.hub.entities.Group;
 import org.cryptomator.hub.entities.User;
 import org.cryptomator.hub.validation.ValidId;
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.ParameterIn;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 
 import java.util.List;
 
@@ -21,14 +32,19 @@ public class GroupsResource {
 	User.Repository userRepo;
 	@Inject
 	Group.Repository groupRepo;
+	@Inject
+	Authority.Repository authorityRepo;
 
 	@GET
 	@Path("/")
 	@RolesAllowed("user")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "list all groups")
-	public List<GroupDto> getAll() {
-		return groupRepo.findAll().stream().map(GroupDto::fromEntity).toList();
+	@Operation(summary = "list all groups", description = "list all groups ordered by id, optionally paginated and filtered by name")
+	@Parameter(name = "after", in = ParameterIn.QUERY, description = "only list groups with an id greater than this one, i.e. the id of the last group of the previous page")
+	@Parameter(name = "limit", in = ParameterIn.QUERY, description = "maximum number of groups to list, at most 1000 (defaults to all)")
+	@Parameter(name = "prefix", in = ParameterIn.QUERY, description = "only list groups whose name starts with this prefix, ignoring case")
+	public List<GroupDto> getAll(@QueryParam("after") @DefaultValue("") @ValidId String after, @QueryParam("limit") @Min(1) @Max(1000) Integer limit, @QueryParam("prefix") String prefix) {
+		return groupRepo.findPage(after, prefix, limit != null ? limit : Integer.MAX_VALUE).map(GroupDto::fromSummary).toList();
 	}
 
 	@GET
@@ -36,8 +52,10 @@ public class GroupsResource {
 	@RolesAllowed("user")
 	@Produces(MediaType.APPLICATION_JSON)
 	@Operation(summary = "list all effective group members")
-	public List<UserDto> getEffectiveMembers(@PathParam("groupId") @ValidId String groupId) {
-		return userRepo.getEffectiveGroupUsers(groupId).map(UserDto::justPublicInfo).toList();
+	@APIResponse(responseCode = "200", description = "list of effective members, tagged with an ETag")
+	@APIResponse(responseCode = "304", description = "not modified since the version given in If-None-Match")
+	public Response getEffectiveMembers(@PathParam("groupId") @ValidId String groupId, @Context Request request) {
+		return ConditionalGet.respond(request, authorityRepo.findVersion(groupId), "", () -> userRepo.getEffectiveGroupUsers(groupId).map(UserDto::justPublicInfo).toList());
 	}
 
 }
\ No newline at end of file
@@ -48,4 +48,8 @@ public final class UserDto extends AuthorityDto {
 	public static UserDto justPublicInfo(User user) {
 		return new UserDto(user.getId(), user.getName(), user.getPictureUrl(), user.getEmail(), Set.of(), user.getEcdhPublicKey(), user.getEcdsaPublicKey(),null, null);
 	}
+
+	public static UserDto justPublicInfo(User.Summary user) {
+		return new UserDto(user.id(), user.name(), user.pictureUrl(), user.email(), Set.of(), user.ecdhPublicKey(), user.ecdsaPublicKey(), null, null);
+	}
 }
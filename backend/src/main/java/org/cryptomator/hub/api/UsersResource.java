@@ -6,8 +6,11 @@ import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
@@ -16,17 +19,23 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import org.cryptomator.hub.entities.AccessToken;
+import org.cryptomator.hub.entities.Authority;
 import org.cryptomator.hub.entities.Device;
 import org.cryptomator.hub.entities.EffectiveWot;
 import org.cryptomator.hub.entities.User;
 import org.cryptomator.hub.entities.Vault;
 import org.cryptomator.hub.entities.WotEntry;
 import org.cryptomator.hub.entities.events.EventLogger;
+import org.cryptomator.hub.validation.ValidId;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.ParameterIn;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.jboss.resteasy.reactive.NoCache;
 
@@ -50,6 +59,8 @@ public class UsersResource {
 	@Inject
 	User.Repository userRepo;
 	@Inject
+	Authority.Repository authorityRepo;
+	@Inject
 	Device.Repository deviceRepo;
 	@Inject
 	Vault.Repository vaultRepo;
@@ -119,12 +130,21 @@ public class UsersResource {
 	@APIResponse(responseCode = "200", description = "all keys stored")
 	public Response updateMyAccessTokens(@NotNull Map<UUID, String> tokens) {
 		var user = userRepo.findById(jwt.getSubject());
+		if (tokens.isEmpty()) {
+			return Response.ok().build();
+		}
+
+		// prefetch all vaults and existing tokens, changes are then flushed in JDBC batches
+		var vaultIds = List.copyOf(tokens.keySet());
+		var vaults = vaultRepo.findAllInList(vaultIds).collect(Collectors.toMap(Vault::getId, Function.identity()));
+		var existingTokens = accessTokenRepo.findByUserAndVaults(user.getId(), vaultIds).collect(Collectors.toMap(token -> token.getId().getVaultId(), Function.identity()));
+
 		for (var entry : tokens.entrySet()) {
-			var vault = vaultRepo.findById(entry.getKey());
+			var vault = vaults.get(entry.getKey());
 			if (vault == null) {
 				continue; // skip
 			}
-			var token = accessTokenRepo.findById(new AccessToken.AccessId(user.getId(), vault.getId()));
+			var token = existingTokens.get(vault.getId());
 			if (token == null) {
 				token = new AccessToken();
 				token.setVault(vault);
@@ -144,13 +164,17 @@ public class UsersResource {
 	@NoCache
 	@Transactional
 	@Operation(summary = "get the logged-in user")
-	@APIResponse(responseCode = "200", description = "returns the current user")
+	@APIResponse(responseCode = "200", description = "returns the current user, tagged with an ETag")
+	@APIResponse(responseCode = "304", description = "not modified since the version given in If-None-Match")
 	@APIResponse(responseCode = "404", description = "no user matching the subject of the JWT passed as Bearer Token")
-	public UserDto getMe(@QueryParam("withDevices") boolean withDevices) {
-		User user = userRepo.findById(jwt.getSubject());
-		Function<Device, DeviceResource.DeviceDto> mapDevices = d -> new DeviceResource.DeviceDto(d.getId(), d.getName(), d.getType(), d.getPublickey(), d.getUserPrivateKeys(), d.getOwner().getId(), d.getCreationTime().truncatedTo(ChronoUnit.MILLIS));
-		var devices = withDevices ? user.devices.stream().map(mapDevices).collect(Collectors.toSet()) : Set.<DeviceResource.DeviceDto>of();
-		return new UserDto(user.getId(), user.getName(), user.getPictureUrl(), user.getEmail(), devices, user.getEcdhPublicKey(), user.getEcdsaPublicKey(), user.getPrivateKeys(), user.getSetupCode());
+	public Response getMe(@QueryParam("withDevices") boolean withDevices, @Context Request request) {
+		var userId = jwt.getSubject();
+		return ConditionalGet.respond(request, authorityRepo.findVersion(userId), withDevices ? "devices" : "", () -> {
+			User user = userRepo.findById(userId);
+			Function<Device, DeviceResource.DeviceDto> mapDevices = d -> new DeviceResource.DeviceDto(d.getId(), d.getName(), d.getType(), d.getPublickey(), d.getUserPrivateKeys(), d.getOwner().getId(), d.getCreationTime().truncatedTo(ChronoUnit.MILLIS));
+			var devices = withDevices ? user.devices.stream().map(mapDevices).collect(Collectors.toSet()) : Set.<DeviceResource.DeviceDto>of();
+			return new UserDto(user.getId(), user.getName(), user.getPictureUrl(), user.getEmail(), devices, user.getEcdhPublicKey(), user.getEcdsaPublicKey(), user.getPrivateKeys(), user.getSetupCode());
+		});
 	}
 
 	@POST
@@ -175,9 +199,12 @@ public class UsersResource {
 	@Path("/")
 	@RolesAllowed("user")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "list all users")
-	public List<UserDto> getAll() {
-		return userRepo.findAll().stream().map(UserDto::justPublicInfo).toList();
+	@Operation(summary = "list all users", description = "list all users ordered by id, optionally paginated and filtered by name")
+	@Parameter(name = "after", in = ParameterIn.QUERY, description = "only list users with an id greater than this one, i.e. the id of the last user of the previous page")
+	@Parameter(name = "limit", in = ParameterIn.QUERY, description = "maximum number of users to list, at most 1000 (defaults to all)")
+	@Parameter(name = "prefix", in = ParameterIn.QUERY, description = "only list users whose name starts with this prefix, ignoring case")
+	public List<UserDto> getAll(@QueryParam("after") @DefaultValue("") @ValidId String after, @QueryParam("limit") @Min(1) @Max(1000) Integer limit, @QueryParam("prefix") String prefix) {
+		return userRepo.findPage(after, prefix, limit != null ? limit : Integer.MAX_VALUE).map(UserDto::justPublicInfo).toList();
 	}
 
 	@PUT
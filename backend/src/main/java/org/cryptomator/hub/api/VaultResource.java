@@ -11,9 +11,12 @@ import jakarta.inject.Inject;
 import jakarta.persistence.NoResultException;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.Consumes;
@@ -29,7 +32,9 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import org.cryptomator.hub.entities.AccessToken;
 import org.cryptomator.hub.entities.Authority;
@@ -43,6 +48,7 @@ import org.cryptomator.hub.entities.events.EventLogger;
 import org.cryptomator.hub.entities.events.VaultKeyRetrievedEvent;
 import org.cryptomator.hub.filters.ActiveLicense;
 import org.cryptomator.hub.filters.VaultRole;
+import org.cryptomator.hub.filters.VaultRoleCache;
 import org.cryptomator.hub.license.LicenseHolder;
 import org.cryptomator.hub.validation.NoHtmlOrScriptChars;
 import org.cryptomator.hub.validation.OnlyBase64Chars;
@@ -57,21 +63,31 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import java.net.URI;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Path("/vaults")
 public class VaultResource {
 
+	/**
+	 * Limits the ids bound to the <code>IN</code> lists of a single request, which Postgres allows at most 32767 parameters for.
+	 */
+	static final int MAX_AUTHORITIES_PER_REQUEST = 1000;
+
 	@Inject
 	EventLogger eventLogger;
 
 	@Inject
 	AccessToken.Repository accessTokenRepo;
 	@Inject
+	Authority.Repository authorityRepo;
+	@Inject
 	Group.Repository groupRepo;
 	@Inject
 	User.Repository userRepo;
@@ -85,6 +101,9 @@ public class VaultResource {
 	@Inject
 	VaultAccess.Repository vaultAccessRepo;
 
+	@Inject
+	VaultRoleCache vaultRoleCache;
+
 	@Inject
 	JsonWebToken jwt;
 
@@ -100,15 +119,19 @@ public class VaultResource {
 	@Produces(MediaType.APPLICATION_JSON)
 	@Transactional
 	@Operation(summary = "list all accessible vaults", description = "list all vaults that have been shared with the currently logged in user or a group in wich this user is")
-	public List<VaultDto> getAccessible(@Nullable @QueryParam("role") VaultAccess.Role role) {
+	@APIResponse(responseCode = "200", description = "list of accessible vaults, tagged with an ETag")
+	@APIResponse(responseCode = "304", description = "not modified since the version given in If-None-Match")
+	public Response getAccessible(@Nullable @QueryParam("role") VaultAccess.Role role, @Context Request request) {
 		var currentUserId = jwt.getSubject();
-		final Stream<Vault> resultStream;
-		if (role == null) {
-			resultStream = vaultRepo.findAccessibleByUser(currentUserId);
-		} else {
-			resultStream = vaultRepo.findAccessibleByUser(currentUserId, role);
-		}
-		return resultStream.map(VaultDto::fromEntity).toList();
+		return ConditionalGet.respond(request, authorityRepo.findVersion(currentUserId), role == null ? "" : role.name(), () -> {
+			final Stream<Vault> resultStream;
+			if (role == null) {
+				resultStream = vaultRepo.findAccessibleByUser(currentUserId);
+			} else {
+				resultStream = vaultRepo.findAccessibleByUser(currentUserId, role);
+			}
+			return resultStream.map(VaultDto::fromEntity).toList();
+		});
 	}
 
 	@GET
@@ -127,9 +150,13 @@ public class VaultResource {
 	@RolesAllowed("admin")
 	@Produces(MediaType.APPLICATION_JSON)
 	@Transactional
-	@Operation(summary = "list all vaults", description = "list all vaults in the system")
-	public List<VaultDto> getAllVaults() {
-		return vaultRepo.findAll().stream().map(VaultDto::fromEntity).toList();
+	@Operation(summary = "list all vaults", description = "list all vaults in the system ordered by id, optionally paginated and filtered by name")
+	@Parameter(name = "after", in = ParameterIn.QUERY, description = "only list vaults with an id greater than this one, i.e. the id of the last vault of the previous page")
+	@Parameter(name = "limit", in = ParameterIn.QUERY, description = "maximum number of vaults to list, at most 1000 (defaults to all)")
+	@Parameter(name = "prefix", in = ParameterIn.QUERY, description = "only list vaults whose name starts with this prefix, ignoring case")
+	public List<VaultDto> getAllVaults(@QueryParam("after") UUID after, @QueryParam("limit") @Min(1) @Max(1000) Integer limit, @QueryParam("prefix") String prefix) {
+		var afterId = after != null ? after : new UUID(0, 0);
+		return vaultRepo.findPage(afterId, prefix, limit != null ? limit : Integer.MAX_VALUE).map(VaultDto::fromSummary).toList();
 	}
 
 	@GET
@@ -139,14 +166,15 @@ public class VaultResource {
 	@Transactional
 	@Produces(MediaType.APPLICATION_JSON)
 	@Operation(summary = "list vault members", description = "list all users or groups that this vault has been shared with directly (not inherited via group membership)")
-	@APIResponse(responseCode = "200")
+	@APIResponse(responseCode = "200", description = "list of members, tagged with an ETag")
+	@APIResponse(responseCode = "304", description = "not modified since the version given in If-None-Match")
 	@APIResponse(responseCode = "403", description = "not a vault owner")
-	public List<MemberDto> getDirectMembers(@PathParam("vaultId") UUID vaultId) {
-		return vaultAccessRepo.forVault(vaultId).map(access -> switch (access.getAuthority()) {
+	public Response getDirectMembers(@PathParam("vaultId") UUID vaultId, @Context Request request) {
+		return ConditionalGet.respond(request, vaultRepo.findVersion(vaultId), "", () -> vaultAccessRepo.forVault(vaultId).map(access -> switch (access.getAuthority()) {
 			case User u -> MemberDto.fromEntity(u, access.getRole());
 			case Group g -> MemberDto.fromEntity(g, access.getRole());
 			default -> throw new IllegalStateException();
-		}).toList();
+		}).toList());
 	}
 
 	@PUT
@@ -201,23 +229,77 @@ public class VaultResource {
 		return addAuthority(vault, group, role);
 	}
 
+	@PUT
+	@Path("/{vaultId}/authorities")
+	@RolesAllowed("user")
+	@VaultRole(VaultAccess.Role.OWNER) // may throw 403
+	@Transactional
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "adds multiple users and groups to this vault or updates their roles",
+			description = "Adds or updates all given authorities at once. Seats are checked for the resulting set of users as a whole, so either all found authorities are applied or none. If an authority is listed more than once, the last entry wins.")
+	@APIResponse(responseCode = "200", description = "result for each distinct authority, in order of the request")
+	@APIResponse(responseCode = "400", description = "no or more than " + MAX_AUTHORITIES_PER_REQUEST + " authorities given")
+	@APIResponse(responseCode = "402", description = "license is expired or licensed seats would be exceeded after the operation")
+	@APIResponse(responseCode = "403", description = "not a vault owner")
+	@ActiveLicense
+	public List<MemberUpdateResultDto> addAuthorities(@PathParam("vaultId") UUID vaultId, @NotEmpty @Size(max = MAX_AUTHORITIES_PER_REQUEST) List<@Valid @NotNull MemberUpdateDto> members) {
+		var vault = vaultRepo.findById(vaultId); // should always be found, since @VaultRole filter would have triggered
+		var roles = new LinkedHashMap<String, VaultAccess.Role>();
+		members.forEach(member -> roles.put(member.authorityId(), member.role()));
+		var authorityIds = List.copyOf(roles.keySet());
+		var authorities = authorityRepo.findAllInList(authorityIds).collect(Collectors.toMap(Authority::getId, Function.identity()));
+
+		var userIds = authorities.values().stream().filter(User.class::isInstance).map(Authority::getId).toList();
+		var groupIds = authorities.values().stream().filter(Group.class::isInstance).map(Authority::getId).toList();
+		if (effectiveVaultAccessRepo.countSeatOccupyingUsers() + effectiveVaultAccessRepo.countUsersWithoutSeat(userIds, groupIds) > license.getSeats()) {
+			throw new PaymentRequiredException("Adding these members would exceed available license seats.");
+		}
+
+		var existingAccess = vaultAccessRepo.findByVaultAndAuthorities(vaultId, authorityIds).collect(Collectors.toMap(access -> access.getId().getAuthorityId(), Function.identity()));
+		return roles.entrySet().stream().map(entry -> {
+			var authority = authorities.get(entry.getKey());
+			if (authority == null) {
+				return new MemberUpdateResultDto(entry.getKey(), MemberUpdateResultDto.Status.NOT_FOUND);
+			} else if (putAccess(vault, authority, entry.getValue(), Optional.ofNullable(existingAccess.get(entry.getKey())))) {
+				return new MemberUpdateResultDto(entry.getKey(), MemberUpdateResultDto.Status.ADDED);
+			} else {
+				return new MemberUpdateResultDto(entry.getKey(), MemberUpdateResultDto.Status.UPDATED);
+			}
+		}).toList();
+	}
+
 	private Response addAuthority(Vault vault, Authority authority, VaultAccess.Role role) {
 		var id = new VaultAccess.Id(vault.getId(), authority.getId());
-		var existingAccess = vaultAccessRepo.findByIdOptional(id);
+		if (putAccess(vault, authority, role, vaultAccessRepo.findByIdOptional(id))) {
+			return Response.created(URI.create(".")).build();
+		} else {
+			return Response.ok().build();
+		}
+	}
+
+	/**
+	 * Grants the role to the authority, updating its existing access if present.
+	 *
+	 * @return <code>true</code> if the authority has been added, <code>false</code> if its role has been updated
+	 */
+	private boolean putAccess(Vault vault, Authority authority, VaultAccess.Role role, Optional<VaultAccess> existingAccess) {
 		if (existingAccess.isPresent()) {
 			var access = existingAccess.get();
 			access.setRole(role);
 			vaultAccessRepo.persist(access);
+			vaultRoleCache.invalidateVaultOnCommit(vault.getId());
 			eventLogger.logVaultMemberUpdated(jwt.getSubject(), vault.getId(), authority.getId(), role);
-			return Response.ok().build();
+			return false;
 		} else {
 			var access = new VaultAccess();
 			access.setVault(vault);
 			access.setAuthority(authority);
 			access.setRole(role);
 			vaultAccessRepo.persist(access);
+			vaultRoleCache.invalidateVaultOnCommit(vault.getId());
 			eventLogger.logVaultMemberAdded(jwt.getSubject(), vault.getId(), authority.getId(), role);
-			return Response.created(URI.create(".")).build();
+			return true;
 		}
 	}
 
@@ -232,6 +314,7 @@ public class VaultResource {
 	@APIResponse(responseCode = "403", description = "not a vault owner")
 	public Response removeAuthority(@PathParam("vaultId") UUID vaultId, @PathParam("authorityId") @ValidId String authorityId) {
 		if (vaultAccessRepo.deleteById(new VaultAccess.Id(vaultId, authorityId))) {
+			vaultRoleCache.invalidateVaultOnCommit(vaultId);
 			eventLogger.logVaultMemberRemoved(jwt.getSubject(), vaultId, authorityId);
 			return Response.status(Response.Status.NO_CONTENT).build();
 		} else {
@@ -301,29 +384,25 @@ public class VaultResource {
 	@APIResponse(responseCode = "449", description = "User account not yet initialized. Retry after setting up user")
 	@ActiveLicense // may throw 402
 	public Response unlock(@PathParam("vaultId") UUID vaultId, @QueryParam("evenIfArchived") @DefaultValue("false") boolean ignoreArchived) {
-		var vault = vaultRepo.findById(vaultId); // should always be found, since @VaultRole filter would have triggered
-		if (vault.isArchived() && !ignoreArchived) {
+		// single round trip for all checks below, the vault role itself has been checked by the (cached) @VaultRole filter
+		var state = accessTokenRepo.findUnlockState(vaultId, jwt.getSubject()).orElseThrow(() -> new NotFoundException("No such vault."));
+		if (state.archived() && !ignoreArchived) {
 			throw new GoneException("Vault is archived.");
 		}
 
-		var accessTokenSeats = effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken();
-		if (accessTokenSeats > license.getSeats()) {
+		if (state.seatsWithAccessToken() > license.getSeats()) {
 			throw new PaymentRequiredException("Number of effective vault users exceeds available license seats");
 		}
 
-		var user = userRepo.findById(jwt.getSubject());
-		if (user.getEcdhPublicKey() == null) {
+		if (!state.userInitialized()) {
 			throw new ActionRequiredException("User account not initialized.");
 		}
 
-		var access = accessTokenRepo.unlock(vaultId, jwt.getSubject());
-		if (access != null) {
+		if (state.vaultKey() != null) {
 			eventLogger.logVaultKeyRetrieved(jwt.getSubject(), vaultId, VaultKeyRetrievedEvent.Result.SUCCESS);
 			var subscriptionStateHeaderName = "Hub-Subscription-State";
 			var subscriptionStateHeaderValue = license.isSet() ? "ACTIVE" : "INACTIVE"; // license expiration is not checked here, because it is checked in the ActiveLicense filter
-			return Response.ok(access.getVaultKey(), MediaType.TEXT_PLAIN_TYPE).header(subscriptionStateHeaderName, subscriptionStateHeaderValue).build();
-		} else if (vaultRepo.findById(vaultId) == null) {
-			throw new NotFoundException("No such vault.");
+			return Response.ok(state.vaultKey(), MediaType.TEXT_PLAIN_TYPE).header(subscriptionStateHeaderName, subscriptionStateHeaderValue).build();
 		} else {
 			eventLogger.logVaultKeyRetrieved(jwt.getSubject(), vaultId, VaultKeyRetrievedEvent.Result.UNAUTHORIZED);
 			throw new ForbiddenException("Access to this vault not granted.");
@@ -352,13 +431,21 @@ public class VaultResource {
 			throw new PaymentRequiredException("Number of effective vault users greater than or equal to the available license seats");
 		}
 
+		// prefetch all users and existing tokens, changes are then flushed in JDBC batches
+		var userIds = List.copyOf(tokens.keySet());
+		var users = userRepo.findAllInList(userIds).collect(Collectors.toMap(User::getId, Function.identity()));
+		if (users.size() != userIds.size()) {
+			throw new NotFoundException("At least one user has not been found");
+		}
+		var existingTokens = accessTokenRepo.findByVaultAndUsers(vaultId, userIds).collect(Collectors.toMap(token -> token.getId().getUserId(), Function.identity()));
+
 		for (var entry : tokens.entrySet()) {
 			var userId = entry.getKey();
-			var token = accessTokenRepo.findById(new AccessToken.AccessId(userId, vaultId));
+			var token = existingTokens.get(userId);
 			if (token == null) {
 				token = new AccessToken();
 				token.setVault(vault);
-				token.setUser(userRepo.findByIdOptional(userId).orElseThrow(NotFoundException::new));
+				token.setUser(users.get(userId));
 			}
 			token.setVaultKey(entry.getValue());
 			accessTokenRepo.persist(token);
@@ -378,7 +465,7 @@ public class VaultResource {
 	@APIResponse(responseCode = "403", description = "requesting user is neither a vault member nor has the admin role")
 	public VaultDto get(@PathParam("vaultId") UUID vaultId) {
 		Vault vault = vaultRepo.findByIdOptional(vaultId).orElseThrow(NotFoundException::new);
-		if (vault.getEffectiveMembers().stream().noneMatch(u -> u.getId().equals(jwt.getSubject())) && !identity.getRoles().contains("admin")) {
+		if (!identity.getRoles().contains("admin") && !effectiveVaultAccessRepo.isMember(vaultId, jwt.getSubject())) {
 			throw new ForbiddenException("Requesting user is not a member of the vault");
 		}
 		return VaultDto.fromEntity(vault);
@@ -420,6 +507,7 @@ public class VaultResource {
 		vault.setArchived(existingVault.isEmpty() ? false : vaultDto.archived);
 
 		vaultRepo.persistAndFlush(vault); // trigger PersistenceException before we continue with
+		vaultRoleCache.invalidateVaultOnCommit(vaultId);
 		if (existingVault.isEmpty()) {
 			eventLogger.logVaultCreated(currentUser.getId(), vault.getId(), vault.getName(), vault.getDescription());
 			var access = new VaultAccess();
@@ -488,11 +576,22 @@ public class VaultResource {
 		vault.setAuthenticationPublicKey(null);
 		vaultRepo.persist(vault);
 
+		vaultRoleCache.invalidateVaultOnCommit(vaultId);
 		eventLogger.logVaultOwnershipClaimed(currentUser.getId(), vaultId);
 		return Response.ok(VaultDto.fromEntity(vault), MediaType.APPLICATION_JSON).build();
 	}
 
 
+	public record MemberUpdateDto(@JsonProperty("authorityId") @NotNull @ValidId String authorityId, @JsonProperty("role") @NotNull VaultAccess.Role role) {
+	}
+
+	public record MemberUpdateResultDto(@JsonProperty("authorityId") String authorityId, @JsonProperty("status") Status status) {
+
+		public enum Status {
+			ADDED, UPDATED, NOT_FOUND
+		}
+	}
+
 	public record VaultDto(@JsonProperty("id") UUID id,
 						   @JsonProperty("name") @NoHtmlOrScriptChars @NotBlank String name,
 						   @JsonProperty("description") @NoHtmlOrScriptChars String description,
@@ -508,5 +607,9 @@ public class VaultResource {
 			return new VaultDto(entity.getId(), entity.getName(), entity.getDescription(), entity.isArchived(), entity.getCreationTime().truncatedTo(ChronoUnit.MILLIS), entity.getMasterkey(), entity.getIterations(), entity.getSalt(), entity.getAuthenticationPublicKey(), entity.getAuthenticationPrivateKey());
 		}
 
+		public static VaultDto fromSummary(Vault.Summary vault) {
+			return new VaultDto(vault.id(), vault.name(), vault.description(), vault.archived(), vault.creationTime().truncatedTo(ChronoUnit.MILLIS), vault.masterkey(), vault.iterations(), vault.salt(), vault.authenticationPublicKey(), vault.authenticationPrivateKey());
+		}
+
 	}
 }
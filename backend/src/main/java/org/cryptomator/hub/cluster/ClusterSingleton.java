@@ -0,0 +1,99 @@
+package org.cryptomator.hub.cluster;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.ScheduledExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.cryptomator.hub.entities.JobLease;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Skips scheduled jobs on all Hub instances but the one holding the job's {@link JobLease lease}. Apply it to a job via
+ * <code>@Scheduled(identity = "...", skipExecutionIf = ClusterSingleton.class)</code>, the identity being the name of the lease.
+ * <p>
+ * The holder renews its lease whenever the job fires, extending it until the next scheduled execution plus a grace period.
+ * If the holder dies, its lease expires and the job is taken over by whichever instance fires first afterwards, so at most
+ * one execution is missed.
+ */
+@ApplicationScoped
+public class ClusterSingleton implements Scheduled.SkipPredicate {
+
+	private static final Logger LOG = Logger.getLogger(ClusterSingleton.class);
+
+	@Inject
+	@ConfigProperty(name = "hub.job-lease.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@Inject
+	@ConfigProperty(name = "hub.job-lease.grace-period", defaultValue = "1m")
+	Duration gracePeriod;
+
+	@Inject
+	@ConfigProperty(name = "hub.job-lease.node-id")
+	Optional<String> configuredNodeId;
+
+	@Inject
+	JobLease.Repository jobLeaseRepo;
+
+	//visible for testing
+	Clock clock = Clock.systemUTC();
+
+	private String nodeId;
+
+	@Override
+	public boolean test(ScheduledExecution execution) {
+		if (!enabled) {
+			return false;
+		}
+		var job = execution.getTrigger().getId();
+		var nextFireTime = execution.getTrigger().getNextFireTime();
+		var leaseDuration = nextFireTime == null ? gracePeriod : Duration.between(clock.instant(), nextFireTime).plus(gracePeriod);
+		try {
+			if (tryAcquire(job, leaseDuration)) {
+				return false;
+			} else {
+				LOG.debugf("Skipping %s, which is run by another instance", job);
+				return true;
+			}
+		} catch (RuntimeException e) {
+			LOG.warnf(e, "Failed to acquire lease for %s. Skipping execution.", job);
+			return true;
+		}
+	}
+
+	//visible for testing
+	boolean tryAcquire(String job, Duration leaseDuration) {
+		return QuarkusTransaction.requiringNew().call(() -> jobLeaseRepo.tryAcquire(job, nodeId(), leaseDuration));
+	}
+
+	/**
+	 * The id identifying this instance as lease holder, <code>hub.job-lease.node-id</code> if configured, otherwise the host name.
+	 *
+	 * @return this instance's id
+	 */
+	public synchronized String nodeId() {
+		if (nodeId == null) {
+			nodeId = configuredNodeId.orElseGet(ClusterSingleton::hostName);
+		}
+		return nodeId;
+	}
+
+	private static String hostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			var id = UUID.randomUUID().toString();
+			LOG.warnf("Failed to determine host name, using %s as node id", id);
+			return id;
+		}
+	}
+}
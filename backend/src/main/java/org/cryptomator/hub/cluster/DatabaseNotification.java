@@ -0,0 +1,21 @@
+package org.cryptomator.hub.cluster;
+
+/**
+ * A notification received on one of the Postgres channels listed in {@link DatabaseNotificationListener#CHANNELS}.
+ * <p>
+ * Notifications are fired as CDI events. A notification with a {@code null} payload indicates that notifications on this
+ * channel might have been missed (e.g. due to a lost connection), so observers should assume anything has changed.
+ *
+ * @param channel the channel name
+ * @param payload the payload sent with {@code pg_notify}, or {@code null} if notifications might have been missed
+ */
+public record DatabaseNotification(String channel, String payload) {
+
+	public static DatabaseNotification missed(String channel) {
+		return new DatabaseNotification(channel, null);
+	}
+
+	public boolean isMissed() {
+		return payload == null;
+	}
+}
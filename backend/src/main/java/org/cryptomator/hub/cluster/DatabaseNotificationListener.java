@@ -0,0 +1,114 @@
+package org.cryptomator.hub.cluster;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.postgresql.PGConnection;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Listens for Postgres notifications (see {@code LISTEN}/{@code NOTIFY}) on a dedicated connection and fires them as
+ * {@link DatabaseNotification} events. This allows Hub instances sharing the same database to react on changes made by
+ * other instances without any additional infrastructure.
+ */
+@ApplicationScoped
+public class DatabaseNotificationListener {
+
+	public static final String VAULT_ACCESS_CHANNEL = "hub_vault_access";
+	public static final String LICENSE_CHANNEL = "hub_license";
+	static final List<String> CHANNELS = List.of(VAULT_ACCESS_CHANNEL, LICENSE_CHANNEL);
+
+	private static final Logger LOG = Logger.getLogger(DatabaseNotificationListener.class);
+	private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+	@Inject
+	@ConfigProperty(name = "hub.db-notifications.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@Inject
+	@ConfigProperty(name = "hub.db-notifications.reconnect-delay", defaultValue = "5s")
+	Duration reconnectDelay;
+
+	@Inject
+	AgroalDataSource dataSource;
+
+	@Inject
+	Event<DatabaseNotification> notificationEvent;
+
+	private volatile boolean running;
+	private Thread thread;
+
+	void onStart(@Observes StartupEvent event) {
+		if (!enabled) {
+			LOG.info("Database notifications disabled. Cached data will only expire after its TTL and license changes will only apply to the instance they were made on.");
+			return;
+		}
+		running = true;
+		thread = Thread.ofPlatform().name("db-notification-listener").daemon().start(this::run);
+	}
+
+	void onStop(@Observes ShutdownEvent event) {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				listen();
+			} catch (SQLException e) {
+				LOG.warnf(e, "Lost connection while listening for database notifications. Reconnecting in %s...", reconnectDelay);
+				try {
+					Thread.sleep(reconnectDelay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void listen() throws SQLException {
+		try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+			for (var channel : CHANNELS) {
+				statement.execute("LISTEN \"" + channel + "\"");
+			}
+			// anything may have happened until we started listening:
+			CHANNELS.stream().map(DatabaseNotification::missed).forEach(this::fire);
+
+			try {
+				var pgConnection = connection.unwrap(PGConnection.class);
+				while (running) {
+					var notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+					if (notifications != null) {
+						for (var notification : notifications) {
+							fire(new DatabaseNotification(notification.getName(), notification.getParameter()));
+						}
+					}
+				}
+			} finally {
+				// connection is returned to the pool, which must not keep listening:
+				statement.execute("UNLISTEN *");
+			}
+		}
+	}
+
+	private void fire(DatabaseNotification notification) {
+		try {
+			notificationEvent.fire(notification);
+		} catch (RuntimeException e) {
+			LOG.errorf(e, "Failed to process notification on channel %s", notification.channel());
+		}
+	}
+}
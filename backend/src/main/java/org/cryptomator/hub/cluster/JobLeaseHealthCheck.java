@@ -0,0 +1,34 @@
+package org.cryptomator.hub.cluster;
+
+import io.smallrye.health.api.Wellness;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.cryptomator.hub.entities.JobLease;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+
+/**
+ * Reports which instance holds the lease of each {@link ClusterSingleton} job, e.g. <code>remote-user-sync: hub-1 (until 2024-01-01T00:01:00Z)</code>.
+ * Exposed as wellness check, so it doesn't affect liveness or readiness of any instance.
+ */
+@Wellness
+@ApplicationScoped
+public class JobLeaseHealthCheck implements HealthCheck {
+
+	@Inject
+	ClusterSingleton clusterSingleton;
+
+	@Inject
+	JobLease.Repository jobLeaseRepo;
+
+	@Override
+	@Transactional
+	public HealthCheckResponse call() {
+		var response = HealthCheckResponse.named("job-leases").withData("node", clusterSingleton.nodeId());
+		for (var lease : jobLeaseRepo.listAll()) {
+			response.withData(lease.getJob(), lease.getHolder() + " (until " + lease.getExpiresAt() + ")");
+		}
+		return response.up().build();
+	}
+}
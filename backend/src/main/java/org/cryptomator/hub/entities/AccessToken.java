@@ -2,6 +2,7 @@ package org.cryptomator.hub.entities;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import io.quarkus.panache.common.Parameters;
+import jakarta.annotation.Nullable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -16,8 +17,11 @@ import jakarta.persistence.NoResultException;
 import jakarta.persistence.Table;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Entity
 @Table(name = "access_token")
@@ -32,6 +36,16 @@ import java.util.UUID;
 			INNER JOIN EffectiveVaultAccess perm ON token.id.vaultId = perm.id.vaultId AND token.id.userId = perm.id.authorityId
 			WHERE token.id.vaultId = :vaultId AND token.id.userId = :userId
 		""")
+@NamedQuery(name = "AccessToken.byVaultAndUsers", query = """
+			SELECT token
+			FROM AccessToken token
+			WHERE token.id.vaultId = :vaultId AND token.id.userId IN :userIds
+		""")
+@NamedQuery(name = "AccessToken.byUserAndVaults", query = """
+			SELECT token
+			FROM AccessToken token
+			WHERE token.id.userId = :userId AND token.id.vaultId IN :vaultIds
+		""")
 public class AccessToken {
 
 	@EmbeddedId
@@ -161,9 +175,50 @@ public class AccessToken {
 		}
 	}
 
+	/**
+	 * Everything needed to decide about an unlock request, fetched in a single query.
+	 *
+	 * @param archived whether the vault is archived
+	 * @param seatsWithAccessToken number of seats occupied by users with an access token (on any vault)
+	 * @param userInitialized whether the user has set up its user key pair
+	 * @param vaultKey the user's access token, <code>null</code> if the user has none or no longer has access to the vault
+	 */
+	public record UnlockState(boolean archived, long seatsWithAccessToken, boolean userInitialized, @Nullable String vaultKey) {
+	}
+
 	@ApplicationScoped
 	public static class Repository implements PanacheRepositoryBase<AccessToken, AccessId> {
 
+		/**
+		 * Fetches the state of the vault, the seat count, the user's key state and its access token in one round trip.
+		 *
+		 * @param vaultId the vault to unlock
+		 * @param userId the user requesting the vault key
+		 * @return the unlock state or an empty optional if the vault doesn't exist
+		 */
+		public Optional<UnlockState> findUnlockState(UUID vaultId, String userId) {
+			return getEntityManager().createNativeQuery("""
+							SELECT "v"."archived",
+								(SELECT SUM("s"."occupied_seats_with_access_token") FROM "seat_ledger_summary" "s"),
+								"u"."ecdh_publickey" IS NOT NULL,
+								"t"."vault_masterkey"
+							FROM "vault" "v"
+							LEFT JOIN "user_details" "u" ON "u"."id" = :userId
+							LEFT JOIN "access_token" "t" ON "t"."vault_id" = "v"."id" AND "t"."user_id" = :userId
+								AND EXISTS (SELECT 1 FROM "effective_vault_access" "eva" WHERE "eva"."vault_id" = "v"."id" AND "eva"."authority_id" = :userId)
+							WHERE "v"."id" = :vaultId
+							""") //
+					.setParameter("vaultId", vaultId) //
+					.setParameter("userId", userId) //
+					.getResultStream() //
+					.findFirst() //
+					.map(result -> {
+						var row = (Object[]) result;
+						var seats = row[1] == null ? 0L : ((Number) row[1]).longValue();
+						return new UnlockState((Boolean) row[0], seats, (Boolean) row[2], (String) row[3]);
+					});
+		}
+
 		public AccessToken unlock(UUID vaultId, String userId) {
 			try {
 				return find("#AccessToken.get", Parameters.with("vaultId", vaultId).and("userId", userId)).firstResult();
@@ -172,6 +227,14 @@ public class AccessToken {
 			}
 		}
 
+		public Stream<AccessToken> findByVaultAndUsers(UUID vaultId, List<String> userIds) {
+			return find("#AccessToken.byVaultAndUsers", Parameters.with("vaultId", vaultId).and("userIds", userIds)).stream();
+		}
+
+		public Stream<AccessToken> findByUserAndVaults(String userId, List<UUID> vaultIds) {
+			return find("#AccessToken.byUserAndVaults", Parameters.with("userId", userId).and("vaultIds", vaultIds)).stream();
+		}
+
 		public void deleteByUser(String userId) {
 			delete("#AccessToken.deleteByUser", Parameters.with("userId", userId));
 		}
@@ -5,6 +5,7 @@ import io.quarkus.panache.common.Parameters;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorColumn;
+import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Inheritance;
@@ -12,20 +13,17 @@ import jakarta.persistence.InheritanceType;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 @Entity
 @Table(name = "authority")
 @Inheritance(strategy = InheritanceType.JOINED)
 @DiscriminatorColumn(name = "type")
-@NamedQuery(name = "Authority.byName",
-		query = """
-				SELECT DISTINCT a
-				FROM Authority a
-				WHERE LOWER(a.name) LIKE :name
-				""")
 @NamedQuery(name = "Authority.allInList",
 		query = """
 				SELECT a
@@ -41,6 +39,9 @@ public class Authority {
 	@Column(name = "name", nullable = false)
 	private String name;
 
+	@Column(name = "sync_hash")
+	private String syncHash;
+
 	public String getId() {
 		return id;
 	}
@@ -57,6 +58,17 @@ public class Authority {
 		this.name = name;
 	}
 
+	/**
+	 * @return Hash of the attributes synchronized from the remote user provider, <code>null</code> if never synchronized
+	 */
+	public String getSyncHash() {
+		return syncHash;
+	}
+
+	public void setSyncHash(String syncHash) {
+		this.syncHash = syncHash;
+	}
+
 	@Override
 	public String toString() {
 		return "Authority{" +
@@ -82,12 +94,144 @@ public class Authority {
 	@ApplicationScoped
 	public static class Repository implements PanacheRepositoryBase<Authority, String> {
 
-		public Stream<Authority> byName(String name) {
-			return find("#Authority.byName", Parameters.with("name", '%' + name.toLowerCase() + '%')).stream();
+		/**
+		 * Minimum length of a search query to be ranked by trigram similarity, as shorter strings don't consist of trigrams.
+		 */
+		static final int MIN_SIMILARITY_QUERY_LENGTH = 3;
+
+		/**
+		 * Finds authorities whose name or email contains the given query, ignoring case.
+		 * <p>
+		 * Results are ranked by relevance: Exact name matches come first, followed by names starting with the query and
+		 * finally by names most similar to the query.
+		 * <p>
+		 * Only a bounded number of candidates is ranked, each fetched by an index scan stopping after <code>limit</code>
+		 * rows: Names and emails starting with the query (btree indexes using <code>text_pattern_ops</code>) and names and
+		 * emails containing the query. Queries of at least {@value MIN_SIMILARITY_QUERY_LENGTH} characters fetch the
+		 * latter in order of similarity from the trigram indexes. Trigrams can't rank shorter queries, which match almost
+		 * anything anyway, so for these any matching rows fill up the candidates.
+		 *
+		 * @param query the string to search for
+		 * @param limit maximum number of results
+		 * @return the best matching authorities, ordered by rank
+		 */
+		public Stream<Authority> search(String query, int limit) {
+			var lowerQuery = query.toLowerCase(Locale.ROOT);
+			var rankBySimilarity = lowerQuery.length() >= MIN_SIMILARITY_QUERY_LENGTH;
+			List<String> ids = getEntityManager().createNativeQuery("""
+							SELECT "id"
+							FROM (
+								(SELECT "id", LOWER("name") AS "name" FROM "authority"
+									WHERE LOWER("name") LIKE :prefix ESCAPE '\\'
+									ORDER BY LOWER("name") USING ~<~ LIMIT :limit)
+								UNION
+								(SELECT "a"."id", LOWER("a"."name") FROM "authority" "a"
+									INNER JOIN "user_details" "u" ON "u"."id" = "a"."id"
+									WHERE LOWER("u"."email") LIKE :prefix ESCAPE '\\'
+									ORDER BY LOWER("u"."email") USING ~<~ LIMIT :limit)
+								UNION
+								(SELECT "id", LOWER("name") FROM "authority"
+									WHERE LOWER("name") LIKE :pattern ESCAPE '\\'
+									%s LIMIT :limit)
+								UNION
+								(SELECT "a"."id", LOWER("a"."name") FROM "authority" "a"
+									INNER JOIN "user_details" "u" ON "u"."id" = "a"."id"
+									WHERE LOWER("u"."email") LIKE :pattern ESCAPE '\\'
+									%s LIMIT :limit)
+							) "candidates"
+							ORDER BY "name" = :query DESC, "name" LIKE :prefix ESCAPE '\\' DESC, similarity("name", :query) DESC, "name", "id"
+							LIMIT :limit
+							""".formatted(
+							rankBySimilarity ? "ORDER BY LOWER(\"name\") <-> :query" : "",
+							rankBySimilarity ? "ORDER BY LOWER(\"u\".\"email\") <-> :query" : ""), String.class) //
+					.setParameter("pattern", LikePatterns.containsPattern(query)) //
+					.setParameter("prefix", LikePatterns.prefixPattern(query)) //
+					.setParameter("query", lowerQuery) //
+					.setParameter("limit", limit) //
+					.getResultList();
+			if (ids.isEmpty()) {
+				return Stream.empty();
+			}
+			return findAllInList(ids).sorted(Comparator.comparingInt(a -> ids.indexOf(a.getId())));
 		}
 
 		public Stream<Authority> findAllInList(List<String> ids) {
 			return find("#Authority.allInList", Parameters.with("ids", ids)).stream();
 		}
+
+		/**
+		 * Looks up the version of the authority. A user's version changes whenever its details, its devices or the vaults
+		 * accessible to it change, a group's version whenever its effective members change.
+		 *
+		 * @param id authority id
+		 * @return the current version or an empty optional if the authority doesn't exist
+		 */
+		public Optional<Long> findVersion(String id) {
+			return getEntityManager().createNativeQuery("SELECT \"version\" FROM \"authority\" WHERE \"id\" = :id", Long.class) //
+					.setParameter("id", id) //
+					.getResultStream() //
+					.findFirst();
+		}
+
+		/**
+		 * Forgets all authorities marked as seen by a previous sync.
+		 */
+		public void clearSyncSeen() {
+			getEntityManager().createNativeQuery("TRUNCATE \"authority_sync_seen\"").executeUpdate();
+		}
+
+		/**
+		 * Marks the given authorities as seen by the current sync. Pending changes are flushed first, so authorities added
+		 * within the current transaction are marked as well.
+		 *
+		 * @param ids ids of the authorities
+		 */
+		public void markSyncSeen(List<String> ids) {
+			flush();
+			getEntityManager().createNativeQuery("""
+							INSERT INTO "authority_sync_seen" ("id")
+							SELECT "id" FROM "authority" WHERE "id" IN (:ids)
+							ON CONFLICT DO NOTHING
+							""") //
+					.setParameter("ids", ids) //
+					.executeUpdate();
+		}
+
+		/**
+		 * Finds the ids of authorities of the given type that haven't been {@link #markSyncSeen(List) marked as seen}, ordered by id.
+		 *
+		 * @param type type of authorities
+		 * @param afterId only ids greater than this one are returned
+		 * @param limit maximum number of ids
+		 * @return ids of unseen authorities following <code>afterId</code>
+		 */
+		public List<String> findSyncUnseenIds(Class<? extends Authority> type, String afterId, int limit) {
+			var discriminator = type.getAnnotation(DiscriminatorValue.class).value();
+			return getEntityManager().createNativeQuery("""
+							SELECT "a"."id"
+							FROM "authority" "a"
+							WHERE "a"."type" = :type AND "a"."id" > :afterId
+							AND NOT EXISTS (SELECT 1 FROM "authority_sync_seen" "s" WHERE "s"."id" = "a"."id")
+							ORDER BY "a"."id"
+							LIMIT :limit
+							""", String.class) //
+					.setParameter("type", discriminator) //
+					.setParameter("afterId", afterId) //
+					.setParameter("limit", limit) //
+					.getResultList();
+		}
+
+		/**
+		 * Deletes the given authorities in a single statement. Their details, memberships and vault access are removed by
+		 * cascading foreign keys.
+		 *
+		 * @param ids ids of the authorities
+		 * @return number of deleted authorities
+		 */
+		public int deleteAllInList(List<String> ids) {
+			return getEntityManager().createNativeQuery("DELETE FROM \"authority\" WHERE \"id\" IN (:ids)") //
+					.setParameter("ids", ids) //
+					.executeUpdate();
+		}
 	}
 }
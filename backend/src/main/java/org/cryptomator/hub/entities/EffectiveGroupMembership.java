@@ -7,12 +7,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
 import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
 
 import java.io.Serializable;
 import java.util.Objects;
 
+/**
+ * Closure of all (transitive) group memberships, maintained by database triggers whenever {@code group_membership} changes.
+ */
 @Entity
 @Immutable
+@Synchronize({"group_membership"})
 @Table(name = "effective_group_membership")
 public class EffectiveGroupMembership {
 
@@ -3,6 +3,7 @@ package org.cryptomator.hub.entities;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import io.quarkus.panache.common.Parameters;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.EmbeddedId;
@@ -12,6 +13,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
 import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
 
 import java.io.Serializable;
 import java.util.Collection;
@@ -20,8 +22,13 @@ import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+/**
+ * Direct and inherited (via group membership) vault access, maintained by database triggers whenever
+ * {@code vault_access} or {@code group_membership} changes.
+ */
 @Entity
 @Immutable
+@Synchronize({"vault_access", "group_membership"})
 @Table(name = "effective_vault_access")
 @NamedQuery(name = "EffectiveVaultAccess.countSeatsOccupiedBySingleUser", query = """
 		SELECT count(u)
@@ -29,34 +36,6 @@ import java.util.stream.Collectors;
 		INNER JOIN EffectiveVaultAccess eva ON u.id = eva.id.authorityId
 		WHERE eva.id.authorityId = :userId
 		""")
-@NamedQuery(name = "EffectiveVaultAccess.countSeatsOccupiedByUsers", query = """
-		SELECT COUNT(DISTINCT u.id)
-		FROM User u
-		INNER JOIN EffectiveVaultAccess eva ON u.id = eva.id.authorityId
-		INNER JOIN Vault v ON eva.id.vaultId = v.id AND NOT v.archived
-		WHERE u.id IN :userIds
-		""")
-@NamedQuery(name = "EffectiveVaultAccess.countSeatOccupyingUsers", query = """
-		SELECT count(DISTINCT u)
-		FROM User u
-		INNER JOIN EffectiveVaultAccess eva ON u.id = eva.id.authorityId
-		INNER JOIN Vault v ON eva.id.vaultId = v.id AND NOT v.archived
-		""")
-@NamedQuery(name = "EffectiveVaultAccess.countSeatOccupyingUsersWithAccessToken", query = """
-		SELECT count(DISTINCT u)
-		FROM User u
-		INNER JOIN EffectiveVaultAccess eva ON u.id = eva.id.authorityId
-		INNER JOIN Vault v ON eva.id.vaultId = v.id AND NOT v.archived
-		INNER JOIN AccessToken at ON eva.id.vaultId = at.id.vaultId AND eva.id.authorityId = at.id.userId
-		""")
-@NamedQuery(name = "EffectiveVaultAccess.countSeatOccupyingUsersOfGroup", query = """
-		SELECT count(DISTINCT u)
-		FROM User u
-		INNER JOIN EffectiveVaultAccess eva ON u.id = eva.id.authorityId
-		INNER JOIN EffectiveGroupMembership egm ON u.id = egm.id.memberId
-		INNER JOIN Vault v ON eva.id.vaultId = v.id AND NOT v.archived
-		WHERE egm.id.groupId = :groupId
-		""")
 @NamedQuery(name = "EffectiveVaultAccess.findByAuthorityAndVault", query = """
 		SELECT eva
 		FROM EffectiveVaultAccess eva
@@ -148,24 +127,95 @@ public class EffectiveVaultAccess {
 	@ApplicationScoped
 	public static class Repository implements PanacheRepositoryBase<EffectiveVaultAccess, Id> {
 
+		@Inject
+		SeatLedger.Repository seatLedgerRepo;
+
+		/**
+		 * Checks whether the given user already occupies a seat when being granted access to a vault. Unlike the
+		 * {@link SeatLedger}, which is used for the seat totals, this includes access to archived vaults.
+		 *
+		 * @param userId the user
+		 * @return <code>true</code> if the user has effective access to at least one vault
+		 */
 		public boolean isUserOccupyingSeat(String userId) {
 			return count("#EffectiveVaultAccess.countSeatsOccupiedBySingleUser", Parameters.with("userId", userId)) > 0;
 		}
 
 		public long countSeatsOccupiedByUsers(List<String> userIds) {
-			return count("#EffectiveVaultAccess.countSeatsOccupiedByUsers", Parameters.with("userIds", userIds));
+			return seatLedgerRepo.countOccupiedByUsers(userIds);
+		}
+
+		public long countUsersWithoutSeat(List<String> userIds, List<String> groupIds) {
+			return seatLedgerRepo.countUnoccupiedByUsersOrGroupMembers(userIds, groupIds);
 		}
 
 		public long countSeatOccupyingUsers() {
-			return count("#EffectiveVaultAccess.countSeatOccupyingUsers");
+			return seatLedgerRepo.countOccupied();
 		}
 
 		public long countSeatOccupyingUsersWithAccessToken() {
-			return count("#EffectiveVaultAccess.countSeatOccupyingUsersWithAccessToken");
+			return seatLedgerRepo.countOccupiedWithAccessToken();
 		}
 
 		public long countSeatOccupyingUsersOfGroup(String groupId) {
-			return count("#EffectiveVaultAccess.countSeatOccupyingUsersOfGroup", Parameters.with("groupId", groupId));
+			return seatLedgerRepo.countOccupiedByGroupMembers(groupId);
+		}
+
+		/**
+		 * Counts the seat occupying users by evaluating the recursive definition of the effective vault access over
+		 * {@code vault_access} and {@code group_membership}, bypassing the {@link SeatLedger} as well as the materialized
+		 * {@code effective_group_membership} and {@code effective_vault_access} tables. Expensive, only used to verify them.
+		 *
+		 * @return number of users occupying a seat
+		 */
+		public long recountSeatOccupyingUsers() {
+			return recount("COUNT(DISTINCT \"u\".\"id\")");
+		}
+
+		/**
+		 * Counts the seat occupying users with access token like {@link #recountSeatOccupyingUsers()}.
+		 *
+		 * @return number of users occupying a seat and having been granted access to a vault
+		 */
+		public long recountSeatOccupyingUsersWithAccessToken() {
+			return recount("COUNT(DISTINCT \"at\".\"user_id\")");
+		}
+
+		private long recount(String countExpression) {
+			var result = getEntityManager().createNativeQuery("""
+							WITH RECURSIVE "members" ("group_id", "member_id", "depth") AS (
+								SELECT "group_id", "member_id", 0 FROM "group_membership"
+								UNION
+								SELECT "parent"."group_id", "child"."member_id", "parent"."depth" + 1
+									FROM "group_membership" "child"
+									INNER JOIN "members" "parent" ON "child"."group_id" = "parent"."member_id"
+									WHERE "parent"."depth" < 10
+							), "access" ("vault_id", "authority_id") AS (
+								SELECT "vault_id", "authority_id" FROM "vault_access"
+								UNION
+								SELECT "va"."vault_id", "m"."member_id" FROM "vault_access" "va"
+									INNER JOIN "members" "m" ON "m"."group_id" = "va"."authority_id"
+							)
+							SELECT %s
+							FROM "user_details" "u"
+							INNER JOIN "access" "a" ON "a"."authority_id" = "u"."id"
+							INNER JOIN "vault" "v" ON "v"."id" = "a"."vault_id" AND NOT "v"."archived"
+							LEFT JOIN "access_token" "at" ON "at"."vault_id" = "a"."vault_id" AND "at"."user_id" = "u"."id"
+							""".formatted(countExpression)) //
+					.getSingleResult();
+			return ((Number) result).longValue();
+		}
+
+		/**
+		 * Checks whether the given authority has any role on the given vault, using a single index lookup instead of loading
+		 * the vault's effective members.
+		 *
+		 * @param vaultId the vault
+		 * @param authorityId the authority
+		 * @return <code>true</code> if the authority has direct or inherited access to the vault
+		 */
+		public boolean isMember(UUID vaultId, String authorityId) {
+			return find("#EffectiveVaultAccess.findByAuthorityAndVault", Parameters.with("vaultId", vaultId).and("authorityId", authorityId)).firstResultOptional().isPresent();
 		}
 
 		public Collection<VaultAccess.Role> listRoles(UUID vaultId, String authorityId) {
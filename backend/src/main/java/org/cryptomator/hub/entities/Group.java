@@ -1,20 +1,35 @@
 package org.cryptomator.hub.entities;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.annotation.Nullable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Entity
 @Table(name = "group_details")
 @DiscriminatorValue("GROUP")
+@NamedQuery(name = "Group.page", query = """
+				SELECT g.id, g.name
+				FROM Group g
+				WHERE g.id > :afterId AND LOWER(g.name) LIKE :namePattern ESCAPE '\\'
+				ORDER BY g.id
+		""")
+@NamedQuery(name = "Group.syncHashes", query = """
+				SELECT g.id, g.syncHash
+				FROM Group g
+		""")
 public class Group extends Authority {
 
 	@ManyToMany
@@ -32,7 +47,39 @@ public class Group extends Authority {
 		this.members = members;
 	}
 
+	/**
+	 * Attributes of a group, as returned by paginated queries.
+	 */
+	public record Summary(String id, String name) {
+	}
+
 	@ApplicationScoped
 	public static class Repository implements PanacheRepositoryBase<Group, String> {
+
+		/**
+		 * Lists groups ordered by id, without loading them into the persistence context.
+		 *
+		 * @param afterId only groups with a greater id are returned
+		 * @param namePrefix optional case-insensitive prefix of the group name
+		 * @param limit maximum number of groups
+		 * @return page of groups
+		 */
+		public Stream<Summary> findPage(String afterId, @Nullable String namePrefix, int limit) {
+			return getEntityManager().createNamedQuery("Group.page", Object[].class) //
+					.setParameter("afterId", afterId) //
+					.setParameter("namePattern", LikePatterns.prefixPattern(namePrefix)) //
+					.setMaxResults(limit) //
+					.getResultStream() //
+					.map(row -> new Summary((String) row[0], (String) row[1]));
+		}
+
+		/**
+		 * @return sync hashes of all groups by group id. Hashes are <code>null</code> for groups not synchronized yet.
+		 */
+		public Map<String, String> findSyncHashes() {
+			var result = new HashMap<String, String>();
+			getEntityManager().createNamedQuery("Group.syncHashes", Object[].class).getResultStream().forEach(row -> result.put((String) row[0], (String) row[1]));
+			return result;
+		}
 	}
 }
@@ -0,0 +1,79 @@
+package org.cryptomator.hub.entities;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Lease of a scheduled job, granting a single Hub instance the right to run it.
+ */
+@Entity
+@Immutable
+@Table(name = "job_lease")
+public class JobLease {
+
+	@Id
+	@Column(name = "job", nullable = false)
+	private String job;
+
+	@Column(name = "holder", nullable = false)
+	private String holder;
+
+	@Column(name = "acquired_at", nullable = false)
+	private Instant acquiredAt;
+
+	@Column(name = "expires_at", nullable = false)
+	private Instant expiresAt;
+
+	public String getJob() {
+		return job;
+	}
+
+	public String getHolder() {
+		return holder;
+	}
+
+	public Instant getAcquiredAt() {
+		return acquiredAt;
+	}
+
+	public Instant getExpiresAt() {
+		return expiresAt;
+	}
+
+	@ApplicationScoped
+	public static class Repository implements PanacheRepositoryBase<JobLease, String> {
+
+		/**
+		 * Acquires or renews the lease of the given job, unless it is held by another instance and not expired yet.
+		 * Expiry is determined by the database clock, so clocks of the Hub instances don't need to be in sync.
+		 *
+		 * @param job the job
+		 * @param holder the instance trying to acquire the lease
+		 * @param duration how long the lease is valid if acquired
+		 * @return <code>true</code> if the given holder now holds the lease
+		 */
+		public boolean tryAcquire(String job, String holder, Duration duration) {
+			return getEntityManager().createNativeQuery("""
+							INSERT INTO "job_lease" ("job", "holder", "acquired_at", "expires_at")
+							VALUES (:job, :holder, now(), now() + :seconds * INTERVAL '1 second')
+							ON CONFLICT ("job") DO UPDATE SET
+								"holder" = EXCLUDED."holder",
+								"acquired_at" = CASE WHEN "job_lease"."holder" = EXCLUDED."holder" THEN "job_lease"."acquired_at" ELSE EXCLUDED."acquired_at" END,
+								"expires_at" = EXCLUDED."expires_at"
+							WHERE "job_lease"."holder" = EXCLUDED."holder" OR "job_lease"."expires_at" < now()
+							""") //
+					.setParameter("job", job) //
+					.setParameter("holder", holder) //
+					.setParameter("seconds", duration.toMillis() / 1000.0) //
+					.executeUpdate() == 1;
+		}
+	}
+}
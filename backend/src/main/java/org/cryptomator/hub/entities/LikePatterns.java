@@ -0,0 +1,42 @@
+package org.cryptomator.hub.entities;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Case-insensitive <code>LIKE</code> patterns for name filters of paginated queries and for authority searches. Wildcards
+ * contained in user input are escaped, so they match literally when used with <code>ESCAPE '\'</code>.
+ */
+final class LikePatterns {
+
+	private LikePatterns() {
+	}
+
+	/**
+	 * Creates a pattern for <code>LOWER(name) LIKE :pattern ESCAPE '\'</code> matching names starting with the given prefix, ignoring case.
+	 *
+	 * @param prefix the prefix or <code>null</code> to match any name
+	 * @return the LIKE pattern
+	 */
+	static String prefixPattern(@Nullable String prefix) {
+		if (prefix == null) {
+			return "%";
+		}
+		return escape(prefix) + '%';
+	}
+
+	/**
+	 * Creates a pattern for <code>LOWER(name) LIKE :pattern ESCAPE '\'</code> matching names containing the given string, ignoring case.
+	 *
+	 * @param infix the string to search for
+	 * @return the LIKE pattern
+	 */
+	static String containsPattern(String infix) {
+		return '%' + escape(infix) + '%';
+	}
+
+	private static String escape(String value) {
+		return value.toLowerCase(Locale.ROOT).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
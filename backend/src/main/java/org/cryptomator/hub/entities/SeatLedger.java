@@ -0,0 +1,132 @@
+package org.cryptomator.hub.entities;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import io.quarkus.panache.common.Parameters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+
+import java.util.List;
+
+/**
+ * A user occupying a license seat. Rows are maintained by database triggers whenever the effective vault access changes,
+ * therefore this entity is read-only. {@link Synchronize} makes sure pending changes to the source tables are flushed
+ * before querying the ledger.
+ */
+@Entity
+@Immutable
+@Synchronize({"vault", "vault_access", "group_membership", "access_token", "user_details"})
+@Table(name = "seat_ledger")
+@NamedQuery(name = "SeatLedger.countOccupiedByUsers", query = """
+		SELECT count(sl)
+		FROM SeatLedger sl
+		WHERE sl.userId IN :userIds
+		""")
+@NamedQuery(name = "SeatLedger.countOccupiedByGroupMembers", query = """
+		SELECT count(DISTINCT sl.userId)
+		FROM SeatLedger sl
+		INNER JOIN EffectiveGroupMembership egm ON sl.userId = egm.id.memberId
+		WHERE egm.id.groupId = :groupId
+		""")
+@NamedQuery(name = "SeatLedger.countUnoccupiedByUsersOrGroupMembers", query = """
+		SELECT count(u)
+		FROM User u
+		WHERE (u.id IN :userIds OR u.id IN (SELECT egm.id.memberId FROM EffectiveGroupMembership egm WHERE egm.id.groupId IN :groupIds))
+			AND NOT EXISTS (SELECT sl FROM SeatLedger sl WHERE sl.userId = u.id)
+		""")
+@NamedQuery(name = "SeatLedger.countAll", query = """
+		SELECT count(sl)
+		FROM SeatLedger sl
+		""")
+@NamedQuery(name = "SeatLedger.countAllWithAccessToken", query = """
+		SELECT count(sl)
+		FROM SeatLedger sl
+		WHERE sl.withAccessToken
+		""")
+@NamedQuery(name = "SeatLedger.summaryOccupiedSeats", query = """
+		SELECT sum(s.occupiedSeats)
+		FROM SeatLedgerSummary s
+		""")
+@NamedQuery(name = "SeatLedger.summaryOccupiedSeatsWithAccessToken", query = """
+		SELECT sum(s.occupiedSeatsWithAccessToken)
+		FROM SeatLedgerSummary s
+		""")
+public class SeatLedger {
+
+	@Id
+	@Column(name = "user_id", nullable = false)
+	private String userId;
+
+	@Column(name = "with_access_token", nullable = false)
+	private boolean withAccessToken;
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public boolean isWithAccessToken() {
+		return withAccessToken;
+	}
+
+	@ApplicationScoped
+	public static class Repository implements PanacheRepositoryBase<SeatLedger, String> {
+
+		public long countOccupiedByUsers(List<String> userIds) {
+			return count("#SeatLedger.countOccupiedByUsers", Parameters.with("userIds", userIds));
+		}
+
+		public long countOccupiedByGroupMembers(String groupId) {
+			return count("#SeatLedger.countOccupiedByGroupMembers", Parameters.with("groupId", groupId));
+		}
+
+		/**
+		 * Counts the distinct users among the given users and the effective members of the given groups that don't occupy a seat yet.
+		 *
+		 * @param userIds ids of users
+		 * @param groupIds ids of groups
+		 * @return number of additional seats required if all these users were to occupy a seat
+		 */
+		public long countUnoccupiedByUsersOrGroupMembers(List<String> userIds, List<String> groupIds) {
+			return count("#SeatLedger.countUnoccupiedByUsersOrGroupMembers", Parameters.with("userIds", userIds).and("groupIds", groupIds));
+		}
+
+		/**
+		 * Reads the number of occupied seats from the {@link SeatLedgerSummary summary}.
+		 *
+		 * @return number of users occupying a seat
+		 */
+		public long countOccupied() {
+			return count("#SeatLedger.summaryOccupiedSeats");
+		}
+
+		/**
+		 * Reads the number of occupied seats held by users with at least one access token from the {@link SeatLedgerSummary summary}.
+		 *
+		 * @return number of users occupying a seat and having been granted access to a vault
+		 */
+		public long countOccupiedWithAccessToken() {
+			return count("#SeatLedger.summaryOccupiedSeatsWithAccessToken");
+		}
+
+		public long countEntries() {
+			return count("#SeatLedger.countAll");
+		}
+
+		public long countEntriesWithAccessToken() {
+			return count("#SeatLedger.countAllWithAccessToken");
+		}
+
+		/**
+		 * Repairs the materialized effective group membership and effective vault access based on {@code group_membership}
+		 * and {@code vault_access}, then recomputes all ledger entries and the {@link SeatLedgerSummary summary}.
+		 */
+		public void rebuild() {
+			getEntityManager().createNativeQuery("SELECT CAST(\"effective_access_rebuild\"() AS VARCHAR)").getSingleResult();
+		}
+	}
+}
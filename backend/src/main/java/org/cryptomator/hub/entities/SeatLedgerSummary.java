@@ -0,0 +1,41 @@
+package org.cryptomator.hub.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+
+/**
+ * Totals of the {@link SeatLedger}, kept up to date by a trigger on the ledger table. Split into 16 shards (ids 0-15) by
+ * the hash of the user id, so concurrent changes of different users rarely update the same row. Totals are the sum of all shards.
+ */
+@Entity
+@Immutable
+@Synchronize({"vault", "vault_access", "group_membership", "access_token", "user_details"})
+@Table(name = "seat_ledger_summary")
+public class SeatLedgerSummary {
+
+	@Id
+	@Column(name = "id", nullable = false)
+	private int id;
+
+	@Column(name = "occupied_seats", nullable = false)
+	private long occupiedSeats;
+
+	@Column(name = "occupied_seats_with_access_token", nullable = false)
+	private long occupiedSeatsWithAccessToken;
+
+	public int getId() {
+		return id;
+	}
+
+	public long getOccupiedSeats() {
+		return occupiedSeats;
+	}
+
+	public long getOccupiedSeatsWithAccessToken() {
+		return occupiedSeatsWithAccessToken;
+	}
+}
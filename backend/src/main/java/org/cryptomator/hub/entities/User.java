@@ -2,6 +2,7 @@ package org.cryptomator.hub.entities;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import io.quarkus.panache.common.Parameters;
+import jakarta.annotation.Nullable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorValue;
@@ -11,7 +12,10 @@ import jakarta.persistence.NamedQuery;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -41,6 +45,21 @@ import java.util.stream.Stream;
 				INNER JOIN EffectiveGroupMembership egm	ON u.id = egm.id.memberId
 				WHERE egm.id.groupId = :groupId
 		""")
+@NamedQuery(name = "User.allInList", query = """
+				SELECT u
+				FROM User u
+				WHERE u.id IN :ids
+		""")
+@NamedQuery(name = "User.page", query = """
+				SELECT u.id, u.name, u.pictureUrl, u.email, u.ecdhPublicKey, u.ecdsaPublicKey
+				FROM User u
+				WHERE u.id > :afterId AND LOWER(u.name) LIKE :namePattern ESCAPE '\\'
+				ORDER BY u.id
+		""")
+@NamedQuery(name = "User.syncHashes", query = """
+				SELECT u.id, u.syncHash
+				FROM User u
+		""")
 public class User extends Authority {
 
 	@Column(name = "picture_url")
@@ -150,6 +169,12 @@ public class User extends Authority {
 		return Objects.hash(super.getId(), pictureUrl, email, ecdhPublicKey, privateKeys, setupCode);
 	}
 
+	/**
+	 * Public attributes of a user, as returned by paginated queries.
+	 */
+	public record Summary(String id, String name, String pictureUrl, String email, String ecdhPublicKey, String ecdsaPublicKey) {
+	}
+
 	@ApplicationScoped
 	public static class Repository implements PanacheRepositoryBase<User, String> {
 
@@ -164,5 +189,35 @@ public class User extends Authority {
 		public Stream<User> getEffectiveGroupUsers(String groupdId) {
 			return find("#User.getEffectiveGroupUsers", Parameters.with("groupId", groupdId)).stream();
 		}
+
+		public Stream<User> findAllInList(List<String> ids) {
+			return find("#User.allInList", Parameters.with("ids", ids)).stream();
+		}
+
+		/**
+		 * Lists the public info of users ordered by id, without loading them into the persistence context.
+		 *
+		 * @param afterId only users with a greater id are returned
+		 * @param namePrefix optional case-insensitive prefix of the user name
+		 * @param limit maximum number of users
+		 * @return page of users
+		 */
+		public Stream<Summary> findPage(String afterId, @Nullable String namePrefix, int limit) {
+			return getEntityManager().createNamedQuery("User.page", Object[].class) //
+					.setParameter("afterId", afterId) //
+					.setParameter("namePattern", LikePatterns.prefixPattern(namePrefix)) //
+					.setMaxResults(limit) //
+					.getResultStream() //
+					.map(row -> new Summary((String) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4], (String) row[5]));
+		}
+
+		/**
+		 * @return sync hashes of all users by user id. Hashes are <code>null</code> for users not synchronized yet.
+		 */
+		public Map<String, String> findSyncHashes() {
+			var result = new HashMap<String, String>();
+			getEntityManager().createNamedQuery("User.syncHashes", Object[].class).getResultStream().forEach(row -> result.put((String) row[0], (String) row[1]));
+			return result;
+		}
 	}
 }
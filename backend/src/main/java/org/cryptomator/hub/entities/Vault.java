@@ -2,6 +2,7 @@ package org.cryptomator.hub.entities;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import io.quarkus.panache.common.Parameters;
+import jakarta.annotation.Nullable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -53,6 +54,13 @@ import java.util.stream.Stream;
 				WHERE v.id IN :ids
 				"""
 )
+@NamedQuery(name = "Vault.page",
+		query = """
+				SELECT v.id, v.name, v.description, v.archived, v.creationTime, v.masterkey, v.iterations, v.salt, v.authenticationPublicKey, v.authenticationPrivateKey
+				FROM Vault v
+				WHERE v.id > :afterId AND LOWER(v.name) LIKE :namePattern ESCAPE '\\'
+				ORDER BY v.id
+				""")
 public class Vault {
 
 	@Id
@@ -264,9 +272,32 @@ public class Vault {
 				'}';
 	}
 
+	/**
+	 * Attributes of a vault, as returned by paginated queries.
+	 */
+	public record Summary(UUID id, String name, String description, boolean archived, Instant creationTime, String masterkey, Integer iterations, String salt, String authenticationPublicKey, String authenticationPrivateKey) {
+	}
+
 	@ApplicationScoped
 	public static class Repository implements PanacheRepositoryBase<Vault, UUID> {
 
+		/**
+		 * Lists vaults ordered by id, without loading them into the persistence context.
+		 *
+		 * @param afterId only vaults with a greater id are returned
+		 * @param namePrefix optional case-insensitive prefix of the vault name
+		 * @param limit maximum number of vaults
+		 * @return page of vaults
+		 */
+		public Stream<Summary> findPage(UUID afterId, @Nullable String namePrefix, int limit) {
+			return getEntityManager().createNamedQuery("Vault.page", Object[].class) //
+					.setParameter("afterId", afterId) //
+					.setParameter("namePattern", LikePatterns.prefixPattern(namePrefix)) //
+					.setMaxResults(limit) //
+					.getResultStream() //
+					.map(row -> new Summary((UUID) row[0], (String) row[1], (String) row[2], (Boolean) row[3], (Instant) row[4], (String) row[5], (Integer) row[6], (String) row[7], (String) row[8], (String) row[9]));
+		}
+
 		public Stream<Vault> findAccessibleByUser(String userId) {
 			return find("#Vault.accessibleByUser", Parameters.with("userId", userId)).stream();
 		}
@@ -278,5 +309,18 @@ public class Vault {
 		public Stream<Vault> findAllInList(List<UUID> ids) {
 			return find("#Vault.allInList", Parameters.with("ids", ids)).stream();
 		}
+
+		/**
+		 * Looks up the version of the vault, which changes whenever the vault or its direct members change.
+		 *
+		 * @param id vault id
+		 * @return the current version or an empty optional if the vault doesn't exist
+		 */
+		public Optional<Long> findVersion(UUID id) {
+			return getEntityManager().createNativeQuery("SELECT \"version\" FROM \"vault\" WHERE \"id\" = :id", Long.class) //
+					.setParameter("id", id) //
+					.getResultStream() //
+					.findFirst();
+		}
 	}
 }
@@ -16,6 +16,7 @@ import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Stream;
@@ -30,6 +31,12 @@ import java.util.stream.Stream;
 				INNER JOIN FETCH va.authority
 				WHERE va.id.vaultId = :vaultId
 				""")
+@NamedQuery(name = "VaultAccess.byVaultAndAuthorities",
+		query = """
+				SELECT va
+				FROM VaultAccess va
+				WHERE va.id.vaultId = :vaultId AND va.id.authorityId IN :authorityIds
+				""")
 public class VaultAccess {
 
 	@EmbeddedId
@@ -155,5 +162,9 @@ public class VaultAccess {
 		public Stream<VaultAccess> forVault(UUID vaultId) {
 			return find("#VaultAccess.forVault", Parameters.with("vaultId", vaultId)).stream();
 		}
+
+		public Stream<VaultAccess> findByVaultAndAuthorities(UUID vaultId, List<String> authorityIds) {
+			return find("#VaultAccess.byVaultAndAuthorities", Parameters.with("vaultId", vaultId).and("authorityIds", authorityIds)).stream();
+		}
 	}
 }
@@ -15,14 +15,17 @@ import jakarta.persistence.InheritanceType;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import org.hibernate.jpa.HibernateHints;
 
 import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
 
 @Entity
 @Table(name = "audit_event")
-@Inheritance(strategy = InheritanceType.JOINED)
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type")
 @NamedQuery(name = "AuditEvent.listAllInPeriodBeforeId",
 		query = """
@@ -106,6 +109,10 @@ public class AuditEvent {
 	@ApplicationScoped
 	public static class Repository implements PanacheRepository<AuditEvent> {
 
+		/**
+		 * Finds a page of events within the given period. As the table is partitioned by month, only the partitions
+		 * overlapping with <code>[startDate, endDate)</code> are scanned.
+		 */
 		public Stream<AuditEvent> findAllInPeriod(Instant startDate, Instant endDate, long paginationId, boolean ascending, int pageSize) {
 			var parameters = Parameters.with("startDate", startDate).and("endDate", endDate).and("paginationId", paginationId);
 
@@ -118,5 +125,44 @@ public class AuditEvent {
 			query.page(0, pageSize);
 			return query.stream();
 		}
+
+		/**
+		 * Streams all events within the given period with an id greater than <code>paginationId</code> in ascending order.
+		 * Rows are fetched from a server-side cursor in chunks of <code>fetchSize</code>, hence this requires an active
+		 * transaction. Loaded events are read-only and should be {@link jakarta.persistence.EntityManager#clear() cleared}
+		 * from the session regularly by the consumer.
+		 */
+		public Stream<AuditEvent> streamAllInPeriod(Instant startDate, Instant endDate, long paginationId, int fetchSize) {
+			var parameters = Parameters.with("startDate", startDate).and("endDate", endDate).and("paginationId", paginationId);
+			return find("#AuditEvent.listAllInPeriodAfterId", parameters) //
+					.withHint(HibernateHints.HINT_FETCH_SIZE, fetchSize) //
+					.withHint(HibernateHints.HINT_READ_ONLY, true) //
+					.stream();
+		}
+
+		/**
+		 * Creates the partition holding the events of the given month, unless it already exists.
+		 *
+		 * @param month The month (UTC)
+		 * @return <code>true</code> if the partition has been created
+		 */
+		public boolean createPartition(YearMonth month) {
+			return (Boolean) getEntityManager().createNativeQuery("SELECT \"audit_event_create_partition\"(:month)") //
+					.setParameter("month", month.atDay(1).atStartOfDay()) //
+					.getSingleResult();
+		}
+
+		/**
+		 * Detaches the partitions of all months before the given month. The detached tables are kept in the database.
+		 *
+		 * @param month The first month (UTC) to retain
+		 * @return Names of the detached tables
+		 */
+		@SuppressWarnings("unchecked")
+		public List<String> detachPartitionsBefore(YearMonth month) {
+			return getEntityManager().createNativeQuery("SELECT \"audit_event_detach_partitions\"(:month)") //
+					.setParameter("month", month.atDay(1).atStartOfDay()) //
+					.getResultList();
+		}
 	}
 }
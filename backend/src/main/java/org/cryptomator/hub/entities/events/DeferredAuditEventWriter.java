@@ -0,0 +1,74 @@
+package org.cryptomator.hub.entities.events;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the audit events of the current transaction and writes them all at once right before the transaction completes.
+ * Consecutive events of the same type end up in the same JDBC batch (see {@code quarkus.hibernate-orm.jdbc.statement-batch-size}),
+ * so e.g. granting access to many users results in a few batched inserts per table rather than two statements per event.
+ * <p>
+ * Events are written within the same transaction as the change they document: If the transaction commits, so do its
+ * events, if it rolls back, the events are discarded. To bound memory usage, the buffer gets flushed early whenever
+ * it reaches {@code hub.audit-log.deferred-write.flush-size} events.
+ */
+@ApplicationScoped
+public class DeferredAuditEventWriter {
+
+	@Inject
+	@ConfigProperty(name = "hub.audit-log.deferred-write.flush-size", defaultValue = "500")
+	int flushSize;
+
+	@Inject
+	TransactionSynchronizationRegistry txRegistry;
+
+	@Inject
+	AuditEvent.Repository auditEventRepository;
+
+	public void write(AuditEvent event) {
+		if (txRegistry.getTransactionKey() == null) {
+			auditEventRepository.persist(event); // not deferrable, let persist() deal with the missing transaction
+			return;
+		}
+		var buffer = (Buffer) txRegistry.getResource(Buffer.class);
+		if (buffer == null) {
+			buffer = new Buffer();
+			txRegistry.putResource(Buffer.class, buffer);
+			registerBeforeCompletion(buffer);
+		}
+		buffer.events.add(event);
+		if (buffer.events.size() >= flushSize) {
+			buffer.flush();
+		}
+	}
+
+	//visible for testing
+	void registerBeforeCompletion(BeforeTransactionCompletionProcess process) {
+		auditEventRepository.getEntityManager().unwrap(SessionImplementor.class).getActionQueue().registerProcess(process);
+	}
+
+	private class Buffer implements BeforeTransactionCompletionProcess {
+
+		private final List<AuditEvent> events = new ArrayList<>();
+
+		@Override
+		public void doBeforeTransactionCompletion(SessionImplementor session) {
+			if (!events.isEmpty()) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			events.forEach(auditEventRepository::persist);
+			auditEventRepository.flush();
+			events.clear();
+		}
+	}
+}
@@ -5,13 +5,11 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.Table;
 import org.cryptomator.hub.entities.Device;
 
 import java.util.Objects;
 
 @Entity
-@Table(name = "audit_event_device_register")
 @DiscriminatorValue(DeviceRegisteredEvent.TYPE)
 public class DeviceRegisteredEvent extends AuditEvent {
 
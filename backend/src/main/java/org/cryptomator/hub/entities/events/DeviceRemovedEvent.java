@@ -3,12 +3,10 @@ package org.cryptomator.hub.entities.events;
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 
 import java.util.Objects;
 
 @Entity
-@Table(name = "audit_event_device_remove")
 @DiscriminatorValue(DeviceRemovedEvent.TYPE)
 public class DeviceRemovedEvent extends AuditEvent {
 
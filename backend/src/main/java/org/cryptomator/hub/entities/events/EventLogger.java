@@ -4,6 +4,7 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.cryptomator.hub.entities.Device;
 import org.cryptomator.hub.entities.VaultAccess;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -11,8 +12,14 @@ import java.util.UUID;
 @ApplicationScoped
 public class EventLogger {
 
+	@Inject
+	@ConfigProperty(name = "hub.audit-log.deferred-write.enabled", defaultValue = "false")
+	boolean deferredWrite;
+
 	@Inject
 	AuditEvent.Repository auditEventRepository;
+	@Inject
+	DeferredAuditEventWriter deferredAuditEventWriter;
 
 	public void logVaultCreated(String createdBy, UUID vaultId, String vaultName, String vaultDescription) {
 		var event = new VaultCreatedEvent();
@@ -21,7 +28,7 @@ public class EventLogger {
 		event.setVaultId(vaultId);
 		event.setVaultName(vaultName);
 		event.setVaultDescription(vaultDescription);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logVaultUpdated(String updatedBy, UUID vaultId, String vaultName, String vaultDescription, boolean vaultArchived) {
@@ -32,7 +39,7 @@ public class EventLogger {
 		event.setVaultName(vaultName);
 		event.setVaultDescription(vaultDescription);
 		event.setVaultArchived(vaultArchived);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logDeviceRegisted(String registeredBy, String deviceId, String deviceName, Device.Type deviceType) {
@@ -42,7 +49,7 @@ public class EventLogger {
 		event.setDeviceId(deviceId);
 		event.setDeviceName(deviceName);
 		event.setDeviceType(deviceType);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logDeviceRemoved(String removedBy, String deviceId) {
@@ -50,7 +57,7 @@ public class EventLogger {
 		event.setTimestamp(Instant.now());
 		event.setRemovedBy(removedBy);
 		event.setDeviceId(deviceId);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logVaultAccessGranted(String grantedBy, UUID vaultId, String authorityId) {
@@ -59,7 +66,7 @@ public class EventLogger {
 		event.setGrantedBy(grantedBy);
 		event.setVaultId(vaultId);
 		event.setAuthorityId(authorityId);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logVaultKeyRetrieved(String retrievedBy, UUID vaultId, VaultKeyRetrievedEvent.Result result) {
@@ -68,7 +75,7 @@ public class EventLogger {
 		event.setRetrievedBy(retrievedBy);
 		event.setVaultId(vaultId);
 		event.setResult(result);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logVaultMemberAdded(String addedBy, UUID vaultId, String authorityId, VaultAccess.Role role) {
@@ -78,7 +85,7 @@ public class EventLogger {
 		event.setVaultId(vaultId);
 		event.setAuthorityId(authorityId);
 		event.setRole(role);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logVaultMemberRemoved(String removedBy, UUID vaultId, String authorityId) {
@@ -87,7 +94,7 @@ public class EventLogger {
 		event.setRemovedBy(removedBy);
 		event.setVaultId(vaultId);
 		event.setAuthorityId(authorityId);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logVaultMemberUpdated(String updatedBy, UUID vaultId, String authorityId, VaultAccess.Role role) {
@@ -97,7 +104,7 @@ public class EventLogger {
 		event.setVaultId(vaultId);
 		event.setAuthorityId(authorityId);
 		event.setRole(role);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	public void logWotIdSigned(String userId, String signerId, String signerKey, String signature) {
@@ -107,7 +114,7 @@ public class EventLogger {
 		event.setSignerId(signerId);
 		event.setSignerKey(signerKey);
 		event.setSignature(signature);
-		auditEventRepository.persist(event);
+		persist(event);
 	}
 
 	//legacy
@@ -116,6 +123,14 @@ public class EventLogger {
 		event.setTimestamp(Instant.now());
 		event.setClaimedBy(claimedBy);
 		event.setVaultId(vaultId);
-		auditEventRepository.persist(event);
+		persist(event);
+	}
+
+	private void persist(AuditEvent event) {
+		if (deferredWrite) {
+			deferredAuditEventWriter.write(event);
+		} else {
+			auditEventRepository.persist(event);
+		}
 	}
 }
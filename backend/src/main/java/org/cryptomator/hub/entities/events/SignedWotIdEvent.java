@@ -5,13 +5,11 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.Table;
 
 import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name = "audit_event_sign_wot_id")
 @DiscriminatorValue(SignedWotIdEvent.TYPE)
 public class SignedWotIdEvent extends AuditEvent {
 
@@ -3,13 +3,11 @@ package org.cryptomator.hub.entities.events;
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 
 import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name = "audit_event_vault_create")
 @DiscriminatorValue(VaultCreatedEvent.TYPE)
 public class VaultCreatedEvent extends AuditEvent {
 
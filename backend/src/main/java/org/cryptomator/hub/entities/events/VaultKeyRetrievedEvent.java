@@ -5,13 +5,11 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.Table;
 
 import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name = "audit_event_vault_key_retrieve")
 @DiscriminatorValue(VaultKeyRetrievedEvent.TYPE)
 public class VaultKeyRetrievedEvent extends AuditEvent {
 
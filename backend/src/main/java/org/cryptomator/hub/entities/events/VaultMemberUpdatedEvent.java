@@ -5,14 +5,12 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.Table;
 import org.cryptomator.hub.entities.VaultAccess;
 
 import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name = "audit_event_vault_member_update")
 @DiscriminatorValue(VaultMemberUpdatedEvent.TYPE)
 public class VaultMemberUpdatedEvent extends AuditEvent {
 
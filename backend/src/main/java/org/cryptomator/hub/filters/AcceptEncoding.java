@@ -0,0 +1,51 @@
+package org.cryptomator.hub.filters;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Evaluates <code>Accept-Encoding</code> request headers as specified in <a href="https://www.rfc-editor.org/rfc/rfc9110#name-accept-encoding">RFC 9110</a>.
+ */
+final class AcceptEncoding {
+
+	private AcceptEncoding() {
+	}
+
+	/**
+	 * Checks whether a content coding is acceptable.
+	 *
+	 * @param header the <code>Accept-Encoding</code> header value, if any
+	 * @param coding the content coding, e.g. <code>gzip</code>
+	 * @return {@code true} if the coding is listed explicitly or via <code>*</code> with a non-zero quality value
+	 */
+	static boolean accepts(@Nullable String header, String coding) {
+		if (header == null) {
+			return false;
+		}
+		Boolean wildcard = null;
+		for (var element : header.split(",")) {
+			var parts = element.split(";");
+			var name = parts[0].strip().toLowerCase(Locale.ROOT);
+			var acceptable = parts.length < 2 || !isZeroQuality(parts[1]);
+			if (name.equals(coding)) {
+				return acceptable;
+			} else if (name.equals("*")) {
+				wildcard = acceptable;
+			}
+		}
+		return Boolean.TRUE.equals(wildcard);
+	}
+
+	private static boolean isZeroQuality(String param) {
+		var keyValue = param.split("=", 2);
+		if (keyValue.length != 2 || !keyValue[0].strip().equalsIgnoreCase("q")) {
+			return false;
+		}
+		try {
+			return Double.parseDouble(keyValue[1].strip()) == 0.0;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package org.cryptomator.hub.filters;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Nullable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Renders the frontend's <code>index.html</code> once during startup, replacing <code>&lt;base href="/"&gt;</code> with
+ * the configured <code>hub.public-root-path</code>. The result is kept in memory together with a gzip-compressed variant,
+ * each tagged with a strong ETag derived from its content.
+ */
+@ApplicationScoped
+public class FrontendIndex {
+
+	private static final Logger LOG = Logger.getLogger(FrontendIndex.class);
+	private static final String RESOURCE = "META-INF/resources/index.html";
+	private static final String DEFAULT_BASE = "<base href=\"/\"/>";
+
+	@Inject
+	@ConfigProperty(name = "hub.public-root-path", defaultValue = "")
+	String publicRootPath;
+
+	private volatile Document document;
+
+	void onStart(@Observes StartupEvent event) {
+		try (var in = Thread.currentThread().getContextClassLoader().getResourceAsStream(RESOURCE)) {
+			if (in == null) {
+				LOG.warnf("%s not found, frontend will not be served.", RESOURCE);
+				return;
+			}
+			document = render(new String(in.readAllBytes(), StandardCharsets.UTF_8), publicRootPath);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to load " + RESOURCE, e);
+		}
+	}
+
+	/**
+	 * Gets the rendered <code>index.html</code>.
+	 *
+	 * @return the document or an empty optional if the frontend is not bundled with this build
+	 */
+	public Optional<Document> get() {
+		return Optional.ofNullable(document);
+	}
+
+	//visible for testing
+	static Document render(String html, String publicRootPath) {
+		var identity = html.replace(DEFAULT_BASE, "<base href=\"%s\"/>".formatted(publicRootPath)).getBytes(StandardCharsets.UTF_8);
+		var gzipped = gzip(identity);
+		return new Document(new Representation(null, identity), gzipped.length < identity.length ? new Representation("gzip", gzipped) : null);
+	}
+
+	private static byte[] gzip(byte[] data) {
+		var out = new ByteArrayOutputStream(data.length);
+		try (var gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * The rendered document.
+	 *
+	 * @param identity the uncompressed representation
+	 * @param gzip     the gzip-compressed representation, or {@code null} if compression doesn't reduce the size
+	 */
+	public record Document(Representation identity, @Nullable Representation gzip) {
+
+		/**
+		 * Selects the representation to send for the given <code>Accept-Encoding</code> header.
+		 *
+		 * @param acceptEncoding value of the request's <code>Accept-Encoding</code> header, if any
+		 * @return the smallest acceptable representation
+		 */
+		public Representation select(@Nullable String acceptEncoding) {
+			if (gzip != null && AcceptEncoding.accepts(acceptEncoding, "gzip")) {
+				return gzip;
+			} else {
+				return identity;
+			}
+		}
+	}
+
+	/**
+	 * A single representation of the document.
+	 *
+	 * @param contentEncoding value of the <code>Content-Encoding</code> header or {@code null} if not encoded
+	 * @param body            the encoded bytes, not to be modified
+	 * @param etag            strong entity tag, including quotes
+	 */
+	public record Representation(@Nullable String contentEncoding, byte[] body, String etag) {
+
+		Representation(@Nullable String contentEncoding, byte[] body) {
+			this(contentEncoding, body, etag(body));
+		}
+
+		private static String etag(byte[] body) {
+			try {
+				var digest = MessageDigest.getInstance("SHA-256").digest(body);
+				return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + '"';
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("Every implementation of the Java platform is required to support SHA-256.", e);
+			}
+		}
+
+		/**
+		 * Checks whether the client already has this representation.
+		 *
+		 * @param ifNoneMatch value of the request's <code>If-None-Match</code> header, if any
+		 * @return {@code true} if any of the given entity tags matches this representation
+		 */
+		public boolean matches(@Nullable String ifNoneMatch) {
+			if (ifNoneMatch == null) {
+				return false;
+			}
+			for (var tag : ifNoneMatch.split(",")) {
+				var trimmed = tag.strip();
+				if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
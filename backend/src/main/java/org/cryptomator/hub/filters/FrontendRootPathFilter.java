@@ -1,117 +1,49 @@
 package org.cryptomator.hub.filters;
 
 import jakarta.inject.Inject;
-import jakarta.inject.Provider;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletOutputStream;
-import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpServletResponseWrapper;
-import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 
 /**
- * Replaces occurences of <code>&lt;base href="/"&gt;</code> with the corresponding configuration value from <code>hub.public-root-path</code>.
+ * Serves the frontend's <code>index.html</code> with <code>&lt;base href="/"&gt;</code> replaced by the corresponding
+ * configuration value from <code>hub.public-root-path</code>, as pre-rendered by {@link FrontendIndex}.
+ * <p>
+ * Responses are gzip-compressed if accepted by the client and carry an ETag, so revalidation results in
+ * <code>304 Not Modified</code>.
  */
 public class FrontendRootPathFilter extends HttpFilter {
 
 	@Inject
-	@ConfigProperty(name = "hub.public-root-path", defaultValue = "")
-	Provider<String> publicRootPath;
+	FrontendIndex frontendIndex;
 
 	@Override
 	protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws IOException, ServletException {
-		var capturedResponse = new CapturingResponseWrapper(res);
-		chain.doFilter(req, capturedResponse);
-		String content = capturedResponse.getCaptureAsString(); // This uses response character encoding.
-		String replacedContent = content.replace("<base href=\"/\"/>", "<base href=\"%s\"/>".formatted(publicRootPath.get()));
-		res.setContentLength(replacedContent.length());
-		res.getWriter().write(replacedContent);
-		res.getWriter().flush();
-	}
-
-	// Taken from https://stackoverflow.com/a/23381235/4014509
-	private static class CapturingResponseWrapper extends HttpServletResponseWrapper {
-
-		private final ByteArrayOutputStream capture;
-		private ServletOutputStream output;
-		private PrintWriter writer;
-
-		public CapturingResponseWrapper(HttpServletResponse response) {
-			super(response);
-			capture = new ByteArrayOutputStream(response.getBufferSize());
-		}
-
-		@Override
-		public ServletOutputStream getOutputStream() throws IOException {
-			if (output == null) {
-				output = new ServletOutputStream() {
-					@Override
-					public boolean isReady() {
-						return true;
-					}
-
-					@Override
-					public void setWriteListener(WriteListener writeListener) {
-						// no-op
-					}
-
-					@Override
-					public void write(int b) {
-						capture.write(b);
-					}
-
-					@Override
-					public void flush() throws IOException {
-						capture.flush();
-					}
-
-					@Override
-					public void close() throws IOException {
-						capture.close();
-					}
-				};
-			}
-			return output;
+		var document = frontendIndex.get();
+		var isHead = "HEAD".equals(req.getMethod());
+		if (document.isEmpty() || !(isHead || "GET".equals(req.getMethod()))) {
+			chain.doFilter(req, res);
+			return;
 		}
-
-		@Override
-		public PrintWriter getWriter() throws IOException {
-			if (writer == null) {
-				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
-			}
-			return writer;
+		var representation = document.get().select(req.getHeader("Accept-Encoding"));
+		res.setHeader("Vary", "Accept-Encoding");
+		res.setHeader("ETag", representation.etag());
+		if (representation.matches(req.getHeader("If-None-Match"))) {
+			res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
 		}
-
-		@Override
-		public void flushBuffer() throws IOException {
-			if (writer != null) {
-				writer.flush();
-			} else if (output != null) {
-				output.flush();
-			}
+		res.setContentType("text/html;charset=UTF-8");
+		if (representation.contentEncoding() != null) {
+			res.setHeader("Content-Encoding", representation.contentEncoding());
 		}
-
-		public byte[] getCaptureAsBytes() throws IOException {
-			if (writer != null) {
-				writer.close();
-			} else if (output != null) {
-				output.close();
-			}
-
-			return capture.toByteArray();
+		res.setContentLength(representation.body().length);
+		if (!isHead) {
+			res.getOutputStream().write(representation.body());
 		}
-
-		public String getCaptureAsString() throws IOException {
-			return new String(getCaptureAsBytes(), getCharacterEncoding());
-		}
-
 	}
+
 }
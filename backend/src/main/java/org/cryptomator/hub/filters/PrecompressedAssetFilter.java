@@ -0,0 +1,92 @@
+package org.cryptomator.hub.filters;
+
+import jakarta.annotation.Nullable;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves the brotli or gzip compressed siblings of frontend assets (e.g. <code>main.js.br</code> for <code>main.js</code>),
+ * which are created during the frontend build, if accepted by the client. Other requests are passed to the default servlet.
+ * <p>
+ * As assets are immutable, found variants are kept in memory after being read once, so neither compression nor any
+ * decompression of the application archive happens per request.
+ */
+public class PrecompressedAssetFilter extends HttpFilter {
+
+	private static final String RESOURCE_ROOT = "META-INF/resources";
+
+	/**
+	 * Supported content codings and the file extension of their variants, in order of preference.
+	 */
+	private static final List<Map.Entry<String, String>> CODINGS = List.of(Map.entry("br", ".br"), Map.entry("gzip", ".gz"));
+
+	private final Map<String, byte[]> variants = new ConcurrentHashMap<>();
+
+	@Override
+	protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws IOException, ServletException {
+		var path = req.getRequestURI().substring(req.getContextPath().length());
+		var isHead = "HEAD".equals(req.getMethod());
+		if (!(isHead || "GET".equals(req.getMethod())) || !isPlainAssetPath(path)) {
+			chain.doFilter(req, res);
+			return;
+		}
+		res.setHeader("Vary", "Accept-Encoding");
+		var acceptEncoding = req.getHeader("Accept-Encoding");
+		for (var coding : CODINGS) {
+			if (!AcceptEncoding.accepts(acceptEncoding, coding.getKey())) {
+				continue;
+			}
+			var variant = findVariant(path + coding.getValue());
+			if (variant != null) {
+				var mimeType = req.getServletContext().getMimeType(path);
+				res.setContentType(mimeType != null ? mimeType : "application/octet-stream");
+				res.setHeader("Content-Encoding", coding.getKey());
+				res.setContentLength(variant.length);
+				if (!isHead) {
+					res.getOutputStream().write(variant);
+				}
+				return;
+			}
+		}
+		chain.doFilter(req, res);
+	}
+
+	//visible for testing
+	static boolean isPlainAssetPath(String path) {
+		return path.startsWith("/assets/") && !path.contains("..") && !path.contains("//") && !path.contains("\\");
+	}
+
+	@Nullable
+	private byte[] findVariant(String path) {
+		var cached = variants.get(path);
+		if (cached != null) {
+			return cached;
+		}
+		// only found variants are cached, so requests for arbitrary paths can't fill up the cache:
+		var loaded = loadResource(RESOURCE_ROOT + path);
+		if (loaded != null) {
+			variants.putIfAbsent(path, loaded);
+		}
+		return loaded;
+	}
+
+	//visible for testing
+	@Nullable
+	byte[] loadResource(String name) {
+		try (var in = Thread.currentThread().getContextClassLoader().getResourceAsStream(name)) {
+			return in != null ? in.readAllBytes() : null;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to load " + name, e);
+		}
+	}
+
+}
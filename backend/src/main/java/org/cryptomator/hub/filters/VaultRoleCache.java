@@ -0,0 +1,235 @@
+package org.cryptomator.hub.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.cryptomator.hub.cluster.DatabaseNotification;
+import org.cryptomator.hub.cluster.DatabaseNotificationListener;
+import org.cryptomator.hub.entities.EffectiveVaultAccess;
+import org.cryptomator.hub.entities.Vault;
+import org.cryptomator.hub.entities.VaultAccess;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caches the {@link VaultRoles} of a user on a vault as required by {@link VaultRoleFilter}.
+ * <p>
+ * Entries are invalidated when the effective vault access or the vault itself changes, as announced by the database
+ * via {@link DatabaseNotificationListener#VAULT_ACCESS_CHANNEL}. Additionally, entries expire after a configurable time
+ * to limit staleness in case notifications get lost. Changes made by this node are applied locally as soon as their
+ * transaction commits, see {@link #invalidateVaultOnCommit(UUID)}, so they don't depend on the notification round trip.
+ * Missing vaults are never cached, as they may be created any moment.
+ * <p>
+ * Invalidating a single entry waits for a concurrent load of the same key. Invalidating a whole vault can't reach loads
+ * in flight, though, which might store roles read before the change. Therefore, keys carry the generation of the vault's
+ * stripe, which is incremented by vault-wide invalidations, so values loaded for a previous generation are never read
+ * again. Other vaults sharing the stripe lose their entries as well, which is acceptable for these rare invalidations.
+ */
+@ApplicationScoped
+public class VaultRoleCache {
+
+	private static final Logger LOG = Logger.getLogger(VaultRoleCache.class);
+	private static final String CACHE_NAME = "vault-roles";
+
+	@Inject
+	@ConfigProperty(name = "hub.vault-role-cache.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@Inject
+	@ConfigProperty(name = "hub.vault-role-cache.maximum-size", defaultValue = "10000")
+	long maximumSize;
+
+	@Inject
+	@ConfigProperty(name = "hub.vault-role-cache.expire-after-write", defaultValue = "60s")
+	Duration expireAfterWrite;
+
+	@Inject
+	EffectiveVaultAccess.Repository effectiveVaultAccessRepo;
+	@Inject
+	Vault.Repository vaultRepo;
+	@Inject
+	MeterRegistry meterRegistry;
+	@Inject
+	TransactionSynchronizationRegistry txSyncRegistry;
+
+	private static final int GENERATION_STRIPES = 1024;
+	private static final VaultRoles MISSING_VAULT = new VaultRoles(false, Set.of());
+
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+	private Cache<Key, VaultRoles> cache;
+
+	@PostConstruct
+	void init() {
+		cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+	}
+
+	/**
+	 * Gets the vault roles of the given user, hitting the database only if not cached yet.
+	 *
+	 * @param vaultId the vault
+	 * @param userId the user
+	 * @return whether the vault exists and the roles of the user
+	 */
+	public VaultRoles get(UUID vaultId, String userId) {
+		var key = new Key(generation(vaultId), vaultId, userId);
+		var roles = enabled ? cache.get(key, this::load) : load(key);
+		return roles != null ? roles : MISSING_VAULT;
+	}
+
+	/**
+	 * @return the roles or <code>null</code> if the vault doesn't exist, which Caffeine doesn't store
+	 */
+	private VaultRoles load(Key key) {
+		if (vaultRepo.findByIdOptional(key.vaultId()).isPresent()) {
+			return new VaultRoles(true, Set.copyOf(effectiveVaultAccessRepo.listRoles(key.vaultId(), key.userId())));
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Invalidates all cached roles on the given vault once the current transaction commits, or immediately if there is
+	 * no transaction. To be called whenever the access to a vault is changed on this node.
+	 *
+	 * @param vaultId the vault
+	 */
+	public void invalidateVaultOnCommit(UUID vaultId) {
+		var pending = pendingInvalidation();
+		if (pending == null) {
+			invalidateVault(vaultId);
+		} else {
+			pending.vaultIds.add(vaultId);
+		}
+	}
+
+	/**
+	 * Invalidates all cached roles once the current transaction commits, or immediately if there is no transaction.
+	 * To be called whenever group memberships are changed or authorities are deleted on this node.
+	 */
+	public void invalidateAllOnCommit() {
+		var pending = pendingInvalidation();
+		if (pending == null) {
+			invalidateAll();
+		} else {
+			pending.all = true;
+		}
+	}
+
+	private PendingInvalidation pendingInvalidation() {
+		if (txSyncRegistry.getTransactionKey() == null) {
+			return null;
+		}
+		var pending = (PendingInvalidation) txSyncRegistry.getResource(PendingInvalidation.class);
+		if (pending == null) {
+			pending = new PendingInvalidation();
+			txSyncRegistry.putResource(PendingInvalidation.class, pending);
+			txSyncRegistry.registerInterposedSynchronization(pending);
+		}
+		return pending;
+	}
+
+	void onDatabaseNotification(@Observes DatabaseNotification notification) {
+		if (!DatabaseNotificationListener.VAULT_ACCESS_CHANNEL.equals(notification.channel())) {
+			return;
+		}
+		if (notification.isMissed()) {
+			invalidateAll();
+			return;
+		}
+		var payload = notification.payload();
+		var sep = payload.indexOf('/');
+		try {
+			if (sep == -1) {
+				invalidateVault(UUID.fromString(payload));
+			} else {
+				invalidate(UUID.fromString(payload.substring(0, sep)), payload.substring(sep + 1));
+			}
+		} catch (IllegalArgumentException e) {
+			LOG.warnf("Received malformed notification %s. Invalidating all vault roles.", payload);
+			invalidateAll();
+		}
+	}
+
+	//visible for testing
+	void invalidate(UUID vaultId, String authorityId) {
+		cache.invalidate(new Key(generation(vaultId), vaultId, authorityId));
+	}
+
+	//visible for testing
+	void invalidateVault(UUID vaultId) {
+		generations.incrementAndGet(stripe(vaultId));
+		// entries of previous generations are unreachable, just free the memory:
+		cache.asMap().keySet().removeIf(key -> key.vaultId().equals(vaultId));
+	}
+
+	//visible for testing
+	void invalidateAll() {
+		for (int i = 0; i < GENERATION_STRIPES; i++) {
+			generations.incrementAndGet(i);
+		}
+		cache.invalidateAll();
+	}
+
+	private long generation(UUID vaultId) {
+		return generations.get(stripe(vaultId));
+	}
+
+	private static int stripe(UUID vaultId) {
+		return vaultId.hashCode() & (GENERATION_STRIPES - 1);
+	}
+
+	private record Key(long generation, UUID vaultId, String userId) {
+	}
+
+	/**
+	 * Invalidations collected during a transaction, applied after it committed.
+	 */
+	private class PendingInvalidation implements Synchronization {
+
+		private final Set<UUID> vaultIds = new HashSet<>();
+		private boolean all;
+
+		@Override
+		public void beforeCompletion() {
+			// no-op
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			if (status != Status.STATUS_COMMITTED) {
+				return;
+			}
+			if (all) {
+				invalidateAll();
+			} else {
+				vaultIds.forEach(VaultRoleCache.this::invalidateVault);
+			}
+		}
+	}
+
+	/**
+	 * @param vaultExists whether the vault exists at all
+	 * @param roles the effective roles of the user (empty if the vault doesn't exist)
+	 */
+	public record VaultRoles(boolean vaultExists, Set<VaultAccess.Role> roles) {
+	}
+}
@@ -9,8 +9,6 @@ import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ResourceInfo;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.ext.Provider;
-import org.cryptomator.hub.entities.EffectiveVaultAccess;
-import org.cryptomator.hub.entities.Vault;
 import org.cryptomator.hub.entities.VaultAccess;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 
@@ -31,9 +29,7 @@ public class VaultRoleFilter implements ContainerRequestFilter {
 	JsonWebToken jwt;
 
 	@Inject
-	EffectiveVaultAccess.Repository effectiveVaultAccessRepo;
-	@Inject
-	Vault.Repository vaultRepo;
+	VaultRoleCache vaultRoleCache;
 
 	@Context
 	ResourceInfo resourceInfo;
@@ -55,10 +51,10 @@ public class VaultRoleFilter implements ContainerRequestFilter {
 		}
 
 		var forbiddenMsg = "Vault role required: " + Arrays.stream(annotation.value()).map(VaultAccess.Role::name).collect(Collectors.joining(", "));
-		if (vaultRepo.findByIdOptional(vaultId).isPresent()) {
+		var vaultRoles = vaultRoleCache.get(vaultId, userId);
+		if (vaultRoles.vaultExists()) {
 			// check permissions for existing vault:
-			var effectiveRoles = effectiveVaultAccessRepo.listRoles(vaultId, userId);
-			if (Arrays.stream(annotation.value()).noneMatch(effectiveRoles::contains)) {
+			if (Arrays.stream(annotation.value()).noneMatch(vaultRoles.roles()::contains)) {
 				throw new ForbiddenException(forbiddenMsg);
 			}
 		} else {
@@ -3,12 +3,18 @@ package org.cryptomator.hub.license;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.scheduler.Scheduled;
 import io.quarkus.scheduler.ScheduledExecution;
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.cryptomator.hub.cluster.ClusterSingleton;
+import org.cryptomator.hub.cluster.DatabaseNotification;
+import org.cryptomator.hub.cluster.DatabaseNotificationListener;
 import org.cryptomator.hub.entities.Settings;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
@@ -23,6 +29,12 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Optional;
 
+/**
+ * Holds the license of this Hub as immutable {@link LicenseSnapshot}, which is replaced atomically whenever the license changes.
+ * <p>
+ * Changes made by other Hub instances are announced by the database via {@link DatabaseNotificationListener#LICENSE_CHANNEL},
+ * upon which the license is reloaded from the database.
+ */
 @ApplicationScoped
 public class LicenseHolder {
 
@@ -50,7 +62,7 @@ public class LicenseHolder {
 	Settings.Repository settingsRepo;
 
 	private static final Logger LOG = Logger.getLogger(LicenseHolder.class);
-	private DecodedJWT license;
+	private volatile LicenseSnapshot snapshot;
 
 	/**
 	 * Loads the license from the database or from init props, if present
@@ -58,6 +70,7 @@ public class LicenseHolder {
 	@PostConstruct
 	void init() {
 		var settings = settingsRepo.get();
+		publish(null, settings.getHubId());
 		if (settings.getLicenseKey() != null && settings.getHubId() != null) {
 			validateOrResetExistingLicense(settings);
 		} else if (initialLicenseToken.isPresent() && initialId.isPresent()) {
@@ -68,7 +81,7 @@ public class LicenseHolder {
 	@Transactional
 	void validateOrResetExistingLicense(Settings settings) {
 		try {
-			this.license = licenseValidator.validate(settings.getLicenseKey(), settings.getHubId());
+			publish(licenseValidator.validate(settings.getLicenseKey(), settings.getHubId()), settings.getHubId());
 		} catch (JWTVerificationException e) {
 			LOG.warn("License in database is invalid or does not match hubId", e);
 			LOG.warn("Deleting license entry. Please add the license over the REST API again.");
@@ -80,10 +93,11 @@ public class LicenseHolder {
 	@Transactional
 	void validateAndApplyInitLicense(Settings settings, String initialLicenseToken, String initialHubId) {
 		try {
-			this.license = licenseValidator.validate(initialLicenseToken, initialHubId);
+			var license = licenseValidator.validate(initialLicenseToken, initialHubId);
 			settings.setLicenseKey(initialLicenseToken);
 			settings.setHubId(initialHubId);
 			settingsRepo.persistAndFlush(settings);
+			publish(license, initialHubId);
 		} catch (JWTVerificationException e) {
 			LOG.warn("Provided initial license is invalid or does not match inital hubId.", e);
 		}
@@ -98,15 +112,61 @@ public class LicenseHolder {
 	@Transactional
 	public void set(String token) throws JWTVerificationException {
 		var settings = settingsRepo.get();
-		this.license = licenseValidator.validate(token, settings.getHubId());
+		var license = licenseValidator.validate(token, settings.getHubId());
 		settings.setLicenseKey(token);
 		settingsRepo.persistAndFlush(settings);
+		publish(license, settings.getHubId());
+	}
+
+	/**
+	 * Reloads the license from the database whenever it has been changed by any Hub instance.
+	 *
+	 * @param notification a notification on any channel
+	 */
+	void onDatabaseNotification(@Observes DatabaseNotification notification) {
+		if (DatabaseNotificationListener.LICENSE_CHANNEL.equals(notification.channel())) {
+			reloadInNewTransaction();
+		}
+	}
+
+	//visible for testing
+	void reloadInNewTransaction() {
+		QuarkusTransaction.requiringNew().run(this::reload);
+	}
+
+	//visible for testing
+	void reload() {
+		var settings = settingsRepo.get();
+		if (settings.getLicenseKey() == null || settings.getHubId() == null) {
+			publish(null, settings.getHubId());
+			return;
+		}
+		try {
+			publish(licenseValidator.validate(settings.getLicenseKey(), settings.getHubId()), settings.getHubId());
+		} catch (JWTVerificationException e) {
+			LOG.warn("Reloaded license is invalid or does not match hubId. Keeping current license.", e);
+		}
+	}
+
+	private void publish(@Nullable DecodedJWT license, @Nullable String hubId) {
+		this.snapshot = snapshotOf(license, hubId);
+	}
+
+	private LicenseSnapshot snapshotOf(@Nullable DecodedJWT license, @Nullable String hubId) {
+		var seats = Optional.ofNullable(license) //
+				.map(l -> l.getClaim("seats")) //
+				.map(Claim::asLong) //
+				.orElseGet(this::seatsOnNotExisingLicense);
+		var expiresAt = Optional.ofNullable(license) //
+				.map(DecodedJWT::getExpiresAtAsInstant) //
+				.orElse(null);
+		return new LicenseSnapshot(license, hubId, seats, expiresAt, managedInstance);
 	}
 
 	/**
 	 * Attempts to refresh the Hub licence every day between 01:00:00 and 02:00:00 AM UTC if claim refreshURL is present.
 	 */
-	@Scheduled(cron = "0 0 1 * * ?", timeZone = "UTC", concurrentExecution = Scheduled.ConcurrentExecution.SKIP, skipExecutionIf = LicenseHolder.LicenseRefreshSkipper.class)
+	@Scheduled(identity = "license-refresh", cron = "0 0 1 * * ?", timeZone = "UTC", concurrentExecution = Scheduled.ConcurrentExecution.SKIP, skipExecutionIf = LicenseHolder.LicenseRefreshSkipper.class)
 	void refreshLicense() throws InterruptedException {
 		randomMinuteSleeper.sleep(); // add random sleep between [0,59]min to reduce infrastructure load
 		var refreshUrlClaim = get().getClaim("refreshUrl");
@@ -144,8 +204,18 @@ public class LicenseHolder {
 		}
 	}
 
+	/**
+	 * Gets the currently published license state. Cheap enough to be called on every request.
+	 *
+	 * @return the current license snapshot
+	 */
+	public LicenseSnapshot snapshot() {
+		var current = snapshot;
+		return current != null ? current : snapshotOf(null, null);
+	}
+
 	public DecodedJWT get() {
-		return license;
+		return snapshot().token();
 	}
 
 	/**
@@ -154,7 +224,7 @@ public class LicenseHolder {
 	 * @return {@code true}, if the license _is not null_. Otherwise false.
 	 */
 	public boolean isSet() {
-		return license != null;
+		return snapshot().isSet();
 	}
 
 	/**
@@ -163,9 +233,7 @@ public class LicenseHolder {
 	 * @return {@code true}, if the license _is not nul and expired_. Otherwise false.
 	 */
 	public boolean isExpired() {
-		return Optional.ofNullable(license) //
-				.map(l -> l.getExpiresAt().toInstant().isBefore(Instant.now())) //
-				.orElse(false);
+		return snapshot().isExpired(Instant.now());
 	}
 
 	/**
@@ -174,10 +242,7 @@ public class LicenseHolder {
 	 * @return Number of seats of the license, if license is not null. Otherwise {@value SELFHOSTED_NOLICENSE_SEATS}.
 	 */
 	public long getSeats() {
-		return Optional.ofNullable(license) //
-				.map(l -> l.getClaim("seats")) //
-				.map(Claim::asLong) //
-				.orElseGet(this::seatsOnNotExisingLicense);
+		return snapshot().seats();
 	}
 
 	//visible for testing
@@ -203,15 +268,32 @@ public class LicenseHolder {
 		}
 	}
 
+	/**
+	 * Skips the refresh if there is no license to refresh or if another instance is responsible for refreshing it.
+	 * <p>
+	 * Skipping instances reload the license from the database instead, so they pick up a license refreshed by the lease
+	 * holder even if they missed its notification, e.g. while reconnecting to the database.
+	 */
 	@ApplicationScoped
 	public static class LicenseRefreshSkipper implements Scheduled.SkipPredicate {
 
 		@Inject
 		LicenseHolder licenseHolder;
 
+		@Inject
+		ClusterSingleton clusterSingleton;
+
 		@Override
 		public boolean test(ScheduledExecution execution) {
-			return licenseHolder.license == null;
+			if (licenseHolder.snapshot().isSet() && !clusterSingleton.test(execution)) {
+				return false;
+			}
+			try {
+				licenseHolder.reloadInNewTransaction();
+			} catch (RuntimeException e) {
+				LOG.warn("Failed to reload license", e);
+			}
+			return true;
 		}
 	}
 }
@@ -0,0 +1,38 @@
+package org.cryptomator.hub.license;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+
+/**
+ * Immutable state of the license as published by {@link LicenseHolder}. All fields are derived from the token once when
+ * the license is set, so checking it per request doesn't require to parse any claims.
+ *
+ * @param token           the verified license token, or {@code null} if no license is set
+ * @param hubId           the id of this Hub
+ * @param seats           number of seats granted by the license, or the default for unlicensed instances
+ * @param expiresAt       expiration date of the license, or {@code null} if it doesn't expire
+ * @param managedInstance whether this Hub is a managed instance
+ */
+public record LicenseSnapshot(@Nullable DecodedJWT token, @Nullable String hubId, long seats, @Nullable Instant expiresAt, boolean managedInstance) {
+
+	/**
+	 * Checks if the license is set.
+	 *
+	 * @return {@code true}, if the license _is not null_. Otherwise false.
+	 */
+	public boolean isSet() {
+		return token != null;
+	}
+
+	/**
+	 * Checks if the license is expired.
+	 *
+	 * @param now the current time
+	 * @return {@code true}, if the license _is not null and expired_. Otherwise false.
+	 */
+	public boolean isExpired(Instant now) {
+		return expiresAt != null && expiresAt.isBefore(now);
+	}
+}
@@ -0,0 +1,192 @@
+-- Seat ledger: one row per user occupying a license seat, i.e. having effective access to at least one non-archived vault.
+-- Maintained by triggers on all tables contributing to the effective vault access, so seat counts don't need to expand
+-- the recursive group membership view.
+CREATE TABLE "seat_ledger"
+(
+	"user_id"           VARCHAR(255) COLLATE "C" NOT NULL,
+	"with_access_token" BOOLEAN NOT NULL, -- whether the user has been granted access to at least one of the vaults occupying the seat
+	CONSTRAINT "SEAT_LEDGER_PK" PRIMARY KEY ("user_id"),
+	CONSTRAINT "SEAT_LEDGER_FK_USER" FOREIGN KEY ("user_id") REFERENCES "user_details" ("id") ON DELETE CASCADE
+);
+
+-- Totals of the seat ledger, split into 16 shards, so concurrent ledger changes of different users don't all serialize on
+-- the same row. Each user is assigned to a shard by the hash of its id, totals are the sum of all shards.
+CREATE TABLE "seat_ledger_summary"
+(
+	"id"                               INTEGER NOT NULL,
+	"occupied_seats"                   BIGINT NOT NULL,
+	"occupied_seats_with_access_token" BIGINT NOT NULL,
+	CONSTRAINT "SEAT_LEDGER_SUMMARY_PK" PRIMARY KEY ("id"),
+	CONSTRAINT "SEAT_LEDGER_SUMMARY_CHK_SHARD" CHECK ("id" >= 0 AND "id" < 16)
+);
+
+-- @formatter:off
+CREATE FUNCTION "seat_ledger_shard"("p_user_id" VARCHAR) RETURNS INTEGER AS $$
+	SELECT hashtext("p_user_id") & 15;
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE FUNCTION "seat_ledger_summary_update"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP = 'UPDATE' AND OLD."user_id" = NEW."user_id" THEN
+		IF OLD."with_access_token" IS DISTINCT FROM NEW."with_access_token" THEN
+			UPDATE "seat_ledger_summary"
+				SET "occupied_seats_with_access_token" = "occupied_seats_with_access_token" + CASE WHEN NEW."with_access_token" THEN 1 ELSE -1 END
+				WHERE "id" = "seat_ledger_shard"(NEW."user_id");
+		END IF;
+		RETURN NULL;
+	END IF;
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		UPDATE "seat_ledger_summary"
+			SET "occupied_seats" = "occupied_seats" - 1,
+				"occupied_seats_with_access_token" = "occupied_seats_with_access_token" - CASE WHEN OLD."with_access_token" THEN 1 ELSE 0 END
+			WHERE "id" = "seat_ledger_shard"(OLD."user_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		UPDATE "seat_ledger_summary"
+			SET "occupied_seats" = "occupied_seats" + 1,
+				"occupied_seats_with_access_token" = "occupied_seats_with_access_token" + CASE WHEN NEW."with_access_token" THEN 1 ELSE 0 END
+			WHERE "id" = "seat_ledger_shard"(NEW."user_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Recomputes the ledger entry of a single user by walking up its group ancestors (same depth limit as "effective_group_membership")
+CREATE FUNCTION "seat_ledger_refresh_user"("p_user_id" VARCHAR) RETURNS VOID AS $$
+DECLARE
+	"v_occupying" BOOLEAN;
+	"v_with_access_token" BOOLEAN;
+BEGIN
+	IF NOT EXISTS (SELECT 1 FROM "user_details" WHERE "id" = "p_user_id") THEN
+		RETURN; -- not a user (or already deleted, in which case the ledger entry is gone due to cascading)
+	END IF;
+
+	WITH RECURSIVE "ancestors" ("id", "depth") AS (
+		SELECT "p_user_id"::VARCHAR COLLATE "C", 0
+		UNION
+		SELECT "gm"."group_id", "a"."depth" + 1
+			FROM "group_membership" "gm"
+			INNER JOIN "ancestors" "a" ON "gm"."member_id" = "a"."id"
+			WHERE "a"."depth" <= 10
+	)
+	SELECT COUNT(*) > 0, COALESCE(BOOL_OR("at"."user_id" IS NOT NULL), FALSE)
+		INTO "v_occupying", "v_with_access_token"
+		FROM "vault_access" "va"
+		INNER JOIN "vault" "v" ON "v"."id" = "va"."vault_id" AND NOT "v"."archived"
+		LEFT JOIN "access_token" "at" ON "at"."vault_id" = "va"."vault_id" AND "at"."user_id" = "p_user_id"
+		WHERE "va"."authority_id" IN (SELECT "id" FROM "ancestors");
+
+	IF "v_occupying" THEN
+		INSERT INTO "seat_ledger" ("user_id", "with_access_token") VALUES ("p_user_id", "v_with_access_token")
+			ON CONFLICT ("user_id") DO UPDATE SET "with_access_token" = EXCLUDED."with_access_token"
+			WHERE "seat_ledger"."with_access_token" IS DISTINCT FROM EXCLUDED."with_access_token";
+	ELSE
+		DELETE FROM "seat_ledger" WHERE "user_id" = "p_user_id";
+	END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Recomputes the ledger entries of the given authority and (if it is a group) all of its effective members
+CREATE FUNCTION "seat_ledger_refresh_authority"("p_authority_id" VARCHAR) RETURNS VOID AS $$
+DECLARE
+	"v_user_id" VARCHAR;
+BEGIN
+	FOR "v_user_id" IN
+		WITH RECURSIVE "descendants" ("id", "depth") AS (
+			SELECT "p_authority_id"::VARCHAR COLLATE "C", 0
+			UNION
+			SELECT "gm"."member_id", "d"."depth" + 1
+				FROM "group_membership" "gm"
+				INNER JOIN "descendants" "d" ON "gm"."group_id" = "d"."id"
+				WHERE "d"."depth" <= 10
+		)
+		SELECT DISTINCT "d"."id" FROM "descendants" "d" INNER JOIN "user_details" "u" ON "u"."id" = "d"."id"
+	LOOP
+		PERFORM "seat_ledger_refresh_user"("v_user_id");
+	END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "seat_ledger_on_vault_access"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "seat_ledger_refresh_authority"(OLD."authority_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "seat_ledger_refresh_authority"(NEW."authority_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "seat_ledger_on_group_membership"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "seat_ledger_refresh_authority"(OLD."member_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "seat_ledger_refresh_authority"(NEW."member_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "seat_ledger_on_access_token"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "seat_ledger_refresh_user"(OLD."user_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "seat_ledger_refresh_user"(NEW."user_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "seat_ledger_on_vault_archived"() RETURNS TRIGGER AS $$
+DECLARE
+	"v_authority_id" VARCHAR;
+BEGIN
+	FOR "v_authority_id" IN SELECT "authority_id" FROM "vault_access" WHERE "vault_id" = NEW."id" LOOP
+		PERFORM "seat_ledger_refresh_authority"("v_authority_id");
+	END LOOP;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "seat_ledger_on_user_details"() RETURNS TRIGGER AS $$
+BEGIN
+	PERFORM "seat_ledger_refresh_user"(NEW."id");
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Recomputes all ledger entries and the summary from scratch (used for initial population and to repair drift)
+CREATE FUNCTION "seat_ledger_rebuild"() RETURNS VOID AS $$
+BEGIN
+	DELETE FROM "seat_ledger" "sl" WHERE NOT EXISTS (SELECT 1 FROM "user_details" "u" WHERE "u"."id" = "sl"."user_id");
+	PERFORM "seat_ledger_refresh_user"("id") FROM "user_details";
+	UPDATE "seat_ledger_summary" "s"
+		SET "occupied_seats" = (SELECT COUNT(*) FROM "seat_ledger" WHERE "seat_ledger_shard"("user_id") = "s"."id"),
+			"occupied_seats_with_access_token" = (SELECT COUNT(*) FROM "seat_ledger" WHERE "seat_ledger_shard"("user_id") = "s"."id" AND "with_access_token");
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+CREATE TRIGGER "seat_ledger_summary_update" AFTER INSERT OR UPDATE OR DELETE ON "seat_ledger"
+	FOR EACH ROW EXECUTE FUNCTION "seat_ledger_summary_update"();
+CREATE TRIGGER "seat_ledger_on_vault_access" AFTER INSERT OR UPDATE OR DELETE ON "vault_access"
+	FOR EACH ROW EXECUTE FUNCTION "seat_ledger_on_vault_access"();
+CREATE TRIGGER "seat_ledger_on_group_membership" AFTER INSERT OR UPDATE OR DELETE ON "group_membership"
+	FOR EACH ROW EXECUTE FUNCTION "seat_ledger_on_group_membership"();
+CREATE TRIGGER "seat_ledger_on_access_token" AFTER INSERT OR UPDATE OR DELETE ON "access_token"
+	FOR EACH ROW EXECUTE FUNCTION "seat_ledger_on_access_token"();
+CREATE TRIGGER "seat_ledger_on_vault_archived" AFTER UPDATE OF "archived" ON "vault"
+	FOR EACH ROW WHEN (OLD."archived" IS DISTINCT FROM NEW."archived") EXECUTE FUNCTION "seat_ledger_on_vault_archived"();
+CREATE TRIGGER "seat_ledger_on_user_details" AFTER INSERT ON "user_details"
+	FOR EACH ROW EXECUTE FUNCTION "seat_ledger_on_user_details"();
+
+-- initial population
+INSERT INTO "seat_ledger_summary" ("id", "occupied_seats", "occupied_seats_with_access_token")
+	SELECT "id", 0, 0 FROM generate_series(0, 15) "id";
+SELECT "seat_ledger_rebuild"();
@@ -0,0 +1,90 @@
+-- Replaces the recursive "effective_group_membership" view by a closure table, which is maintained incrementally by
+-- triggers on "group_membership". Each row represents one path from a group to a (transitive) member, "depth" being
+-- the number of intermediate groups (0 for direct memberships). Like the view, paths are limited to depth 10.
+DROP VIEW "effective_vault_access";
+DROP VIEW "effective_group_membership";
+
+CREATE TABLE "effective_group_membership"
+(
+	"group_id"  VARCHAR(255) COLLATE "C" NOT NULL,
+	"member_id" VARCHAR(255) COLLATE "C" NOT NULL,
+	"depth"     INTEGER NOT NULL,
+	"path"      VARCHAR COLLATE "C" NOT NULL,
+	CONSTRAINT "EFFECTIVE_GROUP_MEMBERSHIP_PK" PRIMARY KEY ("group_id", "member_id", "path")
+);
+
+CREATE INDEX "EFFECTIVE_GROUP_MEMBERSHIP_IDX_MEMBER" ON "effective_group_membership" ("member_id", "group_id");
+
+-- @formatter:off
+-- Adds all paths traversing the new membership by combining every path leading to the group with every path starting
+-- at the member. Repeated until no new paths are found, so paths traversing the new membership multiple times
+-- (only possible with cyclic memberships) are covered as well.
+CREATE FUNCTION "egm_add_membership"("p_group_id" VARCHAR, "p_member_id" VARCHAR) RETURNS VOID AS $$
+DECLARE
+	"v_inserted" INTEGER;
+BEGIN
+	LOOP
+		WITH "prefixes" ("root", "path", "edges") AS (
+			SELECT "p_group_id"::VARCHAR COLLATE "C", ('/' || "p_group_id") COLLATE "C", 0
+			UNION ALL
+			SELECT "group_id", "path", "depth" + 1 FROM "effective_group_membership" WHERE "member_id" = "p_group_id"
+		), "suffixes" ("member", "path", "edges") AS (
+			SELECT "p_member_id"::VARCHAR COLLATE "C", ('/' || "p_member_id") COLLATE "C", 0
+			UNION ALL
+			SELECT "member_id", "path", "depth" + 1 FROM "effective_group_membership" WHERE "group_id" = "p_member_id"
+		)
+		INSERT INTO "effective_group_membership" ("group_id", "member_id", "depth", "path")
+			SELECT "p"."root", "s"."member", "p"."edges" + "s"."edges", "p"."path" || "s"."path"
+			FROM "prefixes" "p" CROSS JOIN "suffixes" "s"
+			WHERE "p"."edges" + "s"."edges" <= 10
+			ON CONFLICT DO NOTHING;
+		GET DIAGNOSTICS "v_inserted" = ROW_COUNT;
+		EXIT WHEN "v_inserted" = 0;
+	END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Removes all paths traversing the removed membership. Only the member itself and its transitive members can be affected.
+CREATE FUNCTION "egm_remove_membership"("p_group_id" VARCHAR, "p_member_id" VARCHAR) RETURNS VOID AS $$
+BEGIN
+	DELETE FROM "effective_group_membership"
+		WHERE ("member_id" = "p_member_id" OR "member_id" IN (SELECT "member_id" FROM "effective_group_membership" WHERE "group_id" = "p_member_id"))
+		AND STRPOS("path" || '/', '/' || "p_group_id" || '/' || "p_member_id" || '/') > 0;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "egm_on_group_membership"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "egm_remove_membership"(OLD."group_id", OLD."member_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "egm_add_membership"(NEW."group_id", NEW."member_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+CREATE TRIGGER "egm_on_group_membership" AFTER INSERT OR UPDATE OR DELETE ON "group_membership"
+	FOR EACH ROW EXECUTE FUNCTION "egm_on_group_membership"();
+
+-- initial population, equivalent to the former view
+-- @formatter:off
+INSERT INTO "effective_group_membership" ("group_id", "member_id", "depth", "path")
+WITH RECURSIVE "members" ("root", "member_id", "depth", "path") AS (
+	SELECT "group_id", "member_id", 0, '/' || "group_id" || '/' || "member_id"
+		FROM "group_membership"
+	UNION
+	SELECT "parent"."root", "child"."member_id", "parent"."depth" + 1, "parent"."path" || '/' || "child"."member_id"
+		FROM "group_membership" "child"
+		INNER JOIN "members" "parent" ON "child"."group_id" = "parent"."member_id"
+		WHERE "parent"."depth" < 10
+) SELECT "root", "member_id", "depth", "path" FROM "members";
+
+CREATE VIEW "effective_vault_access" ("vault_id", "authority_id", "role") AS
+	SELECT "va"."vault_id", "va"."authority_id", "va"."role" FROM "vault_access" "va"
+	UNION
+	SELECT "va"."vault_id", "gm"."member_id", "va"."role" FROM "vault_access" "va"
+		INNER JOIN "effective_group_membership" "gm" ON "va"."authority_id" = "gm"."group_id";
+-- @formatter:on
@@ -0,0 +1,141 @@
+-- Replaces the "effective_vault_access" view by a table maintained by triggers on "vault_access" and
+-- "effective_group_membership", so lookups by user or by vault become index range scans.
+DROP VIEW "effective_vault_access";
+
+CREATE TABLE "effective_vault_access"
+(
+	"vault_id"     UUID NOT NULL,
+	"authority_id" VARCHAR(255) COLLATE "C" NOT NULL,
+	"role"         VARCHAR(50) NOT NULL,
+	CONSTRAINT "EFFECTIVE_VAULT_ACCESS_PK" PRIMARY KEY ("authority_id", "vault_id", "role")
+);
+
+CREATE INDEX "EFFECTIVE_VAULT_ACCESS_IDX_VAULT" ON "effective_vault_access" ("vault_id", "authority_id");
+CREATE INDEX "VAULT_ACCESS_IDX_AUTHORITY" ON "vault_access" ("authority_id");
+
+-- @formatter:off
+CREATE FUNCTION "eva_expected_roles"("p_vault_id" UUID, "p_authority_id" VARCHAR) RETURNS SETOF VARCHAR AS $$
+	SELECT "role" FROM "vault_access" WHERE "vault_id" = "p_vault_id" AND "authority_id" = "p_authority_id"
+	UNION
+	SELECT "va"."role" FROM "vault_access" "va"
+		INNER JOIN "effective_group_membership" "gm" ON "va"."authority_id" = "gm"."group_id"
+		WHERE "va"."vault_id" = "p_vault_id" AND "gm"."member_id" = "p_authority_id";
+$$ LANGUAGE sql STABLE;
+
+-- Brings the rows of a single (vault, authority) pair in line with its direct and inherited vault access
+CREATE FUNCTION "eva_refresh"("p_vault_id" UUID, "p_authority_id" VARCHAR) RETURNS VOID AS $$
+BEGIN
+	DELETE FROM "effective_vault_access"
+		WHERE "vault_id" = "p_vault_id" AND "authority_id" = "p_authority_id"
+		AND "role" NOT IN (SELECT "eva_expected_roles"("p_vault_id", "p_authority_id"));
+	INSERT INTO "effective_vault_access" ("vault_id", "authority_id", "role")
+		SELECT "p_vault_id", "p_authority_id", "r" FROM "eva_expected_roles"("p_vault_id", "p_authority_id") "r"
+		ON CONFLICT DO NOTHING;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "eva_on_vault_access"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "eva_refresh"(OLD."vault_id", OLD."authority_id");
+		PERFORM "eva_refresh"(OLD."vault_id", "m"."member_id")
+			FROM (SELECT DISTINCT "member_id" FROM "effective_group_membership" WHERE "group_id" = OLD."authority_id") "m";
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		INSERT INTO "effective_vault_access" ("vault_id", "authority_id", "role")
+			SELECT NEW."vault_id", NEW."authority_id", NEW."role"
+			UNION
+			SELECT NEW."vault_id", "member_id", NEW."role" FROM "effective_group_membership" WHERE "group_id" = NEW."authority_id"
+			ON CONFLICT DO NOTHING;
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "eva_on_effective_group_membership"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP = 'DELETE' THEN
+		PERFORM "eva_refresh"("va"."vault_id", OLD."member_id")
+			FROM (SELECT DISTINCT "vault_id" FROM "vault_access" WHERE "authority_id" = OLD."group_id") "va";
+	ELSIF TG_OP = 'INSERT' THEN
+		INSERT INTO "effective_vault_access" ("vault_id", "authority_id", "role")
+			SELECT "vault_id", NEW."member_id", "role" FROM "vault_access" WHERE "authority_id" = NEW."group_id"
+			ON CONFLICT DO NOTHING;
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+CREATE TRIGGER "eva_on_vault_access" AFTER INSERT OR UPDATE OR DELETE ON "vault_access"
+	FOR EACH ROW EXECUTE FUNCTION "eva_on_vault_access"();
+CREATE TRIGGER "eva_on_effective_group_membership" AFTER INSERT OR DELETE ON "effective_group_membership"
+	FOR EACH ROW EXECUTE FUNCTION "eva_on_effective_group_membership"();
+
+-- initial population, equivalent to the former view
+INSERT INTO "effective_vault_access" ("vault_id", "authority_id", "role")
+	SELECT "va"."vault_id", "va"."authority_id", "va"."role" FROM "vault_access" "va"
+	UNION
+	SELECT "va"."vault_id", "gm"."member_id", "va"."role" FROM "vault_access" "va"
+		INNER JOIN "effective_group_membership" "gm" ON "va"."authority_id" = "gm"."group_id";
+
+-- Seat ledger: derive occupied seats from the materialized effective vault access instead of walking the group hierarchy
+DROP TRIGGER "seat_ledger_on_vault_access" ON "vault_access";
+DROP TRIGGER "seat_ledger_on_group_membership" ON "group_membership";
+DROP FUNCTION "seat_ledger_on_vault_access"();
+DROP FUNCTION "seat_ledger_on_group_membership"();
+
+-- @formatter:off
+CREATE OR REPLACE FUNCTION "seat_ledger_refresh_user"("p_user_id" VARCHAR) RETURNS VOID AS $$
+DECLARE
+	"v_occupying" BOOLEAN;
+	"v_with_access_token" BOOLEAN;
+BEGIN
+	IF NOT EXISTS (SELECT 1 FROM "user_details" WHERE "id" = "p_user_id") THEN
+		RETURN; -- not a user (or already deleted, in which case the ledger entry is gone due to cascading)
+	END IF;
+
+	SELECT COUNT(*) > 0, COALESCE(BOOL_OR("at"."user_id" IS NOT NULL), FALSE)
+		INTO "v_occupying", "v_with_access_token"
+		FROM "effective_vault_access" "eva"
+		INNER JOIN "vault" "v" ON "v"."id" = "eva"."vault_id" AND NOT "v"."archived"
+		LEFT JOIN "access_token" "at" ON "at"."vault_id" = "eva"."vault_id" AND "at"."user_id" = "eva"."authority_id"
+		WHERE "eva"."authority_id" = "p_user_id";
+
+	IF "v_occupying" THEN
+		INSERT INTO "seat_ledger" ("user_id", "with_access_token") VALUES ("p_user_id", "v_with_access_token")
+			ON CONFLICT ("user_id") DO UPDATE SET "with_access_token" = EXCLUDED."with_access_token"
+			WHERE "seat_ledger"."with_access_token" IS DISTINCT FROM EXCLUDED."with_access_token";
+	ELSE
+		DELETE FROM "seat_ledger" WHERE "user_id" = "p_user_id";
+	END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION "seat_ledger_on_vault_archived"() RETURNS TRIGGER AS $$
+BEGIN
+	PERFORM "seat_ledger_refresh_user"("authority_id")
+		FROM (SELECT DISTINCT "authority_id" FROM "effective_vault_access" WHERE "vault_id" = NEW."id") "eva";
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "seat_ledger_on_effective_vault_access"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "seat_ledger_refresh_user"(OLD."authority_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "seat_ledger_refresh_user"(NEW."authority_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+DROP FUNCTION "seat_ledger_refresh_authority"(VARCHAR);
+
+CREATE TRIGGER "seat_ledger_on_effective_vault_access" AFTER INSERT OR UPDATE OR DELETE ON "effective_vault_access"
+	FOR EACH ROW EXECUTE FUNCTION "seat_ledger_on_effective_vault_access"();
+
+SELECT "seat_ledger_rebuild"();
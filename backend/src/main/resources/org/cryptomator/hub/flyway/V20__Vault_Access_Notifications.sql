@@ -0,0 +1,33 @@
+-- Notifies Hub instances about changes affecting vault roles, so they can invalidate cached authorization decisions.
+-- Payload is either "<vault_id>" (whole vault affected) or "<vault_id>/<authority_id>" (single authority affected).
+-- Notifications are only delivered after commit and identical payloads within the same transaction are folded by Postgres.
+
+-- @formatter:off
+CREATE FUNCTION "notify_vault_access_on_effective_vault_access"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM pg_notify('hub_vault_access', OLD."vault_id" || '/' || OLD."authority_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM pg_notify('hub_vault_access', NEW."vault_id" || '/' || NEW."authority_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "notify_vault_access_on_vault"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP = 'DELETE' THEN
+		PERFORM pg_notify('hub_vault_access', OLD."id"::VARCHAR);
+	ELSE
+		PERFORM pg_notify('hub_vault_access', NEW."id"::VARCHAR);
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+CREATE TRIGGER "notify_vault_access_on_effective_vault_access" AFTER INSERT OR UPDATE OR DELETE ON "effective_vault_access"
+	FOR EACH ROW EXECUTE FUNCTION "notify_vault_access_on_effective_vault_access"();
+CREATE TRIGGER "notify_vault_access_on_vault" AFTER INSERT OR DELETE ON "vault"
+	FOR EACH ROW EXECUTE FUNCTION "notify_vault_access_on_vault"();
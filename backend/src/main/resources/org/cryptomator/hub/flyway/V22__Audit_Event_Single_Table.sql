@@ -0,0 +1,87 @@
+-- Merges the per-type audit event tables into "audit_event" (single table inheritance), so reading a page of events
+-- no longer needs to join every "audit_event_<entity>_<action>" table. Columns shared by several event types
+-- (e.g. "vault_id") are stored once. Type-specific NOT NULL constraints are replaced by CHECK constraints, which are
+-- only enforced for new events, as events written by older versions might lack a detail row.
+ALTER TABLE "audit_event" ADD "vault_id" UUID;
+ALTER TABLE "audit_event" ADD "vault_name" VARCHAR;
+ALTER TABLE "audit_event" ADD "vault_description" VARCHAR;
+ALTER TABLE "audit_event" ADD "vault_archived" BOOLEAN;
+ALTER TABLE "audit_event" ADD "authority_id" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "role" VARCHAR(50);
+ALTER TABLE "audit_event" ADD "result" VARCHAR(50);
+ALTER TABLE "audit_event" ADD "device_id" VARCHAR(64) COLLATE "C";
+ALTER TABLE "audit_event" ADD "device_name" VARCHAR;
+ALTER TABLE "audit_event" ADD "device_type" VARCHAR(50);
+ALTER TABLE "audit_event" ADD "user_id" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "signer_id" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "signer_key" VARCHAR;
+ALTER TABLE "audit_event" ADD "signature" VARCHAR;
+ALTER TABLE "audit_event" ADD "created_by" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "retrieved_by" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "added_by" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "removed_by" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "updated_by" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "claimed_by" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "registered_by" VARCHAR(255) COLLATE "C";
+ALTER TABLE "audit_event" ADD "granted_by" VARCHAR(255) COLLATE "C";
+
+-- backfill
+UPDATE "audit_event" "ae" SET "created_by" = "t"."created_by", "vault_id" = "t"."vault_id", "vault_name" = "t"."vault_name", "vault_description" = "t"."vault_description"
+	FROM "audit_event_vault_create" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "retrieved_by" = "t"."retrieved_by", "vault_id" = "t"."vault_id", "result" = "t"."result"
+	FROM "audit_event_vault_key_retrieve" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "added_by" = "t"."added_by", "vault_id" = "t"."vault_id", "authority_id" = "t"."authority_id", "role" = "t"."role"
+	FROM "audit_event_vault_member_add" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "removed_by" = "t"."removed_by", "vault_id" = "t"."vault_id", "authority_id" = "t"."authority_id"
+	FROM "audit_event_vault_member_remove" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "updated_by" = "t"."updated_by", "vault_id" = "t"."vault_id", "authority_id" = "t"."authority_id", "role" = "t"."role"
+	FROM "audit_event_vault_member_update" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "claimed_by" = "t"."claimed_by", "vault_id" = "t"."vault_id"
+	FROM "audit_event_vault_ownership_claim" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "registered_by" = "t"."registered_by", "device_id" = "t"."device_id", "device_name" = "t"."device_name", "device_type" = "t"."device_type"
+	FROM "audit_event_device_register" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "removed_by" = "t"."removed_by", "device_id" = "t"."device_id"
+	FROM "audit_event_device_remove" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "updated_by" = "t"."updated_by", "vault_id" = "t"."vault_id", "vault_name" = "t"."vault_name", "vault_description" = "t"."vault_description", "vault_archived" = "t"."vault_archived"
+	FROM "audit_event_vault_update" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "granted_by" = "t"."granted_by", "vault_id" = "t"."vault_id", "authority_id" = "t"."authority_id"
+	FROM "audit_event_vault_access_grant" "t" WHERE "ae"."id" = "t"."id";
+UPDATE "audit_event" "ae" SET "user_id" = "t"."user_id", "signer_id" = "t"."signer_id", "signer_key" = "t"."signer_key", "signature" = "t"."signature"
+	FROM "audit_event_sign_wot_id" "t" WHERE "ae"."id" = "t"."id";
+
+DROP TABLE "audit_event_vault_create";
+DROP TABLE "audit_event_vault_key_retrieve";
+DROP TABLE "audit_event_vault_member_add";
+DROP TABLE "audit_event_vault_member_remove";
+DROP TABLE "audit_event_vault_member_update";
+DROP TABLE "audit_event_vault_ownership_claim";
+DROP TABLE "audit_event_device_register";
+DROP TABLE "audit_event_device_remove";
+DROP TABLE "audit_event_vault_update";
+DROP TABLE "audit_event_vault_access_grant";
+DROP TABLE "audit_event_sign_wot_id";
+
+-- @formatter:off
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_CREATE" CHECK ("type" <> 'VAULT_CREATE'
+	OR ("created_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "vault_name" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_KEY_RETRIEVE" CHECK ("type" <> 'VAULT_KEY_RETRIEVE'
+	OR ("retrieved_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "result" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_MEMBER_ADD" CHECK ("type" <> 'VAULT_MEMBER_ADD'
+	OR ("added_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL AND "role" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_MEMBER_REMOVE" CHECK ("type" <> 'VAULT_MEMBER_REMOVE'
+	OR ("removed_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_MEMBER_UPDATE" CHECK ("type" <> 'VAULT_MEMBER_UPDATE'
+	OR ("updated_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL AND "role" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_OWNERSHIP_CLAIM" CHECK ("type" <> 'VAULT_OWNERSHIP_CLAIM'
+	OR ("claimed_by" IS NOT NULL AND "vault_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_DEVICE_REGISTER" CHECK ("type" <> 'DEVICE_REGISTER'
+	OR ("registered_by" IS NOT NULL AND "device_id" IS NOT NULL AND "device_name" IS NOT NULL AND "device_type" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_DEVICE_REMOVE" CHECK ("type" <> 'DEVICE_REMOVE'
+	OR ("removed_by" IS NOT NULL AND "device_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_UPDATE" CHECK ("type" <> 'VAULT_UPDATE'
+	OR ("updated_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "vault_name" IS NOT NULL AND "vault_archived" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_ACCESS_GRANT" CHECK ("type" <> 'VAULT_ACCESS_GRANT'
+	OR ("granted_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_SIGN_WOT_ID" CHECK ("type" <> 'SIGN_WOT_ID'
+	OR ("user_id" IS NOT NULL AND "signer_id" IS NOT NULL AND "signer_key" IS NOT NULL AND "signature" IS NOT NULL)) NOT VALID;
+-- @formatter:on
@@ -0,0 +1,130 @@
+-- Partitions "audit_event" by month (UTC) of its "timestamp", so queries for a period only touch the relevant partitions
+-- and old events can be detached without rewriting the table. Events outside of any monthly partition end up in the
+-- default partition and are moved once their partition gets created (see "audit_event_create_partition").
+ALTER SEQUENCE "audit_event_id_seq" OWNED BY NONE;
+ALTER TABLE "audit_event" RENAME TO "audit_event_unpartitioned";
+ALTER TABLE "audit_event_unpartitioned" RENAME CONSTRAINT "AUDIT_EVENT_PK" TO "AUDIT_EVENT_UNPARTITIONED_PK";
+
+CREATE TABLE "audit_event"
+(
+	"id"                BIGINT NOT NULL DEFAULT nextval('audit_event_id_seq'),
+	"type"              VARCHAR(50) NOT NULL,
+	"timestamp"         TIMESTAMP WITH TIME ZONE NOT NULL,
+	"vault_id"          UUID,
+	"vault_name"        VARCHAR,
+	"vault_description" VARCHAR,
+	"vault_archived"    BOOLEAN,
+	"authority_id"      VARCHAR(255) COLLATE "C",
+	"role"              VARCHAR(50),
+	"result"            VARCHAR(50),
+	"device_id"         VARCHAR(64) COLLATE "C",
+	"device_name"       VARCHAR,
+	"device_type"       VARCHAR(50),
+	"user_id"           VARCHAR(255) COLLATE "C",
+	"signer_id"         VARCHAR(255) COLLATE "C",
+	"signer_key"        VARCHAR,
+	"signature"         VARCHAR,
+	"created_by"        VARCHAR(255) COLLATE "C",
+	"retrieved_by"      VARCHAR(255) COLLATE "C",
+	"added_by"          VARCHAR(255) COLLATE "C",
+	"removed_by"        VARCHAR(255) COLLATE "C",
+	"updated_by"        VARCHAR(255) COLLATE "C",
+	"claimed_by"        VARCHAR(255) COLLATE "C",
+	"registered_by"     VARCHAR(255) COLLATE "C",
+	"granted_by"        VARCHAR(255) COLLATE "C",
+	CONSTRAINT "AUDIT_EVENT_PK" PRIMARY KEY ("id", "timestamp") -- unique constraints of partitioned tables must contain the partition key
+) PARTITION BY RANGE ("timestamp");
+
+CREATE INDEX "AUDIT_EVENT_IDX_TIMESTAMP_ID" ON "audit_event" ("timestamp", "id");
+CREATE TABLE "audit_event_default" PARTITION OF "audit_event" DEFAULT;
+
+-- @formatter:off
+-- Creates the partition "audit_event_pYYYY_MM" for the given month (UTC), unless it already exists
+CREATE FUNCTION "audit_event_create_partition"("p_month" TIMESTAMP) RETURNS BOOLEAN AS $$
+DECLARE
+	"v_name" VARCHAR := 'audit_event_p' || TO_CHAR("p_month", 'YYYY_MM');
+	"v_from" TIMESTAMP WITH TIME ZONE := DATE_TRUNC('month', "p_month") AT TIME ZONE 'UTC';
+	"v_to" TIMESTAMP WITH TIME ZONE := (DATE_TRUNC('month', "p_month") + INTERVAL '1 month') AT TIME ZONE 'UTC';
+	"v_moved" "audit_event_default"[];
+BEGIN
+	PERFORM PG_ADVISORY_XACT_LOCK(HASHTEXT('audit_event_partitions')); -- serialize maintenance of multiple Hub instances
+	IF TO_REGCLASS(FORMAT('%I', "v_name")) IS NOT NULL THEN
+		RETURN FALSE;
+	END IF;
+	-- the default partition must not contain any rows belonging to the new partition
+	SELECT ARRAY_AGG("d") INTO "v_moved" FROM "audit_event_default" "d" WHERE "timestamp" >= "v_from" AND "timestamp" < "v_to";
+	DELETE FROM "audit_event_default" WHERE "timestamp" >= "v_from" AND "timestamp" < "v_to";
+	EXECUTE FORMAT('CREATE TABLE %I PARTITION OF "audit_event" FOR VALUES FROM (%L) TO (%L)', "v_name", "v_from", "v_to");
+	IF "v_moved" IS NOT NULL THEN
+		INSERT INTO "audit_event" SELECT * FROM UNNEST("v_moved");
+	END IF;
+	RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detaches all monthly partitions ending on or before the given month (UTC) and returns their names. Detached partitions
+-- remain as standalone tables, to be archived or dropped by the administrator.
+CREATE FUNCTION "audit_event_detach_partitions"("p_before" TIMESTAMP) RETURNS SETOF VARCHAR AS $$
+DECLARE
+	"v_name" VARCHAR;
+BEGIN
+	PERFORM PG_ADVISORY_XACT_LOCK(HASHTEXT('audit_event_partitions'));
+	FOR "v_name" IN
+		SELECT "c"."relname" FROM "pg_inherits" "i"
+			INNER JOIN "pg_class" "c" ON "c"."oid" = "i"."inhrelid"
+			WHERE "i"."inhparent" = '"audit_event"'::REGCLASS
+			AND "c"."relname" ~ '^audit_event_p[0-9]{4}_[0-9]{2}$'
+			AND TO_DATE(SUBSTRING("c"."relname" FROM 14), 'YYYY_MM') + INTERVAL '1 month' <= "p_before"
+			ORDER BY "c"."relname"
+	LOOP
+		EXECUTE FORMAT('ALTER TABLE "audit_event" DETACH PARTITION %I', "v_name");
+		RETURN NEXT "v_name";
+	END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+-- create partitions for all existing events and the upcoming months, then move the events
+SELECT "audit_event_create_partition"("m")
+	FROM GENERATE_SERIES(
+		DATE_TRUNC('month', COALESCE((SELECT MIN("timestamp") FROM "audit_event_unpartitioned"), NOW()) AT TIME ZONE 'UTC'),
+		DATE_TRUNC('month', NOW() AT TIME ZONE 'UTC') + INTERVAL '3 months',
+		INTERVAL '1 month'
+	) "m";
+
+INSERT INTO "audit_event" ("id", "type", "timestamp", "vault_id", "vault_name", "vault_description", "vault_archived", "authority_id", "role", "result",
+	"device_id", "device_name", "device_type", "user_id", "signer_id", "signer_key", "signature", "created_by", "retrieved_by", "added_by", "removed_by",
+	"updated_by", "claimed_by", "registered_by", "granted_by")
+	SELECT "id", "type", "timestamp", "vault_id", "vault_name", "vault_description", "vault_archived", "authority_id", "role", "result",
+	"device_id", "device_name", "device_type", "user_id", "signer_id", "signer_key", "signature", "created_by", "retrieved_by", "added_by", "removed_by",
+	"updated_by", "claimed_by", "registered_by", "granted_by"
+	FROM "audit_event_unpartitioned";
+
+DROP TABLE "audit_event_unpartitioned";
+ALTER SEQUENCE "audit_event_id_seq" OWNED BY "audit_event"."id";
+
+-- same as in V22, added after moving the existing events
+-- @formatter:off
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_CREATE" CHECK ("type" <> 'VAULT_CREATE'
+	OR ("created_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "vault_name" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_KEY_RETRIEVE" CHECK ("type" <> 'VAULT_KEY_RETRIEVE'
+	OR ("retrieved_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "result" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_MEMBER_ADD" CHECK ("type" <> 'VAULT_MEMBER_ADD'
+	OR ("added_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL AND "role" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_MEMBER_REMOVE" CHECK ("type" <> 'VAULT_MEMBER_REMOVE'
+	OR ("removed_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_MEMBER_UPDATE" CHECK ("type" <> 'VAULT_MEMBER_UPDATE'
+	OR ("updated_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL AND "role" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_OWNERSHIP_CLAIM" CHECK ("type" <> 'VAULT_OWNERSHIP_CLAIM'
+	OR ("claimed_by" IS NOT NULL AND "vault_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_DEVICE_REGISTER" CHECK ("type" <> 'DEVICE_REGISTER'
+	OR ("registered_by" IS NOT NULL AND "device_id" IS NOT NULL AND "device_name" IS NOT NULL AND "device_type" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_DEVICE_REMOVE" CHECK ("type" <> 'DEVICE_REMOVE'
+	OR ("removed_by" IS NOT NULL AND "device_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_UPDATE" CHECK ("type" <> 'VAULT_UPDATE'
+	OR ("updated_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "vault_name" IS NOT NULL AND "vault_archived" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_VAULT_ACCESS_GRANT" CHECK ("type" <> 'VAULT_ACCESS_GRANT'
+	OR ("granted_by" IS NOT NULL AND "vault_id" IS NOT NULL AND "authority_id" IS NOT NULL)) NOT VALID;
+ALTER TABLE "audit_event" ADD CONSTRAINT "AUDIT_EVENT_CHK_SIGN_WOT_ID" CHECK ("type" <> 'SIGN_WOT_ID'
+	OR ("user_id" IS NOT NULL AND "signer_id" IS NOT NULL AND "signer_key" IS NOT NULL AND "signature" IS NOT NULL)) NOT VALID;
+-- @formatter:on
@@ -0,0 +1,2 @@
+-- Hash of the attributes synchronized from Keycloak (including group members), used by the incremental sync to skip unchanged authorities
+ALTER TABLE "authority" ADD "sync_hash" VARCHAR(64);
@@ -0,0 +1,8 @@
+-- Ids of the authorities seen in Keycloak by the running streaming sync. Authorities missing here are candidates for
+-- deletion once the sync has seen all pages. Filled anew by each sync instead of marking the authorities themselves,
+-- which would rewrite every row on every sync. Unlogged, as its content is of no use after a crash anyway.
+CREATE UNLOGGED TABLE "authority_sync_seen"
+(
+	"id" VARCHAR(255) COLLATE "C" NOT NULL,
+	CONSTRAINT "AUTHORITY_SYNC_SEEN_PK" PRIMARY KEY ("id")
+);
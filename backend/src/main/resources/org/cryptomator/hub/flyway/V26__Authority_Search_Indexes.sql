@@ -0,0 +1,11 @@
+-- Indexes backing the bounded candidate scans of the substring search of authorities by name or email (see Authority.Repository#search):
+-- btree indexes using text_pattern_ops serve prefix matches of any length in LIKE order, while GiST trigram indexes
+-- (unlike GIN) can return substring matches ordered by similarity ("<->") and stop after the requested number of rows
+-- instead of materializing and sorting every match.
+CREATE EXTENSION IF NOT EXISTS "pg_trgm";
+
+CREATE INDEX "AUTHORITY_IDX_NAME_PATTERN" ON "authority" (LOWER("name") text_pattern_ops);
+CREATE INDEX "USER_DETAILS_IDX_EMAIL_PATTERN" ON "user_details" (LOWER("email") text_pattern_ops);
+
+CREATE INDEX "AUTHORITY_IDX_NAME_TRGM" ON "authority" USING GIST (LOWER("name") gist_trgm_ops);
+CREATE INDEX "USER_DETAILS_IDX_EMAIL_TRGM" ON "user_details" USING GIST (LOWER("email") gist_trgm_ops);
@@ -0,0 +1,113 @@
+-- Versions of resources polled by clients, used as entity tags for conditional GET requests:
+-- * "authority"."version" changes with a user's details, devices or accessible vaults, or with a group's effective members
+-- * "vault"."version" changes with the vault or its direct members
+-- All versions are drawn from the same sequence, so a version is never reused, not even by a deleted and recreated resource.
+CREATE SEQUENCE "resource_version_seq";
+
+ALTER TABLE "authority" ADD "version" BIGINT NOT NULL DEFAULT nextval('resource_version_seq');
+ALTER TABLE "vault" ADD "version" BIGINT NOT NULL DEFAULT nextval('resource_version_seq');
+
+-- @formatter:off
+CREATE FUNCTION "bump_authority_version"("p_authority_id" VARCHAR) RETURNS VOID AS $$
+	UPDATE "authority" SET "version" = nextval('resource_version_seq') WHERE "id" = "p_authority_id";
+$$ LANGUAGE sql;
+
+CREATE FUNCTION "bump_vault_version"("p_vault_id" UUID) RETURNS VOID AS $$
+	UPDATE "vault" SET "version" = nextval('resource_version_seq') WHERE "id" = "p_vault_id";
+$$ LANGUAGE sql;
+
+-- Names are listed as vault members and group members
+CREATE FUNCTION "version_on_authority"() RETURNS TRIGGER AS $$
+BEGIN
+	NEW."version" := nextval('resource_version_seq');
+	PERFORM "bump_vault_version"("vault_id") FROM "vault_access" WHERE "authority_id" = NEW."id";
+	PERFORM "bump_authority_version"("group_id") FROM "effective_group_membership" WHERE "member_id" = NEW."id" AND "group_id" <> NEW."id" GROUP BY "group_id";
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- User details are returned to the user itself and their public parts are listed as vault members and group members
+CREATE FUNCTION "version_on_user_details"() RETURNS TRIGGER AS $$
+BEGIN
+	PERFORM "bump_authority_version"(NEW."id");
+	PERFORM "bump_vault_version"("vault_id") FROM "vault_access" WHERE "authority_id" = NEW."id";
+	PERFORM "bump_authority_version"("group_id") FROM "effective_group_membership" WHERE "member_id" = NEW."id" GROUP BY "group_id";
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "version_on_device"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "bump_authority_version"(OLD."owner_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "bump_authority_version"(NEW."owner_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Vaults are listed as accessible vaults of every user with effective access
+CREATE FUNCTION "version_on_vault"() RETURNS TRIGGER AS $$
+BEGIN
+	NEW."version" := nextval('resource_version_seq');
+	PERFORM "bump_authority_version"("authority_id") FROM "effective_vault_access" WHERE "vault_id" = NEW."id" GROUP BY "authority_id";
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "version_on_vault_access"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "bump_vault_version"(OLD."vault_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "bump_vault_version"(NEW."vault_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "version_on_effective_vault_access"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "bump_authority_version"(OLD."authority_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "bump_authority_version"(NEW."authority_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "version_on_effective_group_membership"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "bump_authority_version"(OLD."group_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "bump_authority_version"(NEW."group_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+-- version bumps only touch the "version" column, so they don't cascade any further
+CREATE TRIGGER "version_on_authority" BEFORE UPDATE ON "authority"
+	FOR EACH ROW WHEN (OLD."name" IS DISTINCT FROM NEW."name") EXECUTE FUNCTION "version_on_authority"();
+CREATE TRIGGER "version_on_user_details" AFTER UPDATE ON "user_details"
+	FOR EACH ROW WHEN (OLD.* IS DISTINCT FROM NEW.*) EXECUTE FUNCTION "version_on_user_details"();
+CREATE TRIGGER "version_on_device" AFTER INSERT OR UPDATE OR DELETE ON "device"
+	FOR EACH ROW EXECUTE FUNCTION "version_on_device"();
+CREATE TRIGGER "version_on_vault" BEFORE UPDATE ON "vault"
+	FOR EACH ROW WHEN ((OLD."name", OLD."description", OLD."archived", OLD."creation_time", OLD."masterkey", OLD."iterations", OLD."salt", OLD."auth_pubkey", OLD."auth_prvkey")
+		IS DISTINCT FROM (NEW."name", NEW."description", NEW."archived", NEW."creation_time", NEW."masterkey", NEW."iterations", NEW."salt", NEW."auth_pubkey", NEW."auth_prvkey"))
+	EXECUTE FUNCTION "version_on_vault"();
+CREATE TRIGGER "version_on_vault_access" AFTER INSERT OR UPDATE OR DELETE ON "vault_access"
+	FOR EACH ROW EXECUTE FUNCTION "version_on_vault_access"();
+CREATE TRIGGER "version_on_effective_vault_access" AFTER INSERT OR UPDATE OR DELETE ON "effective_vault_access"
+	FOR EACH ROW EXECUTE FUNCTION "version_on_effective_vault_access"();
+CREATE TRIGGER "version_on_effective_group_membership" AFTER INSERT OR UPDATE OR DELETE ON "effective_group_membership"
+	FOR EACH ROW EXECUTE FUNCTION "version_on_effective_group_membership"();
@@ -0,0 +1,10 @@
+-- Leases of scheduled jobs, which must only run on a single Hub instance at a time (see ClusterSingleton).
+-- A lease is held until "expires_at" and renewed by its holder on every run. Expired leases may be taken over by any instance.
+CREATE TABLE "job_lease"
+(
+	"job"         VARCHAR(255) NOT NULL,
+	"holder"      VARCHAR(255) NOT NULL,
+	"acquired_at" TIMESTAMP WITH TIME ZONE NOT NULL,
+	"expires_at"  TIMESTAMP WITH TIME ZONE NOT NULL,
+	CONSTRAINT "JOB_LEASE_PK" PRIMARY KEY ("job")
+);
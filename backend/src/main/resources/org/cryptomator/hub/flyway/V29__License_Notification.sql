@@ -0,0 +1,15 @@
+-- Notifies Hub instances about changes of the license, so they can reload it from the database (see LicenseHolder).
+-- The payload is empty, as the license is always reloaded as a whole.
+
+-- @formatter:off
+CREATE FUNCTION "notify_license_on_settings"() RETURNS TRIGGER AS $$
+BEGIN
+	PERFORM pg_notify('hub_license', '');
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+CREATE TRIGGER "notify_license_on_settings" AFTER UPDATE OF "license_key", "hub_id" ON "settings"
+	FOR EACH ROW WHEN (OLD."license_key" IS DISTINCT FROM NEW."license_key" OR OLD."hub_id" IS DISTINCT FROM NEW."hub_id")
+	EXECUTE FUNCTION "notify_license_on_settings"();
@@ -0,0 +1,93 @@
+-- Replaces the recursive "effective_wot" view by a table holding the shortest signature chain for each pair of users,
+-- maintained by triggers on "wot" (new/updated signatures, deleted users) and on "settings" (changed "wot_max_depth").
+-- Maintenance recomputes the chains of each affected trusting user, anchoring the recursion on that user.
+DROP VIEW "effective_wot";
+
+CREATE TABLE "effective_wot"
+(
+	"trusting_user_id" VARCHAR(255) COLLATE "C" NOT NULL,
+	"trusted_user_id"  VARCHAR(255) COLLATE "C" NOT NULL,
+	"signature_chain"  VARCHAR[] NOT NULL,
+	CONSTRAINT "EFFECTIVE_WOT_PK" PRIMARY KEY ("trusting_user_id", "trusted_user_id")
+);
+
+CREATE INDEX "EFFECTIVE_WOT_IDX_TRUSTED" ON "effective_wot" ("trusted_user_id");
+
+-- @formatter:off
+-- Recomputes all chains starting at the given user, equivalent to the former view restricted to this user.
+CREATE FUNCTION "ewot_refresh"("p_trusting_user_id" VARCHAR) RETURNS VOID AS $$
+BEGIN
+	DELETE FROM "effective_wot" WHERE "trusting_user_id" = "p_trusting_user_id";
+	INSERT INTO "effective_wot" ("trusting_user_id", "trusted_user_id", "signature_chain")
+	WITH RECURSIVE "r" ("trusted_user_id", "depth", "signer_chain", "signature_chain") AS (
+		SELECT "user_id", 0, array["signer_id"]::varchar[], array["signature"]::varchar[]
+		FROM "wot"
+		WHERE "signer_id" = "p_trusting_user_id"
+
+		UNION ALL
+
+		SELECT "wot"."user_id", "r"."depth" + 1, ("r"."signer_chain" || "wot"."signer_id")::varchar[], ("r"."signature_chain" || "wot"."signature")::varchar[]
+		FROM "wot"
+		INNER JOIN "r"
+			ON "wot"."signer_id" = "r"."trusted_user_id"
+			AND "wot"."user_id" <> ALL("r"."signer_chain") -- avoid loops
+		INNER JOIN "settings" ON "settings"."id" = 0
+		WHERE "r"."depth" < "settings"."wot_max_depth"
+	)
+	SELECT DISTINCT ON ("trusted_user_id") "p_trusting_user_id", "trusted_user_id", "signature_chain"
+		FROM "r"
+		ORDER BY "trusted_user_id", "depth";
+END;
+$$ LANGUAGE plpgsql;
+
+-- A chain can only start at, gain or lose the given signature if its trusting user is the signer or already trusts the signer.
+CREATE FUNCTION "ewot_refresh_signer"("p_signer_id" VARCHAR) RETURNS VOID AS $$
+DECLARE
+	"v_trusting_user_ids" VARCHAR[];
+BEGIN
+	SELECT array_agg(DISTINCT "id") INTO "v_trusting_user_ids" FROM (
+		SELECT "p_signer_id" AS "id"
+		UNION ALL
+		SELECT "trusting_user_id" FROM "effective_wot" WHERE "trusted_user_id" = "p_signer_id"
+	) "t";
+	PERFORM "ewot_refresh"("u") FROM unnest("v_trusting_user_ids") "u";
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "ewot_on_wot"() RETURNS TRIGGER AS $$
+BEGIN
+	-- serialize maintenance, so concurrent signatures extending each other's chains don't miss each other
+	PERFORM pg_advisory_xact_lock(hashtext('effective_wot'));
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "ewot_refresh_signer"(OLD."signer_id");
+	END IF;
+	IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND NEW."signer_id" <> OLD."signer_id") THEN
+		PERFORM "ewot_refresh_signer"(NEW."signer_id");
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "ewot_rebuild"() RETURNS VOID AS $$
+BEGIN
+	DELETE FROM "effective_wot";
+	PERFORM "ewot_refresh"("s"."signer_id") FROM (SELECT DISTINCT "signer_id" FROM "wot") "s";
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "ewot_on_settings"() RETURNS TRIGGER AS $$
+BEGIN
+	PERFORM pg_advisory_xact_lock(hashtext('effective_wot'));
+	PERFORM "ewot_rebuild"();
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+CREATE TRIGGER "ewot_on_wot" AFTER INSERT OR UPDATE OR DELETE ON "wot"
+	FOR EACH ROW EXECUTE FUNCTION "ewot_on_wot"();
+CREATE TRIGGER "ewot_on_settings" AFTER UPDATE OF "wot_max_depth" ON "settings"
+	FOR EACH ROW WHEN (OLD."wot_max_depth" IS DISTINCT FROM NEW."wot_max_depth") EXECUTE FUNCTION "ewot_on_settings"();
+
+-- initial population
+SELECT "ewot_rebuild"();
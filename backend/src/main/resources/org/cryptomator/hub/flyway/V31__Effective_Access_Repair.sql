@@ -0,0 +1,46 @@
+-- Repairs the materialized "effective_group_membership" and "effective_vault_access" tables by comparing them with their
+-- recursive definitions over "group_membership" and "vault_access", then rebuilds the seat ledger derived from them.
+-- Used by SeatLedgerReconciler when the ledger disagrees with a recount based on the recursive definition.
+
+-- @formatter:off
+-- All paths from a group to a (transitive) member, equivalent to the initial population in V18
+CREATE FUNCTION "egm_expected"() RETURNS TABLE ("group_id" VARCHAR, "member_id" VARCHAR, "depth" INTEGER, "path" VARCHAR) AS $$
+	WITH RECURSIVE "members" ("root", "member_id", "depth", "path") AS (
+		SELECT "group_id", "member_id", 0, '/' || "group_id" || '/' || "member_id"
+			FROM "group_membership"
+		UNION
+		SELECT "parent"."root", "child"."member_id", "parent"."depth" + 1, "parent"."path" || '/' || "child"."member_id"
+			FROM "group_membership" "child"
+			INNER JOIN "members" "parent" ON "child"."group_id" = "parent"."member_id"
+			WHERE "parent"."depth" < 10
+	) SELECT "root", "member_id", "depth", "path" FROM "members";
+$$ LANGUAGE sql STABLE;
+
+CREATE FUNCTION "effective_access_rebuild"() RETURNS VOID AS $$
+BEGIN
+	-- changes to "effective_group_membership" are propagated to "effective_vault_access" by its triggers
+	DELETE FROM "effective_group_membership" "egm"
+		WHERE NOT EXISTS (SELECT 1 FROM "egm_expected"() "e" WHERE "e"."group_id" = "egm"."group_id" AND "e"."member_id" = "egm"."member_id" AND "e"."path" = "egm"."path");
+	INSERT INTO "effective_group_membership" ("group_id", "member_id", "depth", "path")
+		SELECT "group_id", "member_id", "depth", "path" FROM "egm_expected"()
+		ON CONFLICT DO NOTHING;
+
+	-- anything still missing or left over in "effective_vault_access"
+	DELETE FROM "effective_vault_access" "eva"
+		WHERE NOT EXISTS (SELECT 1 FROM "vault_access" "va" WHERE "va"."vault_id" = "eva"."vault_id" AND "va"."authority_id" = "eva"."authority_id" AND "va"."role" = "eva"."role")
+		AND NOT EXISTS (
+			SELECT 1 FROM "vault_access" "va"
+			INNER JOIN "effective_group_membership" "gm" ON "va"."authority_id" = "gm"."group_id"
+			WHERE "va"."vault_id" = "eva"."vault_id" AND "gm"."member_id" = "eva"."authority_id" AND "va"."role" = "eva"."role"
+		);
+	INSERT INTO "effective_vault_access" ("vault_id", "authority_id", "role")
+		SELECT "va"."vault_id", "va"."authority_id", "va"."role" FROM "vault_access" "va"
+		UNION
+		SELECT "va"."vault_id", "gm"."member_id", "va"."role" FROM "vault_access" "va"
+			INNER JOIN "effective_group_membership" "gm" ON "va"."authority_id" = "gm"."group_id"
+		ON CONFLICT DO NOTHING;
+
+	PERFORM "seat_ledger_rebuild"();
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
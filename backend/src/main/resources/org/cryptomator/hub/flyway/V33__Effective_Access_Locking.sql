@@ -0,0 +1,134 @@
+-- Serializes concurrent trigger-based maintenance of "effective_group_membership", "effective_vault_access" and
+-- "seat_ledger" where it affects the same groups, users or vaults. Under READ COMMITTED, two transactions changing related
+-- rows concurrently (e.g. adding a user to a group while the group is granted access to a vault) would each derive the
+-- materialized rows without seeing the other's changes, leaving them wrong for good.
+--
+-- Therefore, before a source row changes, the rows of all authorities and vaults whose derived rows may change are locked
+-- (FOR NO KEY UPDATE, which doesn't block inserts referencing them). Triggers fired afterwards see all changes committed by
+-- the previous lock holder, as each statement within the trigger functions takes a new snapshot. Row locks don't occupy
+-- the shared lock table, so even changes affecting many members can't exhaust it. Unrelated changes don't wait for each
+-- other. Only "effective_access_rebuild"() excludes all of them, using an advisory lock held in shared mode by everyone else.
+
+-- @formatter:off
+-- Locks the rows of the given authorities in a consistent order to avoid deadlocks
+CREATE FUNCTION "effective_access_lock_authorities"("p_authority_ids" VARCHAR[]) RETURNS VOID AS $$
+BEGIN
+	PERFORM pg_advisory_xact_lock_shared(hashtext('effective_access'), 0);
+	PERFORM 1 FROM "authority" WHERE "id" = ANY("p_authority_ids") ORDER BY "id" FOR NO KEY UPDATE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Locks the given group and its ancestors as well as the given member and its descendants (either may be NULL), i.e.
+-- all authorities on paths traversing a membership between them. Repeated until no further authorities are found, as
+-- paths may have been added by a previous lock holder.
+CREATE FUNCTION "effective_access_lock_paths"("p_group_id" VARCHAR, "p_member_id" VARCHAR) RETURNS VOID AS $$
+DECLARE
+	"v_locked" VARCHAR[] := '{}';
+	"v_affected" VARCHAR[];
+BEGIN
+	LOOP
+		SELECT COALESCE(ARRAY_AGG("id"), '{}') INTO "v_affected" FROM (
+			SELECT "p_group_id"::VARCHAR COLLATE "C" AS "id" WHERE "p_group_id" IS NOT NULL
+			UNION
+			SELECT "group_id" FROM "effective_group_membership" WHERE "member_id" = "p_group_id"
+			UNION
+			SELECT "p_member_id"::VARCHAR COLLATE "C" WHERE "p_member_id" IS NOT NULL
+			UNION
+			SELECT "member_id" FROM "effective_group_membership" WHERE "group_id" = "p_member_id"
+		) "a";
+		EXIT WHEN "v_affected" <@ "v_locked";
+		PERFORM "effective_access_lock_authorities"("v_affected");
+		"v_locked" := "v_locked" || "v_affected";
+	END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "effective_access_lock_on_group_membership"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "effective_access_lock_paths"(OLD."group_id", OLD."member_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "effective_access_lock_paths"(NEW."group_id", NEW."member_id");
+		RETURN NEW;
+	END IF;
+	RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Access of an authority affects all of its members. The vault is locked against concurrent archiving.
+CREATE FUNCTION "effective_access_lock_on_vault_access"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM 1 FROM "vault" WHERE "id" = OLD."vault_id" FOR NO KEY UPDATE;
+		PERFORM "effective_access_lock_paths"(NULL, OLD."authority_id");
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM 1 FROM "vault" WHERE "id" = NEW."vault_id" FOR NO KEY UPDATE;
+		PERFORM "effective_access_lock_paths"(NULL, NEW."authority_id");
+		RETURN NEW;
+	END IF;
+	RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION "effective_access_lock_on_access_token"() RETURNS TRIGGER AS $$
+BEGIN
+	IF TG_OP IN ('UPDATE', 'DELETE') THEN
+		PERFORM "effective_access_lock_authorities"(ARRAY[OLD."user_id"]);
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		PERFORM "effective_access_lock_authorities"(ARRAY[NEW."user_id"]);
+		RETURN NEW;
+	END IF;
+	RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The vault itself is locked by the update. Its effective members can't change meanwhile, as this requires a lock on the vault.
+CREATE FUNCTION "effective_access_lock_on_vault_archived"() RETURNS TRIGGER AS $$
+BEGIN
+	PERFORM "effective_access_lock_authorities"(ARRAY(SELECT "authority_id" FROM "effective_vault_access" WHERE "vault_id" = NEW."id"));
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION "effective_access_rebuild"() RETURNS VOID AS $$
+BEGIN
+	PERFORM pg_advisory_xact_lock(hashtext('effective_access'), 0);
+
+	-- changes to "effective_group_membership" are propagated to "effective_vault_access" by its triggers
+	DELETE FROM "effective_group_membership" "egm"
+		WHERE NOT EXISTS (SELECT 1 FROM "egm_expected"() "e" WHERE "e"."group_id" = "egm"."group_id" AND "e"."member_id" = "egm"."member_id" AND "e"."path" = "egm"."path");
+	INSERT INTO "effective_group_membership" ("group_id", "member_id", "depth", "path")
+		SELECT "group_id", "member_id", "depth", "path" FROM "egm_expected"()
+		ON CONFLICT DO NOTHING;
+
+	-- anything still missing or left over in "effective_vault_access"
+	DELETE FROM "effective_vault_access" "eva"
+		WHERE NOT EXISTS (SELECT 1 FROM "vault_access" "va" WHERE "va"."vault_id" = "eva"."vault_id" AND "va"."authority_id" = "eva"."authority_id" AND "va"."role" = "eva"."role")
+		AND NOT EXISTS (
+			SELECT 1 FROM "vault_access" "va"
+			INNER JOIN "effective_group_membership" "gm" ON "va"."authority_id" = "gm"."group_id"
+			WHERE "va"."vault_id" = "eva"."vault_id" AND "gm"."member_id" = "eva"."authority_id" AND "va"."role" = "eva"."role"
+		);
+	INSERT INTO "effective_vault_access" ("vault_id", "authority_id", "role")
+		SELECT "va"."vault_id", "va"."authority_id", "va"."role" FROM "vault_access" "va"
+		UNION
+		SELECT "va"."vault_id", "gm"."member_id", "va"."role" FROM "vault_access" "va"
+			INNER JOIN "effective_group_membership" "gm" ON "va"."authority_id" = "gm"."group_id"
+		ON CONFLICT DO NOTHING;
+
+	PERFORM "seat_ledger_rebuild"();
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
+
+CREATE TRIGGER "effective_access_lock" BEFORE INSERT OR UPDATE OR DELETE ON "group_membership"
+	FOR EACH ROW EXECUTE FUNCTION "effective_access_lock_on_group_membership"();
+CREATE TRIGGER "effective_access_lock" BEFORE INSERT OR UPDATE OR DELETE ON "vault_access"
+	FOR EACH ROW EXECUTE FUNCTION "effective_access_lock_on_vault_access"();
+CREATE TRIGGER "effective_access_lock" BEFORE INSERT OR UPDATE OR DELETE ON "access_token"
+	FOR EACH ROW EXECUTE FUNCTION "effective_access_lock_on_access_token"();
+CREATE TRIGGER "effective_access_lock" BEFORE UPDATE OF "archived" ON "vault"
+	FOR EACH ROW WHEN (OLD."archived" IS DISTINCT FROM NEW."archived") EXECUTE FUNCTION "effective_access_lock_on_vault_archived"();
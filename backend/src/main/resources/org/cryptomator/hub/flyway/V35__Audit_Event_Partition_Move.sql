@@ -0,0 +1,27 @@
+-- Moves events from the default partition to a newly created partition set-based, instead of collecting all of them in
+-- an array first, which had to fit into memory at once. The new partition is filled as a standalone table and attached
+-- afterwards, validated by a CHECK constraint matching its bounds, so attaching doesn't need to scan it again.
+-- Note that the primary key ("id", "timestamp") only guarantees unique ids per timestamp, ids are unique as long as they
+-- are taken from "audit_event_id_seq".
+
+-- @formatter:off
+CREATE OR REPLACE FUNCTION "audit_event_create_partition"("p_month" TIMESTAMP) RETURNS BOOLEAN AS $$
+DECLARE
+	"v_name" VARCHAR := 'audit_event_p' || TO_CHAR("p_month", 'YYYY_MM');
+	"v_from" TIMESTAMP WITH TIME ZONE := DATE_TRUNC('month', "p_month") AT TIME ZONE 'UTC';
+	"v_to" TIMESTAMP WITH TIME ZONE := (DATE_TRUNC('month', "p_month") + INTERVAL '1 month') AT TIME ZONE 'UTC';
+BEGIN
+	PERFORM PG_ADVISORY_XACT_LOCK(HASHTEXT('audit_event_partitions')); -- serialize maintenance of multiple Hub instances
+	IF TO_REGCLASS(FORMAT('%I', "v_name")) IS NOT NULL THEN
+		RETURN FALSE;
+	END IF;
+	EXECUTE FORMAT('CREATE TABLE %I (LIKE "audit_event" INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', "v_name");
+	EXECUTE FORMAT('ALTER TABLE %I ADD CONSTRAINT "AUDIT_EVENT_CHK_PARTITION_BOUNDS" CHECK ("timestamp" >= %L AND "timestamp" < %L)', "v_name", "v_from", "v_to");
+	-- the default partition must not contain any rows belonging to the new partition
+	EXECUTE FORMAT('WITH "moved" AS (DELETE FROM "audit_event_default" WHERE "timestamp" >= %L AND "timestamp" < %L RETURNING *) INSERT INTO %I SELECT * FROM "moved"', "v_from", "v_to", "v_name");
+	EXECUTE FORMAT('ALTER TABLE "audit_event" ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', "v_name", "v_from", "v_to");
+	EXECUTE FORMAT('ALTER TABLE %I DROP CONSTRAINT "AUDIT_EVENT_CHK_PARTITION_BOUNDS"', "v_name");
+	RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+-- @formatter:on
@@ -0,0 +1,57 @@
+package org.cryptomator.hub;
+
+import org.cryptomator.hub.entities.events.AuditEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+class AuditLogPartitionMaintainerTest {
+
+	private final AuditEvent.Repository auditEventRepo = Mockito.mock(AuditEvent.Repository.class);
+
+	private AuditLogPartitionMaintainer maintainer;
+
+	@BeforeEach
+	void setUp() {
+		maintainer = new AuditLogPartitionMaintainer();
+		maintainer.auditEventRepo = auditEventRepo;
+		maintainer.monthsAhead = 2;
+		maintainer.retentionMonths = Optional.empty();
+	}
+
+	@Test
+	@DisplayName("partitions are created for the current and upcoming months")
+	void testCreatePartitions() {
+		maintainer.maintain(YearMonth.of(2024, 11));
+
+		Mockito.verify(auditEventRepo).createPartition(YearMonth.of(2024, 11));
+		Mockito.verify(auditEventRepo).createPartition(YearMonth.of(2024, 12));
+		Mockito.verify(auditEventRepo).createPartition(YearMonth.of(2025, 1));
+		Mockito.verify(auditEventRepo, Mockito.times(3)).createPartition(ArgumentMatchers.any());
+	}
+
+	@Test
+	@DisplayName("partitions are retained without retention")
+	void testNoRetention() {
+		maintainer.maintain(YearMonth.of(2024, 11));
+
+		Mockito.verify(auditEventRepo, Mockito.never()).detachPartitionsBefore(ArgumentMatchers.any());
+	}
+
+	@Test
+	@DisplayName("partitions older than retention are detached")
+	void testRetention() {
+		maintainer.retentionMonths = Optional.of(12);
+		Mockito.doReturn(List.of("audit_event_p2023_10")).when(auditEventRepo).detachPartitionsBefore(ArgumentMatchers.any());
+
+		maintainer.maintain(YearMonth.of(2024, 11));
+
+		Mockito.verify(auditEventRepo).detachPartitionsBefore(YearMonth.of(2023, 11));
+	}
+}
@@ -0,0 +1,97 @@
+package org.cryptomator.hub;
+
+import jakarta.ws.rs.NotAuthorizedException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.ServerInfoResource;
+import org.keycloak.admin.client.token.TokenManager;
+import org.keycloak.representations.info.ServerInfoRepresentation;
+import org.keycloak.representations.info.SystemInfoRepresentation;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+class KeycloakAdminClientTest {
+
+	private final Keycloak keycloak = Mockito.mock(Keycloak.class);
+	private final ServerInfoResource serverInfoResource = Mockito.mock(ServerInfoResource.class);
+	private final SystemInfoRepresentation systemInfo = new SystemInfoRepresentation();
+	private final Clock clock = Mockito.mock(Clock.class);
+
+	private KeycloakAdminClient adminClient;
+
+	@BeforeEach
+	void setUp() {
+		var syncerConfig = Mockito.mock(SyncerConfig.class);
+		Mockito.when(syncerConfig.getKeycloakRealm()).thenReturn("cryptomator");
+		var serverInfo = new ServerInfoRepresentation();
+		serverInfo.setSystemInfo(systemInfo);
+		systemInfo.setVersion("25.0.4");
+		Mockito.when(keycloak.serverInfo()).thenReturn(serverInfoResource);
+		Mockito.when(serverInfoResource.getInfo()).thenReturn(serverInfo);
+		Mockito.when(clock.instant()).thenReturn(Instant.parse("2024-01-01T00:00:00Z"));
+
+		adminClient = Mockito.spy(new KeycloakAdminClient());
+		adminClient.syncerConfig = syncerConfig;
+		adminClient.versionCacheTtl = Duration.ofMinutes(10);
+		adminClient.clock = clock;
+		Mockito.doReturn(keycloak).when(adminClient).createKeycloak();
+	}
+
+	@Test
+	@DisplayName("client is created once and reused")
+	void testReuse() {
+		var realm = Mockito.mock(RealmResource.class);
+		Mockito.when(keycloak.realm("cryptomator")).thenReturn(realm);
+
+		Assertions.assertSame(realm, adminClient.withRealm(r -> r));
+		Assertions.assertSame(realm, adminClient.withRealm(r -> r));
+
+		Mockito.verify(adminClient, Mockito.times(1)).createKeycloak();
+	}
+
+	@Test
+	@DisplayName("client is recreated if it has been closed")
+	void testRecreateClosed() {
+		adminClient.withRealm(r -> r);
+		Mockito.when(keycloak.isClosed()).thenReturn(true);
+		adminClient.withRealm(r -> r);
+
+		Mockito.verify(adminClient, Mockito.times(2)).createKeycloak();
+	}
+
+	@Test
+	@DisplayName("request is retried with a new token after being rejected, without closing the shared client")
+	void testRetryUnauthorized() {
+		var tokenManager = Mockito.mock(TokenManager.class);
+		Mockito.when(keycloak.tokenManager()).thenReturn(tokenManager);
+		Mockito.when(tokenManager.getAccessTokenString()).thenReturn("revoked");
+		var realm = Mockito.mock(RealmResource.class);
+		Mockito.when(keycloak.realm("cryptomator")).thenThrow(new NotAuthorizedException("Bearer")).thenReturn(realm);
+
+		Assertions.assertSame(realm, adminClient.withRealm(r -> r));
+
+		Mockito.verify(tokenManager).invalidate("revoked");
+		Mockito.verify(keycloak, Mockito.never()).close();
+		Mockito.verify(adminClient, Mockito.times(1)).createKeycloak();
+	}
+
+	@Test
+	@DisplayName("server version is cached until ttl has expired")
+	void testServerVersionCached() {
+		Assertions.assertEquals("25.0.4", adminClient.serverVersion());
+		systemInfo.setVersion("26.0.0");
+		Mockito.when(clock.instant()).thenReturn(Instant.parse("2024-01-01T00:09:59Z"));
+		Assertions.assertEquals("25.0.4", adminClient.serverVersion());
+		Mockito.when(clock.instant()).thenReturn(Instant.parse("2024-01-01T00:10:00Z"));
+		Assertions.assertEquals("26.0.0", adminClient.serverVersion());
+
+		Mockito.verify(serverInfoResource, Mockito.times(2)).getInfo();
+	}
+}
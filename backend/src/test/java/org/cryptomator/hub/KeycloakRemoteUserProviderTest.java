@@ -1,6 +1,10 @@
 package org.cryptomator.hub;
 
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.ServiceUnavailableException;
 import org.cryptomator.hub.entities.Authority;
+import org.cryptomator.hub.entities.Group;
 import org.cryptomator.hub.entities.User;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,15 +16,21 @@ import org.keycloak.admin.client.resource.ClientsResource;
 import org.keycloak.admin.client.resource.GroupResource;
 import org.keycloak.admin.client.resource.GroupsResource;
 import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.ClientRepresentation;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.mockito.Mockito;
 
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 class KeycloakRemoteUserProviderTest {
 
@@ -65,6 +75,9 @@ class KeycloakRemoteUserProviderTest {
 
 		keycloakRemoteUserProvider = new KeycloakRemoteUserProvider();
 		keycloakRemoteUserProvider.syncerConfig = synerConfig;
+		keycloakRemoteUserProvider.parallelism = 4;
+		keycloakRemoteUserProvider.maxRetries = 2;
+		keycloakRemoteUserProvider.retryDelay = Duration.ofMillis(1);
 	}
 
 	@Test
@@ -132,6 +145,174 @@ class KeycloakRemoteUserProviderTest {
 	}
 
 
+	@Test
+	@DisplayName("test user listing fetches all pages and removes duplicates")
+	void testListUserMultiplePages() {
+		var page1 = IntStream.range(0, 5000).mapToObj(i -> userRepresentation("id" + i)).toList();
+		var page2 = IntStream.range(4999, 9999).mapToObj(i -> userRepresentation("id" + i)).toList(); // first user of page 2 already on page 1
+		var page3 = IntStream.range(9999, 10100).mapToObj(i -> userRepresentation("id" + i)).toList();
+		Mockito.when(usersResource.count()).thenReturn(10100);
+		Mockito.when(usersResource.list(0, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST)).thenReturn(page1);
+		Mockito.when(usersResource.list(5000, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST)).thenReturn(page2);
+		Mockito.when(usersResource.list(10000, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST)).thenReturn(page3);
+
+		var result = keycloakRemoteUserProvider.users(realm);
+
+		Assertions.assertEquals(10100, result.size());
+		Assertions.assertEquals("id0", result.getFirst().getId());
+		Assertions.assertEquals("id10099", result.getLast().getId());
+	}
+
+	@Test
+	@DisplayName("test user pages are fetched lazily, each in its own request to the realm")
+	void testUserPages() {
+		var adminClient = Mockito.mock(KeycloakAdminClient.class);
+		Mockito.when(adminClient.withRealm(Mockito.any())).thenAnswer(invocation -> invocation.<Function<RealmResource, ?>>getArgument(0).apply(realm));
+		keycloakRemoteUserProvider.keycloakAdminClient = adminClient;
+		Mockito.when(usersResource.list(0, 2)).thenReturn(List.of(user1, syncer));
+		Mockito.when(usersResource.list(2, 2)).thenReturn(List.of(user2));
+
+		var pages = keycloakRemoteUserProvider.userPages(2).iterator();
+
+		Assertions.assertEquals(List.of("id3000"), pages.next().stream().map(User::getId).toList());
+		Mockito.verify(usersResource, Mockito.never()).list(2, 2);
+		Mockito.verify(adminClient, Mockito.times(1)).withRealm(Mockito.any());
+		Assertions.assertEquals(List.of("id3001"), pages.next().stream().map(User::getId).toList());
+		Mockito.verify(adminClient, Mockito.times(2)).withRealm(Mockito.any());
+		Assertions.assertFalse(pages.hasNext());
+		Mockito.verify(usersResource, Mockito.never()).list(4, 2);
+		Mockito.verify(adminClient, Mockito.times(3)).withRealm(Mockito.any()); // cryptomatorhub-cli user
+	}
+
+	@Test
+	@DisplayName("test missing users are looked up within a single request to the realm")
+	void testMissingUsers() {
+		var adminClient = Mockito.mock(KeycloakAdminClient.class);
+		Mockito.when(adminClient.withRealm(Mockito.any())).thenAnswer(invocation -> invocation.<Function<RealmResource, ?>>getArgument(0).apply(realm));
+		keycloakRemoteUserProvider.keycloakAdminClient = adminClient;
+		var existing = Mockito.mock(UserResource.class);
+		var missing = Mockito.mock(UserResource.class);
+		Mockito.when(existing.toRepresentation()).thenReturn(user1);
+		Mockito.when(missing.toRepresentation()).thenThrow(new NotFoundException());
+		Mockito.when(usersResource.get("id3000")).thenReturn(existing);
+		Mockito.when(usersResource.get("id9999")).thenReturn(missing);
+
+		var result = keycloakRemoteUserProvider.missingUsers(List.of("id3000", "id9999"));
+
+		Assertions.assertEquals(Set.of("id9999"), result);
+		Mockito.verify(adminClient, Mockito.times(1)).withRealm(Mockito.any());
+	}
+
+	private static UserRepresentation userRepresentation(String id) {
+		var user = new UserRepresentation();
+		user.setId(id);
+		user.setUsername("username " + id);
+		return user;
+	}
+
+	@Nested
+	@DisplayName("Test concurrent fetching")
+	class ConcurrentFetching {
+
+		@Test
+		@DisplayName("transient failures are retried")
+		public void testRetryTransientFailure() throws Exception {
+			Callable<String> request = Mockito.mock(Callable.class);
+			Mockito.when(request.call()).thenThrow(new ProcessingException("connection reset")).thenThrow(new ServiceUnavailableException()).thenReturn("success");
+
+			var result = keycloakRemoteUserProvider.withRetry(request);
+
+			Assertions.assertEquals("success", result);
+			Mockito.verify(request, Mockito.times(3)).call();
+		}
+
+		@Test
+		@DisplayName("retries are limited")
+		public void testRetryLimit() {
+			Callable<String> request = () -> {
+				throw new ProcessingException("connection reset");
+			};
+
+			Assertions.assertThrows(ProcessingException.class, () -> keycloakRemoteUserProvider.withRetry(request));
+		}
+
+		@Test
+		@DisplayName("non-transient failures are not retried")
+		public void testNoRetryOnClientError() throws Exception {
+			Callable<String> request = Mockito.mock(Callable.class);
+			Mockito.when(request.call()).thenThrow(new NotFoundException());
+
+			Assertions.assertThrows(NotFoundException.class, () -> keycloakRemoteUserProvider.withRetry(request));
+			Mockito.verify(request, Mockito.times(1)).call();
+		}
+
+		@Test
+		@DisplayName("failing member pages are retried once per attempt, not again for the whole group")
+		public void testRetryOnSingleLevel() {
+			var groupsResource = Mockito.mock(GroupsResource.class);
+			var groupResource = Mockito.mock(GroupResource.class);
+			var group = new GroupRepresentation();
+			group.setId("grp0");
+			group.setName("Group 0");
+			Mockito.when(realm.groups()).thenReturn(groupsResource);
+			Mockito.when(groupsResource.groups(0, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST)).thenReturn(List.of(group));
+			Mockito.when(groupsResource.group("grp0")).thenReturn(groupResource);
+			Mockito.when(groupResource.members(0, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST)).thenThrow(new ServiceUnavailableException());
+
+			Assertions.assertThrows(ServiceUnavailableException.class, () -> keycloakRemoteUserProvider.groups(realm));
+			Mockito.verify(groupResource, Mockito.times(keycloakRemoteUserProvider.maxRetries + 1)).members(0, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST);
+		}
+
+		@Test
+		@DisplayName("results keep the order of the requests")
+		public void testResultOrder() {
+			var requests = IntStream.range(0, 20).mapToObj(i -> (Callable<Integer>) () -> {
+				Thread.sleep(20 - i);
+				return i;
+			}).toList();
+
+			var result = keycloakRemoteUserProvider.fetchConcurrently(requests);
+
+			Assertions.assertEquals(IntStream.range(0, 20).boxed().toList(), result);
+		}
+
+		@Test
+		@DisplayName("member lists of groups are fetched concurrently")
+		public void testSpeedup() {
+			var groupsResource = Mockito.mock(GroupsResource.class);
+			var groups = IntStream.range(0, 16).mapToObj(i -> {
+				var group = new GroupRepresentation();
+				group.setId("grp" + i);
+				group.setName("Group " + i);
+				return group;
+			}).toList();
+			Mockito.when(realm.groups()).thenReturn(groupsResource);
+			Mockito.when(groupsResource.groups(0, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST)).thenReturn(groups);
+			for (var group : groups) {
+				var groupResource = Mockito.mock(GroupResource.class);
+				Mockito.when(groupsResource.group(group.getId())).thenReturn(groupResource);
+				Mockito.when(groupResource.members(0, KeycloakRemoteUserProvider.MAX_COUNT_PER_REQUEST)).thenAnswer(invocation -> {
+					Thread.sleep(50); // simulated network latency
+					return List.of(userRepresentation("member of " + group.getId()));
+				});
+			}
+
+			keycloakRemoteUserProvider.parallelism = 1;
+			var sequentialStart = System.nanoTime();
+			var sequentialResult = keycloakRemoteUserProvider.groups(realm);
+			var sequentialDuration = Duration.ofNanos(System.nanoTime() - sequentialStart);
+
+			keycloakRemoteUserProvider.parallelism = 8;
+			var concurrentStart = System.nanoTime();
+			var concurrentResult = keycloakRemoteUserProvider.groups(realm);
+			var concurrentDuration = Duration.ofNanos(System.nanoTime() - concurrentStart);
+
+			Assertions.assertEquals(sequentialResult.stream().map(Group::getMembers).toList(), concurrentResult.stream().map(Group::getMembers).toList());
+			Assertions.assertEquals("member of grp15", concurrentResult.getLast().getMembers().iterator().next().getId());
+			Assertions.assertTrue(concurrentDuration.multipliedBy(3).compareTo(sequentialDuration) < 0, () -> "sequential: " + sequentialDuration + ", concurrent: " + concurrentDuration);
+		}
+	}
+
 	@Nested
 	@DisplayName("Test groups")
 	class Groups {
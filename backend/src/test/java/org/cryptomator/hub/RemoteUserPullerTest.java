@@ -3,11 +3,14 @@ package org.cryptomator.hub;
 import org.cryptomator.hub.entities.Authority;
 import org.cryptomator.hub.entities.Group;
 import org.cryptomator.hub.entities.User;
+import org.cryptomator.hub.filters.VaultRoleCache;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.converter.ArgumentConversionException;
 import org.junit.jupiter.params.converter.ConvertWith;
@@ -17,10 +20,12 @@ import org.mockito.Mockito;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class RemoteUserPullerTest {
 
@@ -28,15 +33,24 @@ class RemoteUserPullerTest {
 	private final User user = Mockito.mock(User.class);
 	private final Authority.Repository authorityRepo = Mockito.mock(Authority.Repository.class);
 	private final User.Repository userRepo = Mockito.mock(User.Repository.class);
+	private final Group.Repository groupRepo = Mockito.mock(Group.Repository.class);
+	private final VaultRoleCache vaultRoleCache = Mockito.mock(VaultRoleCache.class);
 
 	private RemoteUserPuller remoteUserPuller;
 
 	@BeforeEach
 	void setUp() {
-		remoteUserPuller = new RemoteUserPuller();
+		remoteUserPuller = Mockito.spy(new RemoteUserPuller());
 		remoteUserPuller.remoteUserProvider = remoteUserProvider;
 		remoteUserPuller.authorityRepo = authorityRepo;
 		remoteUserPuller.userRepo = userRepo;
+		remoteUserPuller.groupRepo = groupRepo;
+		remoteUserPuller.vaultRoleCache = vaultRoleCache;
+		remoteUserPuller.batchSize = 2;
+		Mockito.doAnswer(invocation -> {
+			invocation.getArgument(0, Runnable.class).run();
+			return null;
+		}).when(remoteUserPuller).inTransaction(Mockito.any());
 		Mockito.doNothing().when(authorityRepo).persist((Authority) Mockito.any());
 		Mockito.doNothing().when(userRepo).persist((User) Mockito.any());
 	}
@@ -108,6 +122,7 @@ class RemoteUserPullerTest {
 
 			deletedAuthorityIds.forEach((id, authority) ->
 					Mockito.verify(authorityRepo).delete(authority));
+			Mockito.verify(vaultRoleCache, Mockito.times(deletedAuthorityIds.isEmpty() ? 0 : 1)).invalidateAllOnCommit();
 		}
 
 		private static class TestAuthority extends Authority {
@@ -203,9 +218,181 @@ class RemoteUserPullerTest {
 				Mockito.verify(dbGroup).setName(String.format("name %s", groupId));
 				MatcherAssert.assertThat(dbGroupMembers, Matchers.containsInAnyOrder(user, otherKCUser));
 			}
+			Mockito.verify(vaultRoleCache, Mockito.atMost(updatedGroupIds.size())).invalidateAllOnCommit();
+			Mockito.verify(vaultRoleCache, Mockito.atLeast(updatedGroupIds.isEmpty() ? 0 : 1)).invalidateAllOnCommit();
 		}
 	}
 
+	@Nested
+	@DisplayName("Test incremental sync")
+	public class TestIncrementalSync {
+
+		@Test
+		@DisplayName("user hash covers synchronized attributes only")
+		public void testUserSyncHash() {
+			var user1 = newUser("foo", "Foo", "foo@example.com");
+			var user2 = newUser("foo", "Foo", "foo@example.com");
+			user2.setEcdhPublicKey("not synchronized");
+			var user3 = newUser("foo", "Foo", "foo2@example.com");
+
+			Assertions.assertEquals(RemoteUserPuller.syncHash(user1), RemoteUserPuller.syncHash(user2));
+			Assertions.assertNotEquals(RemoteUserPuller.syncHash(user1), RemoteUserPuller.syncHash(user3));
+		}
+
+		@Test
+		@DisplayName("group hash covers members regardless of their order")
+		public void testGroupSyncHash() {
+			var group1 = newGroup("g", "Group", newUser("a", "A", null), newUser("b", "B", null));
+			var group2 = newGroup("g", "Group", newUser("b", "B", null), newUser("a", "A", null));
+			var group3 = newGroup("g", "Group", newUser("a", "A", null));
+
+			Assertions.assertEquals(RemoteUserPuller.syncHash(group1), RemoteUserPuller.syncHash(group2));
+			Assertions.assertNotEquals(RemoteUserPuller.syncHash(group1), RemoteUserPuller.syncHash(group3));
+		}
+
+		@Test
+		@DisplayName("only added, deleted and changed authorities are written")
+		public void testSyncIncrementally() {
+			var unchanged = newUser("unchanged", "Unchanged", null);
+			var changed = newUser("changed", "Changed", "new@example.com");
+			var added = newUser("added", "Added", null);
+			var unchangedGroup = newGroup("unchangedGroup", "Unchanged Group", unchanged);
+			var changedGroup = newGroup("changedGroup", "Changed Group", unchanged, changed);
+			var keycloakUsers = Stream.of(unchanged, changed, added).peek(u -> u.setSyncHash(RemoteUserPuller.syncHash(u))).collect(Collectors.toMap(Authority::getId, Function.identity()));
+			var keycloakGroups = Stream.of(unchangedGroup, changedGroup).peek(g -> g.setSyncHash(RemoteUserPuller.syncHash(g))).collect(Collectors.toMap(Authority::getId, Function.identity()));
+			var dbChanged = newUser("changed", "Changed", "old@example.com");
+			var dbChangedGroup = newGroup("changedGroup", "Changed Group", unchanged);
+			Mockito.doReturn(Map.of("unchanged", unchanged.getSyncHash(), "changed", "outdated", "deleted", "irrelevant")).when(userRepo).findSyncHashes();
+			Mockito.doReturn(Map.of("unchangedGroup", unchangedGroup.getSyncHash(), "changedGroup", "outdated")).when(groupRepo).findSyncHashes();
+			Mockito.doReturn(Stream.of(dbChanged)).when(authorityRepo).findAllInList(List.of("changed"));
+			Mockito.doReturn(Stream.of(dbChangedGroup)).when(authorityRepo).findAllInList(List.of("changedGroup"));
+
+			remoteUserPuller.syncIncrementally(keycloakGroups, keycloakUsers);
+
+			Mockito.verify(authorityRepo).persist(added);
+			Mockito.verify(authorityRepo).deleteAllInList(List.of("deleted"));
+			Mockito.verify(userRepo).persist(dbChanged);
+			Assertions.assertEquals("new@example.com", dbChanged.getEmail());
+			Assertions.assertEquals(changed.getSyncHash(), dbChanged.getSyncHash());
+			Assertions.assertEquals(Set.of(unchanged, changed), dbChangedGroup.getMembers());
+			Assertions.assertEquals(changedGroup.getSyncHash(), dbChangedGroup.getSyncHash());
+			Mockito.verify(authorityRepo, Mockito.never()).persist(unchanged);
+			Mockito.verify(authorityRepo, Mockito.never()).persist(unchangedGroup);
+			Mockito.verify(authorityRepo, Mockito.never()).findAllInList(List.of("unchanged"));
+			Mockito.verify(authorityRepo, Mockito.never()).findAllInList(List.of("unchangedGroup"));
+			Mockito.verify(remoteUserPuller, Mockito.times(4)).inTransaction(Mockito.any());
+		}
+
+		@Test
+		@DisplayName("changes are written in batches")
+		public void testSyncIncrementallyInBatches() {
+			var keycloakUsers = Stream.of("a", "b", "c", "d", "e").map(id -> newUser(id, id, null)).collect(Collectors.toMap(Authority::getId, Function.identity()));
+			Mockito.doReturn(Map.of()).when(userRepo).findSyncHashes();
+			Mockito.doReturn(Map.of()).when(groupRepo).findSyncHashes();
+
+			remoteUserPuller.syncIncrementally(Map.of(), keycloakUsers);
+
+			Mockito.verify(authorityRepo, Mockito.times(5)).persist((Authority) Mockito.any());
+			Mockito.verify(remoteUserPuller, Mockito.times(3)).inTransaction(Mockito.any());
+		}
+	}
+
+	@Nested
+	@DisplayName("Test streaming sync")
+	public class TestStreamingSync {
+
+		@BeforeEach
+		void setUp() {
+			Mockito.doReturn(Stream.of()).when(remoteUserProvider).userPages(Mockito.anyInt());
+			Mockito.doReturn(Stream.of()).when(remoteUserProvider).groupPages(Mockito.anyInt());
+			Mockito.doReturn(List.of()).when(authorityRepo).findSyncUnseenIds(Mockito.any(), Mockito.any(), Mockito.anyInt());
+		}
+
+		@Test
+		@DisplayName("each page is matched by id and committed separately")
+		public void testSyncPages() {
+			var unchanged = newUser("unchanged", "Unchanged", null);
+			var changed = newUser("changed", "Changed", "new@example.com");
+			var added = newUser("added", "Added", null);
+			var group = newGroup("group", "Group", unchanged, changed);
+			var dbUnchanged = newUser("unchanged", "Unchanged", null);
+			dbUnchanged.setSyncHash(RemoteUserPuller.syncHash(unchanged));
+			var dbChanged = newUser("changed", "Changed", "old@example.com");
+			var dbGroup = newGroup("group", "Group", unchanged);
+			Mockito.doReturn(Stream.of(List.of(unchanged, changed), List.of(added))).when(remoteUserProvider).userPages(2);
+			Mockito.doReturn(Stream.<List<Group>>of(List.of(group))).when(remoteUserProvider).groupPages(2);
+			Mockito.doReturn(Stream.of(dbUnchanged, dbChanged)).when(authorityRepo).findAllInList(List.of("unchanged", "changed"));
+			Mockito.doReturn(Stream.of()).when(authorityRepo).findAllInList(List.of("added"));
+			Mockito.doReturn(Stream.of(dbGroup)).when(authorityRepo).findAllInList(List.of("group"));
+
+			remoteUserPuller.syncStreaming();
+
+			Mockito.verify(authorityRepo).persist(added);
+			Mockito.verify(userRepo).persist(dbChanged);
+			Mockito.verify(userRepo, Mockito.never()).persist(dbUnchanged);
+			Assertions.assertEquals("new@example.com", dbChanged.getEmail());
+			Assertions.assertEquals(Set.of(unchanged, changed), dbGroup.getMembers());
+			Mockito.verify(authorityRepo).markSyncSeen(List.of("unchanged", "changed"));
+			Mockito.verify(authorityRepo).markSyncSeen(List.of("added"));
+			Mockito.verify(authorityRepo).markSyncSeen(List.of("group"));
+			Mockito.verify(authorityRepo, Mockito.never()).deleteAllInList(Mockito.any());
+		}
+
+		@Test
+		@DisplayName("seen authorities are tracked in the database, which is cleared before and after the sync")
+		public void testSyncSeen() {
+			var seen = newUser("seen", "Seen", null);
+			seen.setSyncHash(RemoteUserPuller.syncHash(seen));
+			Mockito.doReturn(Stream.of(List.of(seen))).when(remoteUserProvider).userPages(2);
+			Mockito.doReturn(Stream.of(seen)).when(authorityRepo).findAllInList(List.of("seen"));
+
+			remoteUserPuller.syncStreaming();
+
+			var inOrder = Mockito.inOrder(authorityRepo);
+			inOrder.verify(authorityRepo).clearSyncSeen();
+			inOrder.verify(authorityRepo).markSyncSeen(List.of("seen"));
+			inOrder.verify(authorityRepo).findSyncUnseenIds(User.class, "", 2);
+			inOrder.verify(authorityRepo).clearSyncSeen();
+			Mockito.verify(userRepo, Mockito.never()).persist((User) Mockito.any());
+		}
+
+		@Test
+		@DisplayName("unseen authorities are checked remotely in batches and deleted only if missing remotely")
+		public void testSyncUnseen() {
+			Mockito.doReturn(List.of("a", "b"), List.of("c"), List.of()).when(authorityRepo).findSyncUnseenIds(Mockito.eq(User.class), Mockito.any(), Mockito.eq(2));
+			Mockito.doReturn(List.of("g"), List.of()).when(authorityRepo).findSyncUnseenIds(Mockito.eq(Group.class), Mockito.any(), Mockito.eq(2));
+			Mockito.doReturn(Set.of("b")).when(remoteUserProvider).missingUsers(List.of("a", "b"));
+			Mockito.doReturn(Set.of("c")).when(remoteUserProvider).missingUsers(List.of("c"));
+			Mockito.doReturn(Set.of("g")).when(remoteUserProvider).missingGroups(List.of("g"));
+
+			remoteUserPuller.syncStreaming();
+
+			Mockito.verify(authorityRepo).findSyncUnseenIds(User.class, "", 2);
+			Mockito.verify(authorityRepo).findSyncUnseenIds(User.class, "b", 2);
+			Mockito.verify(authorityRepo).findSyncUnseenIds(User.class, "c", 2);
+			Mockito.verify(authorityRepo).deleteAllInList(List.of("b"));
+			Mockito.verify(authorityRepo).deleteAllInList(List.of("c"));
+			Mockito.verify(authorityRepo).deleteAllInList(List.of("g"));
+			Mockito.verify(authorityRepo, Mockito.times(3)).deleteAllInList(Mockito.any());
+		}
+	}
+
+	private User newUser(String id, String name, String email) {
+		var user = new User();
+		user.setId(id);
+		user.setName(name);
+		user.setEmail(email);
+		return user;
+	}
+
+	private Group newGroup(String id, String name, Authority... members) {
+		var group = new Group();
+		group.setId(id);
+		group.setName(name);
+		group.setMembers(new HashSet<>(Set.of(members)));
+		return group;
+	}
+
 	private static class StringArrayConverter extends SimpleArgumentConverter {
 
 		@Override
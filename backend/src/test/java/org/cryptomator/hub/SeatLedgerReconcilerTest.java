@@ -0,0 +1,59 @@
+package org.cryptomator.hub;
+
+import org.cryptomator.hub.entities.EffectiveVaultAccess;
+import org.cryptomator.hub.entities.SeatLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mockito;
+
+class SeatLedgerReconcilerTest {
+
+	private final EffectiveVaultAccess.Repository effectiveVaultAccessRepo = Mockito.mock(EffectiveVaultAccess.Repository.class);
+	private final SeatLedger.Repository seatLedgerRepo = Mockito.mock(SeatLedger.Repository.class);
+
+	private SeatLedgerReconciler reconciler;
+
+	@BeforeEach
+	void setUp() {
+		reconciler = new SeatLedgerReconciler();
+		reconciler.effectiveVaultAccessRepo = effectiveVaultAccessRepo;
+		reconciler.seatLedgerRepo = seatLedgerRepo;
+		Mockito.doReturn(5L).when(effectiveVaultAccessRepo).recountSeatOccupyingUsers();
+		Mockito.doReturn(3L).when(effectiveVaultAccessRepo).recountSeatOccupyingUsersWithAccessToken();
+	}
+
+	@Test
+	@DisplayName("consistent ledger is left untouched")
+	void testConsistentLedger() {
+		Mockito.doReturn(5L).when(seatLedgerRepo).countEntries();
+		Mockito.doReturn(3L).when(seatLedgerRepo).countEntriesWithAccessToken();
+		Mockito.doReturn(5L).when(seatLedgerRepo).countOccupied();
+		Mockito.doReturn(3L).when(seatLedgerRepo).countOccupiedWithAccessToken();
+
+		reconciler.reconcile();
+
+		Mockito.verify(seatLedgerRepo, Mockito.never()).rebuild();
+	}
+
+	@DisplayName("drifted ledger is rebuilt")
+	@ParameterizedTest(name = "ledger: {0}/{1}, summary: {2}/{3}")
+	@CsvSource({
+			"4, 3, 5, 3",
+			"5, 2, 5, 3",
+			"5, 3, 6, 3",
+			"5, 3, 5, 4"
+	})
+	void testDriftedLedger(long entries, long entriesWithAccessToken, long occupied, long occupiedWithAccessToken) {
+		Mockito.doReturn(entries).when(seatLedgerRepo).countEntries();
+		Mockito.doReturn(entriesWithAccessToken).when(seatLedgerRepo).countEntriesWithAccessToken();
+		Mockito.doReturn(occupied).when(seatLedgerRepo).countOccupied();
+		Mockito.doReturn(occupiedWithAccessToken).when(seatLedgerRepo).countOccupiedWithAccessToken();
+
+		reconciler.reconcile();
+
+		Mockito.verify(seatLedgerRepo).rebuild();
+	}
+}
@@ -0,0 +1,124 @@
+package org.cryptomator.hub.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.cryptomator.hub.entities.VaultAccess;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+class AuditLogExportFormatTest {
+
+	private static final UUID VAULT_ID = UUID.fromString("7E57C0DE-0000-4000-8000-000100001111");
+	private static final Instant TIMESTAMP = Instant.parse("2020-02-20T20:20:20.010Z");
+
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+	@Test
+	@DisplayName("NDJSON contains one event per line")
+	void testNdjson() throws IOException {
+		var out = new ByteArrayOutputStream();
+		try (var writer = AuditLogExportFormat.NDJSON.open(objectMapper, out)) {
+			writer.write(new AuditLogResource.VaultCreatedEventDto(10L, TIMESTAMP, "VAULT_CREATE", "user1", VAULT_ID, "Vault 1", "desc"));
+			writer.write(new AuditLogResource.VaultMemberAddedEventDto(11L, TIMESTAMP, "VAULT_MEMBER_ADD", "user1", VAULT_ID, "user2", VaultAccess.Role.MEMBER));
+		}
+
+		var lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+		Assertions.assertEquals(3, lines.length);
+		Assertions.assertEquals(10L, objectMapper.readTree(lines[0]).get("id").asLong());
+		Assertions.assertEquals("Vault 1", objectMapper.readTree(lines[0]).get("vaultName").asText());
+		Assertions.assertEquals("VAULT_MEMBER_ADD", objectMapper.readTree(lines[1]).get("type").asText());
+		Assertions.assertEquals("", lines[2]);
+	}
+
+	@Test
+	@DisplayName("CSV contains header and one event per row")
+	void testCsv() throws IOException {
+		var out = new ByteArrayOutputStream();
+		try (var writer = AuditLogExportFormat.CSV.open(objectMapper, out)) {
+			writer.write(new AuditLogResource.VaultCreatedEventDto(10L, TIMESTAMP, "VAULT_CREATE", "user1", VAULT_ID, "Vault 1", "a, \"quoted\" desc"));
+		}
+
+		var rows = out.toString(StandardCharsets.UTF_8).split("\r\n");
+		Assertions.assertEquals(2, rows.length);
+		Assertions.assertEquals(String.join(",", AuditLogExportFormat.CSV_COLUMNS), rows[0]);
+		Assertions.assertTrue(rows[1].startsWith("10,2020-02-20T20:20:20.010Z,VAULT_CREATE," + VAULT_ID + ",Vault 1,\"a, \"\"quoted\"\" desc\","));
+		Assertions.assertTrue(rows[1].endsWith(",user1,,,,,,,"));
+	}
+
+	@Test
+	@DisplayName("CSV of empty export contains header only")
+	void testEmptyCsv() throws IOException {
+		var out = new ByteArrayOutputStream();
+		try (var ignored = AuditLogExportFormat.CSV.open(objectMapper, out)) {
+			// no events
+		}
+
+		Assertions.assertEquals(String.join(",", AuditLogExportFormat.CSV_COLUMNS) + "\r\n", out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	@DisplayName("CSV columns cover all event properties")
+	void testCsvColumnsComplete() {
+		var dtoTypes = Arrays.stream(AuditLogResource.class.getDeclaredClasses()).filter(c -> c.isRecord() && AuditLogResource.AuditEventDto.class.isAssignableFrom(c));
+
+		dtoTypes.flatMap(c -> Arrays.stream(c.getRecordComponents())).map(RecordComponent::getName).forEach(property -> {
+			Assertions.assertTrue(AuditLogExportFormat.CSV_COLUMNS.contains(property), property);
+		});
+	}
+
+	@ParameterizedTest
+	@CsvSource(value = {
+			"foo, foo",
+			"'foo,bar', '\"foo,bar\"'",
+			"'say \"hi\"', '\"say \"\"hi\"\"\"'",
+	})
+	@DisplayName("CSV values are escaped")
+	void testEscape(String value, String expected) {
+		Assertions.assertEquals(expected, AuditLogExportFormat.escape(value));
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', quoteCharacter = '`', value = {
+			"=HYPERLINK(\"http://example.com\") | \"'=HYPERLINK(\"\"http://example.com\"\")\"",
+			"+1+1 | '+1+1",
+			"-1+1 | '-1+1",
+			"@SUM(A1) | '@SUM(A1)",
+			"=1,2 | \"'=1,2\"",
+			"a=b | a=b",
+	})
+	@DisplayName("CSV values starting like formulas are neutralized")
+	void testEscapeFormula(String value, String expected) {
+		Assertions.assertEquals(expected, AuditLogExportFormat.escape(value));
+	}
+
+	@Test
+	@DisplayName("CSV values starting with tab or carriage return are neutralized")
+	void testEscapeFormulaWhitespace() {
+		Assertions.assertEquals("'\t=1", AuditLogExportFormat.escape("\t=1"));
+		Assertions.assertEquals("\"'\r=1\"", AuditLogExportFormat.escape("\r=1"));
+	}
+
+	@Test
+	@DisplayName("CSV of an event with a formula as vault name contains the neutralized name")
+	void testCsvFormulaInjection() throws IOException {
+		var out = new ByteArrayOutputStream();
+		try (var writer = AuditLogExportFormat.CSV.open(objectMapper, out)) {
+			writer.write(new AuditLogResource.VaultCreatedEventDto(10L, TIMESTAMP, "VAULT_CREATE", "user1", VAULT_ID, "=cmd|' /C calc'!A0", "desc"));
+		}
+
+		var rows = out.toString(StandardCharsets.UTF_8).split("\r\n");
+		Assertions.assertTrue(rows[1].contains("," + VAULT_ID + ",'=cmd|' /C calc'!A0,desc,"));
+	}
+}
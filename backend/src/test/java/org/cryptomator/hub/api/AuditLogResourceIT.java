@@ -68,4 +68,49 @@ public class AuditLogResourceIT {
 				.then().statusCode(403);
 	}
 
+	@Test
+	@TestSecurity(user = "Admin", roles = {"admin"})
+	@DisplayName("As admin, GET /auditlog/export?startDate=2020-02-20T00:00:00.000Z&endDate=2020-02-20T23:59:59.999Z&paginationId=3000 returns 200 with remaining entries as NDJSON")
+	public void testExportAuditLogEntries() {
+		given().param("startDate", "2020-02-20T00:00:00.000Z")
+				.param("endDate", "2020-02-20T23:59:59.999Z")
+				.param("paginationId", 3000L)
+				.when().get("/auditlog/export")
+				.then().statusCode(200)
+				.contentType("application/x-ndjson")
+				.body(Matchers.startsWith("{"), Matchers.containsString("\"id\":4242"), Matchers.not(Matchers.containsString("\"id\":3000")));
+	}
+
+	@Test
+	@TestSecurity(user = "Admin", roles = {"admin"})
+	@DisplayName("As admin, GET /auditlog/export?startDate=2020-02-20T00:00:00.000Z&endDate=2020-02-20T23:59:59.999Z&format=csv returns 200 with all entries as CSV")
+	public void testExportAuditLogEntriesAsCsv() {
+		given().param("startDate", "2020-02-20T00:00:00.000Z")
+				.param("endDate", "2020-02-20T23:59:59.999Z")
+				.param("format", "csv")
+				.when().get("/auditlog/export")
+				.then().statusCode(200)
+				.contentType(Matchers.startsWith("text/csv"))
+				.body(Matchers.startsWith("id,timestamp,type,"), Matchers.containsString("\r\n10,2020-02-20T20:20:20.010Z,VAULT_CREATE,"));
+	}
+
+	@Test
+	@TestSecurity(user = "Admin", roles = {"admin"})
+	@DisplayName("As admin, GET /auditlog/export?startDate=2020-02-20T00:00:00.000Z&endDate=2020-02-20T23:59:59.999Z&format=xml returns 400")
+	public void testExportAuditLogEntriesUnknownFormat() {
+		given().param("startDate", "2020-02-20T00:00:00.000Z")
+				.param("endDate", "2020-02-20T23:59:59.999Z")
+				.param("format", "xml")
+				.when().get("/auditlog/export")
+				.then().statusCode(400);
+	}
+
+	@Test
+	@TestSecurity(user = "User", roles = {"user"})
+	@DisplayName("As user, GET /auditlog/export?startDate=2020-02-20T00:00:00.000Z&endDate=2020-02-20T23:59:59.999Z returns 403")
+	public void testExportAuditLogEntriesAsUser() {
+		when().get("/auditlog/export?startDate=2020-02-20T00:00:00.000Z&endDate=2020-02-20T23:59:59.999Z")
+				.then().statusCode(403);
+	}
+
 }
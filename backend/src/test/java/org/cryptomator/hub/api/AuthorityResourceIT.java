@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
 import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasSize;
@@ -74,6 +75,22 @@ public class AuthorityResourceIT {
 					.body("id", empty());
 		}
 
+		@Test
+		@DisplayName("GET /search?query=_ returns 200 with empty body")
+		public void testGetWildcardEscaped() {
+			when().get("/authorities/search?query=_")
+					.then().statusCode(200)
+					.body("id", empty());
+		}
+
+		@Test
+		@DisplayName("GET /search?query=Group Name 1 returns 200 with \"group1\" ranked first")
+		public void testGetExactMatchFirst() {
+			when().get("/authorities/search?query=Group Name 1")
+					.then().statusCode(200)
+					.body("id[0]", is("group1"));
+		}
+
 		@Test
 		@DisplayName("GET /search?query=1 returns 200 with \"user1\", \"group1\"")
 		public void testGetSameUserGroupName() {
@@ -0,0 +1,68 @@
+package org.cryptomator.hub.api;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+class ConditionalGetTest {
+
+	private final Request request = Mockito.mock(Request.class);
+	@SuppressWarnings("unchecked")
+	private final Supplier<Object> entity = Mockito.mock(Supplier.class);
+
+	@Test
+	@DisplayName("unversioned resource is returned without entity tag")
+	void testUnversioned() {
+		Mockito.when(entity.get()).thenReturn("foo");
+
+		try (var response = ConditionalGet.respond(request, Optional.empty(), "", entity)) {
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertEquals("foo", response.getEntity());
+			Assertions.assertNull(response.getEntityTag());
+		}
+		Mockito.verifyNoInteractions(request);
+	}
+
+	@Test
+	@DisplayName("changed resource is loaded and tagged")
+	void testModified() {
+		Mockito.when(entity.get()).thenReturn("foo");
+		Mockito.when(request.evaluatePreconditions(Mockito.any(EntityTag.class))).thenReturn(null);
+
+		try (var response = ConditionalGet.respond(request, Optional.of(42L), "", entity)) {
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertEquals("foo", response.getEntity());
+			Assertions.assertEquals(new EntityTag("42"), response.getEntityTag());
+		}
+	}
+
+	@Test
+	@DisplayName("unchanged resource is not loaded")
+	void testNotModified() {
+		Mockito.when(request.evaluatePreconditions(new EntityTag("42"))).thenReturn(Response.notModified(new EntityTag("42")));
+
+		try (var response = ConditionalGet.respond(request, Optional.of(42L), "", entity)) {
+			Assertions.assertEquals(304, response.getStatus());
+			Assertions.assertEquals(new EntityTag("42"), response.getEntityTag());
+		}
+		Mockito.verifyNoInteractions(entity);
+	}
+
+	@Test
+	@DisplayName("variants of the same version have distinct strong entity tags")
+	void testVariants() {
+		var plain = ConditionalGet.entityTag(42L, "");
+		var variant = ConditionalGet.entityTag(42L, "OWNER");
+
+		Assertions.assertNotEquals(plain, variant);
+		Assertions.assertFalse(plain.isWeak());
+		Assertions.assertFalse(variant.isWeak());
+	}
+}
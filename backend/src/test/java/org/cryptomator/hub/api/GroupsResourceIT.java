@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.sql.SQLException;
 
@@ -20,6 +21,7 @@ import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 
 @QuarkusTest
 @DisplayName("Resource /groups")
@@ -49,6 +51,24 @@ public class GroupsResourceIT {
 					.body("id", hasItems("group1", "group2"));
 		}
 
+		@Test
+		@DisplayName("GET /groups?limit=1 returns 200 with first page")
+		public void testGetPage() {
+			given().queryParam("limit", 1)
+					.when().get("/groups")
+					.then().statusCode(200)
+					.body("id", contains("group1"));
+		}
+
+		@ParameterizedTest(name = "limit={0}")
+		@ValueSource(ints = {0, 1001})
+		@DisplayName("GET /groups returns 400 for limit outside of [1 .. 1000]")
+		public void testGetPageInvalidLimit(int limit) {
+			given().queryParam("limit", limit)
+					.when().get("/groups")
+					.then().statusCode(400);
+		}
+
 		@Test
 		@DisplayName("GET /groups/group1/effective-members contains direct and subgroup members")
 		public void testGetEffectiveUsers() throws SQLException {
@@ -80,6 +100,34 @@ public class GroupsResourceIT {
 			}
 		}
 
+		@Test
+		@DisplayName("GET /groups/group2/effective-members returns 304 until members change")
+		public void testGetEffectiveUsersConditional() throws SQLException {
+			var etag = when().get("/groups/{groupId}/effective-members", "group2")
+					.then().statusCode(200)
+					.extract().header("ETag");
+			given().header("If-None-Match", etag)
+					.when().get("/groups/{groupId}/effective-members", "group2")
+					.then().statusCode(304);
+
+			try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+				s.execute("""
+						INSERT INTO "group_membership" ("group_id", "member_id") VALUES ('group2', 'user1');
+						""");
+			}
+
+			given().header("If-None-Match", etag)
+					.when().get("/groups/{groupId}/effective-members", "group2")
+					.then().statusCode(200)
+					.body("id", hasItems("user1", "user2"));
+
+			try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+				s.execute("""
+						DELETE FROM "group_membership" WHERE "group_id" = 'group2' AND "member_id" = 'user1';
+						""");
+			}
+		}
+
 	}
 
 	@Nested
@@ -85,6 +85,22 @@ public class UsersResourceIT {
 					.body("devices.id", hasItems("device1"));
 		}
 
+		@Test
+		@DisplayName("GET /users/me returns 304 if ETag matches")
+		public void testGetMeNotModified() {
+			var etag = when().get("/users/me")
+					.then().statusCode(200)
+					.extract().header("ETag");
+
+			given().header("If-None-Match", etag)
+					.when().get("/users/me")
+					.then().statusCode(304);
+			given().header("If-None-Match", etag)
+					.when().get("/users/me?withDevices=true")
+					.then().statusCode(200)
+					.body("devices.id", hasItems("device1"));
+		}
+
 		@Test
 		@DisplayName("GET /users returns 200")
 		public void testGetAll() {
@@ -93,6 +109,24 @@ public class UsersResourceIT {
 					.body("id", hasItems("user1", "user2"));
 		}
 
+		@Test
+		@DisplayName("GET /users?after=user1&limit=1 returns 200 with next page")
+		public void testGetPage() {
+			given().queryParam("after", "user1").queryParam("limit", 1)
+					.when().get("/users")
+					.then().statusCode(200)
+					.body("id", contains("user2"));
+		}
+
+		@Test
+		@DisplayName("GET /users?prefix=user%20name%202 returns 200 with matching users only")
+		public void testGetByPrefix() {
+			given().queryParam("prefix", "user name 2")
+					.when().get("/users")
+					.then().statusCode(200)
+					.body("id", contains("user2"));
+		}
+
 		@Test
 		@DisplayName("POST /users/me/access-tokens returns 200")
 		public void testPostAccessTokens1() {
@@ -14,6 +14,7 @@ import jakarta.inject.Inject;
 import jakarta.validation.Validator;
 import org.cryptomator.hub.entities.EffectiveVaultAccess;
 import org.cryptomator.hub.entities.Vault;
+import org.cryptomator.hub.entities.VaultAccess;
 import org.cryptomator.hub.rollback.DBRollbackAfter;
 import org.cryptomator.hub.rollback.DBRollbackBefore;
 import org.flywaydb.core.Flyway;
@@ -44,8 +45,10 @@ import java.security.spec.PKCS8EncodedKeySpec;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
@@ -53,8 +56,10 @@ import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.text.IsEqualIgnoringCase.equalToIgnoringCase;
 
 @QuarkusTest
@@ -226,6 +231,61 @@ public class VaultResourceIT {
 
 	}
 
+	@Nested
+	@DisplayName("Conditional GET as user1")
+	@TestSecurity(user = "User Name 1", roles = {"user"})
+	@OidcSecurity(claims = {
+			@Claim(key = "sub", value = "user1")
+	})
+	public class ConditionalGet {
+
+		@Test
+		@DisplayName("GET /vaults/accessible returns 304 if ETag matches")
+		public void testGetAccessibleNotModified() {
+			var etag = when().get("/vaults/accessible")
+					.then().statusCode(200).header("ETag", notNullValue())
+					.extract().header("ETag");
+
+			given().header("If-None-Match", etag)
+					.when().get("/vaults/accessible")
+					.then().statusCode(304);
+			given().header("If-None-Match", etag)
+					.when().get("/vaults/accessible?role=OWNER")
+					.then().statusCode(200);
+		}
+
+		@Test
+		@DisplayName("GET /vaults/7E57C0DE-0000-4000-8000-000100001111/members returns 304 if ETag matches")
+		public void testGetMembersNotModified() {
+			var etag = when().get("/vaults/{vaultId}/members", "7E57C0DE-0000-4000-8000-000100001111")
+					.then().statusCode(200).header("ETag", notNullValue())
+					.extract().header("ETag");
+
+			given().header("If-None-Match", etag)
+					.when().get("/vaults/{vaultId}/members", "7E57C0DE-0000-4000-8000-000100001111")
+					.then().statusCode(304);
+		}
+
+		@Test
+		@DisplayName("GET /vaults/accessible returns 200 with new ETag after creating a vault")
+		public void testGetAccessibleModified() {
+			var etag = when().get("/vaults/accessible")
+					.then().statusCode(200)
+					.extract().header("ETag");
+			var uuid = UUID.fromString("7E57C0DE-0000-4000-8000-00010000BBBB");
+			var vaultDto = new VaultResource.VaultDto(uuid, "Conditional Vault", "Test vault", false, Instant.parse("2112-12-21T21:12:21Z"), "masterkeyB", 42, "NaCl", "authPubKeyB", "authPrvKeyB");
+			given().contentType(ContentType.JSON).body(vaultDto)
+					.when().put("/vaults/{vaultId}", uuid)
+					.then().statusCode(201);
+
+			given().header("If-None-Match", etag)
+					.when().get("/vaults/accessible")
+					.then().statusCode(200)
+					.header("ETag", not(etag))
+					.body("id", hasItems(equalToIgnoringCase(uuid.toString())));
+		}
+	}
+
 	@Nested
 	@DisplayName("As user2")
 	@TestSecurity(user = "User Name 2", roles = {"user"})
@@ -241,6 +301,21 @@ public class VaultResourceIT {
 			when().get("/vaults/{vaultId}/access-token", "7E57C0DE-0000-4000-8000-000100001111")
 					.then().statusCode(449);
 		}
+
+		@Test
+		@DisplayName("GET /vaults/7E57C0DE-0000-4000-8000-000100002222 returns 200, because user2 is member via group2")
+		public void testGetVaultViaGroup() {
+			when().get("/vaults/{vaultId}", "7E57C0DE-0000-4000-8000-000100002222")
+					.then().statusCode(200)
+					.body("id", equalToIgnoringCase("7E57C0DE-0000-4000-8000-000100002222"));
+		}
+
+		@Test
+		@DisplayName("GET /vaults/7E57C0DE-0000-4000-8000-00010000AAAA returns 403, because user2 is no member")
+		public void testGetVaultAsNonMember() {
+			when().get("/vaults/{vaultId}", "7E57C0DE-0000-4000-8000-00010000AAAA")
+					.then().statusCode(403);
+		}
 	}
 
 	@Nested
@@ -721,6 +796,32 @@ public class VaultResourceIT {
 					.then().statusCode(402);
 		}
 
+		@Test
+		@Order(1)
+		@DisplayName("PUT /vaults/7E57C0DE-0000-4000-8000-000100001111/authorities returns 400 for too many authorities")
+		public void addTooManyAuthoritiesToVault() {
+			var body = IntStream.rangeClosed(0, VaultResource.MAX_AUTHORITIES_PER_REQUEST).mapToObj(i -> new VaultResource.MemberUpdateDto("user" + i, VaultAccess.Role.MEMBER)).toList();
+
+			given().contentType(ContentType.JSON).body(body)
+					.when().put("/vaults/{vaultId}/authorities", "7E57C0DE-0000-4000-8000-000100001111")
+					.then().statusCode(400);
+		}
+
+		@Test
+		@Order(1)
+		@DisplayName("PUT /vaults/7E57C0DE-0000-4000-8000-000100001111/authorities returns 402 for [user91, group91]")
+		public void addAuthoritiesToVaultExceedingSeats() {
+			Assumptions.assumeTrue(effectiveVaultAccessRepo.countSeatOccupyingUsers() == 2);
+			var body = List.of(
+					new VaultResource.MemberUpdateDto("user91", VaultAccess.Role.MEMBER), //
+					new VaultResource.MemberUpdateDto("group91", VaultAccess.Role.MEMBER) //
+			);
+
+			given().contentType(ContentType.JSON).body(body)
+					.when().put("/vaults/{vaultId}/authorities", "7E57C0DE-0000-4000-8000-000100001111")
+					.then().statusCode(402);
+		}
+
 		@Order(2)
 		@DisplayName("PUT /vaults/7E57C0DE-0000-4000-8000-000100001111/users/userXX returns 201")
 		@ParameterizedTest(name = "Adding user {0} succeeds")
@@ -742,6 +843,24 @@ public class VaultResourceIT {
 					.then().statusCode(402);
 		}
 
+		@Test
+		@Order(3)
+		@DisplayName("PUT /vaults/7E57C0DE-0000-4000-8000-000100001111/authorities returns 200 for [user91, user92, user9999] not requiring additional seats")
+		public void addAuthoritiesToVaultNotExceedingSeats() {
+			Assumptions.assumeTrue(effectiveVaultAccessRepo.countSeatOccupyingUsers() == 5);
+			var body = List.of(
+					new VaultResource.MemberUpdateDto("user91", VaultAccess.Role.OWNER), //
+					new VaultResource.MemberUpdateDto("user92", VaultAccess.Role.MEMBER), //
+					new VaultResource.MemberUpdateDto("user9999", VaultAccess.Role.MEMBER) //
+			);
+
+			given().contentType(ContentType.JSON).body(body)
+					.when().put("/vaults/{vaultId}/authorities", "7E57C0DE-0000-4000-8000-000100001111")
+					.then().statusCode(200)
+					.body("authorityId", contains("user91", "user92", "user9999"))
+					.body("status", contains("UPDATED", "UPDATED", "NOT_FOUND"));
+		}
+
 		@Test
 		@Order(4)
 		@DisplayName("PUT /vaults/7E57C0DE-0000-4000-8000-000100001111 (as user1) returns 200 with only updated name, description and archive flag, despite exceeding license")
@@ -1085,6 +1204,32 @@ public class VaultResourceIT {
 					.then().statusCode(200)
 					.body("id", hasItems(equalToIgnoringCase("7E57C0DE-0000-4000-8000-000100001111"), equalToIgnoringCase("7E57C0DE-0000-4000-8000-000100002222"), equalToIgnoringCase("7E57C0DE-0000-4000-8000-00010000AAAA")));
 		}
+
+		@Test
+		@DisplayName("GET /vaults/all?after=7E57C0DE-0000-4000-8000-000100001111&limit=1 returns 200 with next page")
+		@TestSecurity(user = "User Name 1", roles = {"admin"})
+		@OidcSecurity(claims = {
+				@Claim(key = "sub", value = "user1")
+		})
+		public void testGetAllVaultsPaginated() {
+			given().queryParam("after", "7E57C0DE-0000-4000-8000-000100001111").queryParam("limit", 1)
+					.when().get("/vaults/all")
+					.then().statusCode(200)
+					.body("id", contains(equalToIgnoringCase("7E57C0DE-0000-4000-8000-000100002222")));
+		}
+
+		@Test
+		@DisplayName("GET /vaults/all?prefix=vault%20archived returns 200 with matching vaults only")
+		@TestSecurity(user = "User Name 1", roles = {"admin"})
+		@OidcSecurity(claims = {
+				@Claim(key = "sub", value = "user1")
+		})
+		public void testGetAllVaultsByPrefix() {
+			given().queryParam("prefix", "vault archived")
+					.when().get("/vaults/all")
+					.then().statusCode(200)
+					.body("id", contains(equalToIgnoringCase("7E57C0DE-0000-4000-8000-00010000AAAA")));
+		}
 	}
 
 	@Nested
@@ -0,0 +1,78 @@
+package org.cryptomator.hub.cluster;
+
+import io.quarkus.scheduler.ScheduledExecution;
+import io.quarkus.scheduler.Trigger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+class ClusterSingletonTest {
+
+	private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+	private final ScheduledExecution execution = Mockito.mock(ScheduledExecution.class);
+	private final Trigger trigger = Mockito.mock(Trigger.class);
+
+	private ClusterSingleton clusterSingleton;
+
+	@BeforeEach
+	void setUp() {
+		Mockito.when(execution.getTrigger()).thenReturn(trigger);
+		Mockito.when(trigger.getId()).thenReturn("remote-user-sync");
+		Mockito.when(trigger.getNextFireTime()).thenReturn(NOW.plusSeconds(60));
+
+		clusterSingleton = Mockito.spy(new ClusterSingleton());
+		clusterSingleton.enabled = true;
+		clusterSingleton.gracePeriod = Duration.ofSeconds(30);
+		clusterSingleton.configuredNodeId = Optional.of("hub-1");
+		clusterSingleton.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+	}
+
+	@Test
+	@DisplayName("job runs if lease is acquired until next execution plus grace period")
+	void testAcquired() {
+		Mockito.doReturn(true).when(clusterSingleton).tryAcquire(Mockito.any(), Mockito.any());
+
+		Assertions.assertFalse(clusterSingleton.test(execution));
+		Mockito.verify(clusterSingleton).tryAcquire("remote-user-sync", Duration.ofSeconds(90));
+	}
+
+	@Test
+	@DisplayName("job is skipped if lease is held by another instance")
+	void testHeldByOther() {
+		Mockito.doReturn(false).when(clusterSingleton).tryAcquire(Mockito.any(), Mockito.any());
+
+		Assertions.assertTrue(clusterSingleton.test(execution));
+	}
+
+	@Test
+	@DisplayName("job is skipped if lease can't be acquired")
+	void testFailure() {
+		Mockito.doThrow(new IllegalStateException("connection refused")).when(clusterSingleton).tryAcquire(Mockito.any(), Mockito.any());
+
+		Assertions.assertTrue(clusterSingleton.test(execution));
+	}
+
+	@Test
+	@DisplayName("job always runs if leases are disabled")
+	void testDisabled() {
+		clusterSingleton.enabled = false;
+
+		Assertions.assertFalse(clusterSingleton.test(execution));
+		Mockito.verify(clusterSingleton, Mockito.never()).tryAcquire(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	@DisplayName("configured node id takes precedence over host name")
+	void testNodeId() {
+		Assertions.assertEquals("hub-1", clusterSingleton.nodeId());
+	}
+}
@@ -4,11 +4,16 @@ import io.agroal.api.AgroalDataSource;
 import io.quarkus.test.TestTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
+import org.cryptomator.hub.entities.events.AuditEvent;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @QuarkusTest
@@ -20,6 +25,14 @@ public class EntityIT {
 	@Inject
 	User.Repository userRepo;
 	@Inject
+	EffectiveVaultAccess.Repository effectiveVaultAccessRepo;
+	@Inject
+	SeatLedger.Repository seatLedgerRepo;
+	@Inject
+	JobLease.Repository jobLeaseRepo;
+	@Inject
+	AuditEvent.Repository auditEventRepo;
+	@Inject
 	AgroalDataSource dataSource;
 
 	@Test
@@ -50,4 +63,303 @@ public class EntityIT {
 		Assertions.assertEquals("user1", token.getUser().getId());
 		Assertions.assertEquals("jwe.jwe.jwe.vault1.user1", token.getVaultKey());
 	}
-}
\ No newline at end of file
+
+	@Test
+	@TestTransaction
+	@DisplayName("Job lease is only granted to its holder until expired")
+	public void testJobLease() {
+		Assertions.assertTrue(jobLeaseRepo.tryAcquire("test-job", "hub-1", Duration.ofMinutes(1)));
+		Assertions.assertFalse(jobLeaseRepo.tryAcquire("test-job", "hub-2", Duration.ofMinutes(1)));
+		Assertions.assertTrue(jobLeaseRepo.tryAcquire("test-job", "hub-1", Duration.ofSeconds(-1)));
+		Assertions.assertTrue(jobLeaseRepo.tryAcquire("test-job", "hub-2", Duration.ofMinutes(1)));
+		Assertions.assertFalse(jobLeaseRepo.tryAcquire("test-job", "hub-1", Duration.ofMinutes(1)));
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Unlock state contains vault, seat, user and token state")
+	public void testFindUnlockState() {
+		var vault1 = accessTokenRepo.findUnlockState(UUID.fromString("7E57C0DE-0000-4000-8000-000100001111"), "user1").orElseThrow();
+		var archived = accessTokenRepo.findUnlockState(UUID.fromString("7E57C0DE-0000-4000-8000-00010000AAAA"), "user1").orElseThrow();
+		var noAccess = accessTokenRepo.findUnlockState(UUID.fromString("7E57C0DE-0000-4000-8000-00010000AAAA"), "user2").orElseThrow();
+		var missing = accessTokenRepo.findUnlockState(UUID.fromString("7E57C0DE-0000-4000-8000-0001000FFFFF"), "user1");
+
+		Assertions.assertFalse(vault1.archived());
+		Assertions.assertTrue(vault1.userInitialized());
+		Assertions.assertEquals(effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken(), vault1.seatsWithAccessToken());
+		Assertions.assertEquals("jwe.jwe.jwe.vault1.user1", vault1.vaultKey());
+		Assertions.assertTrue(archived.archived());
+		Assertions.assertNull(noAccess.vaultKey());
+		Assertions.assertTrue(missing.isEmpty());
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Seat ledger follows changes of group membership, access tokens and archived vaults")
+	public void testSeatLedgerIsMaintained() throws SQLException {
+		Assertions.assertEquals(2, effectiveVaultAccessRepo.countSeatOccupyingUsers());
+		Assertions.assertEquals(2, effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken());
+
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			// test data will be removed via @TestTransaction
+			s.execute("""
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('user999', 'USER', 'User 999');
+					INSERT INTO "user_details" ("id") VALUES ('user999');
+					INSERT INTO "group_membership" ("group_id", "member_id") VALUES ('group1', 'user999');
+					""");
+		}
+		Assertions.assertTrue(effectiveVaultAccessRepo.isUserOccupyingSeat("user999"));
+		Assertions.assertEquals(3, effectiveVaultAccessRepo.countSeatOccupyingUsers());
+		Assertions.assertEquals(2, effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken());
+		Assertions.assertEquals(2, effectiveVaultAccessRepo.countSeatOccupyingUsersOfGroup("group1"));
+
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			s.execute("""
+					INSERT INTO "access_token" ("user_id", "vault_id", "vault_masterkey") VALUES ('user999', '7E57C0DE-0000-4000-8000-000100002222', 'jwe.jwe.jwe.vault2.user999');
+					""");
+		}
+		Assertions.assertEquals(3, effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken());
+
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			s.execute("""
+					UPDATE "vault" SET "archived" = TRUE WHERE "id" = '7E57C0DE-0000-4000-8000-000100002222';
+					""");
+		}
+		Assertions.assertTrue(effectiveVaultAccessRepo.isUserOccupyingSeat("user999"));
+		Assertions.assertEquals(2, effectiveVaultAccessRepo.countSeatOccupyingUsers());
+		Assertions.assertEquals(effectiveVaultAccessRepo.recountSeatOccupyingUsers(), effectiveVaultAccessRepo.countSeatOccupyingUsers());
+		Assertions.assertEquals(effectiveVaultAccessRepo.recountSeatOccupyingUsersWithAccessToken(), effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken());
+	}
+
+	@Test
+	@DisplayName("Maintenance of effective access only waits for concurrent changes affecting the same users")
+	public void testEffectiveAccessLocking() throws SQLException {
+		try (var c1 = dataSource.getConnection(); var c2 = dataSource.getConnection(); var s1 = c1.createStatement(); var s2 = c2.createStatement()) {
+			c1.setAutoCommit(false);
+			c2.setAutoCommit(false);
+			try {
+				s1.execute("""
+						UPDATE "access_token" SET "vault_masterkey" = 'jwe.jwe.jwe.vault1.user1.new' WHERE "user_id" = 'user1' AND "vault_id" = '7E57C0DE-0000-4000-8000-000100001111';
+						""");
+				s2.execute("""
+						SET LOCAL lock_timeout = '1s';
+						""");
+
+				// a different user doesn't have to wait:
+				s2.execute("""
+						UPDATE "access_token" SET "vault_masterkey" = 'jwe.jwe.jwe.vault1.user2.new' WHERE "user_id" = 'user2' AND "vault_id" = '7E57C0DE-0000-4000-8000-000100001111';
+						""");
+
+				// the same user (here via group1, which grants access to vault 2) has to wait until the first transaction ends:
+				var e = Assertions.assertThrows(SQLException.class, () -> s2.execute("""
+						DELETE FROM "group_membership" WHERE "group_id" = 'group1' AND "member_id" = 'user1';
+						"""));
+				Assertions.assertEquals("55P03", e.getSQLState()); // lock_not_available
+			} finally {
+				c1.rollback();
+				c2.rollback();
+			}
+		}
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Access to archived vaults occupies a seat of the user, but isn't counted in the seat totals")
+	public void testArchivedVaultSeats() throws SQLException {
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			// test data will be removed via @TestTransaction
+			s.execute("""
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('user999', 'USER', 'User 999');
+					INSERT INTO "user_details" ("id") VALUES ('user999');
+					INSERT INTO "vault" ("id", "name", "description", "creation_time", "archived")
+						VALUES ('7E57C0DE-0000-4000-8000-000100009999', 'Vault 999', 'Archived vault', '2020-02-20 20:20:20', TRUE);
+					INSERT INTO "vault_access" ("vault_id", "authority_id", "role") VALUES ('7E57C0DE-0000-4000-8000-000100009999', 'user999', 'MEMBER');
+					""");
+		}
+		Assertions.assertTrue(effectiveVaultAccessRepo.isUserOccupyingSeat("user999"));
+		Assertions.assertEquals(0, effectiveVaultAccessRepo.countSeatsOccupiedByUsers(List.of("user999")));
+		Assertions.assertEquals(2, effectiveVaultAccessRepo.countSeatOccupyingUsers());
+		Assertions.assertEquals(effectiveVaultAccessRepo.recountSeatOccupyingUsers(), effectiveVaultAccessRepo.countSeatOccupyingUsers());
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Recount detects drift of materialized tables, which is repaired by rebuilding the seat ledger")
+	public void testSeatLedgerRebuildRepairsEffectiveAccess() throws SQLException {
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			// test data will be removed via @TestTransaction
+			s.execute("""
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('user999', 'USER', 'User 999');
+					INSERT INTO "user_details" ("id") VALUES ('user999');
+					INSERT INTO "group_membership" ("group_id", "member_id") VALUES ('group1', 'user999');
+					DELETE FROM "effective_group_membership" WHERE "member_id" = 'user999'; -- simulate lost update
+					""");
+		}
+		Assertions.assertFalse(effectiveVaultAccessRepo.isMember(UUID.fromString("7E57C0DE-0000-4000-8000-000100002222"), "user999"));
+		Assertions.assertEquals(3, effectiveVaultAccessRepo.recountSeatOccupyingUsers());
+		Assertions.assertEquals(2, effectiveVaultAccessRepo.countSeatOccupyingUsers());
+
+		seatLedgerRepo.rebuild();
+
+		Assertions.assertTrue(effectiveVaultAccessRepo.isMember(UUID.fromString("7E57C0DE-0000-4000-8000-000100002222"), "user999"));
+		Assertions.assertEquals(3, effectiveVaultAccessRepo.countSeatOccupyingUsers());
+		Assertions.assertEquals(effectiveVaultAccessRepo.recountSeatOccupyingUsersWithAccessToken(), effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken());
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Effective group membership follows changes of nested group memberships")
+	public void testEffectiveGroupMembershipIsMaintained() throws SQLException {
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			// test data will be removed via @TestTransaction
+			s.execute("""
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('user999', 'USER', 'User 999');
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('group999', 'GROUP', 'Group 999');
+					INSERT INTO "user_details" ("id") VALUES ('user999');
+					INSERT INTO "group_details" ("id") VALUES ('group999');
+					INSERT INTO "group_membership" ("group_id", "member_id") VALUES ('group999', 'user999');
+					INSERT INTO "group_membership" ("group_id", "member_id") VALUES ('group2', 'group999');
+					""");
+			var rs = s.executeQuery("""
+					SELECT "path" FROM "effective_group_membership" WHERE "group_id" = 'group2' ORDER BY "path";
+					""");
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("/group2/group999", rs.getString(1));
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("/group2/group999/user999", rs.getString(1));
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("/group2/user2", rs.getString(1));
+			Assertions.assertFalse(rs.next());
+
+			s.execute("""
+					DELETE FROM "group_membership" WHERE "group_id" = 'group2' AND "member_id" = 'group999';
+					""");
+			rs = s.executeQuery("""
+					SELECT "path" FROM "effective_group_membership" WHERE "member_id" = 'user999';
+					""");
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("/group999/user999", rs.getString(1));
+			Assertions.assertFalse(rs.next());
+		}
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Effective vault access follows changes of vault access and group membership")
+	public void testEffectiveVaultAccessIsMaintained() throws SQLException {
+		var vaultId = UUID.fromString("7E57C0DE-0000-4000-8000-000100001111");
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			// test data will be removed via @TestTransaction
+			s.execute("""
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('user999', 'USER', 'User 999');
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('group999', 'GROUP', 'Group 999');
+					INSERT INTO "user_details" ("id") VALUES ('user999');
+					INSERT INTO "group_details" ("id") VALUES ('group999');
+					INSERT INTO "group_membership" ("group_id", "member_id") VALUES ('group999', 'user999');
+					INSERT INTO "vault_access" ("vault_id", "authority_id", "role") VALUES ('7E57C0DE-0000-4000-8000-000100001111', 'group999', 'MEMBER');
+					""");
+		}
+		Assertions.assertEquals(Set.of(VaultAccess.Role.MEMBER), effectiveVaultAccessRepo.listRoles(vaultId, "user999"));
+
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			s.execute("""
+					UPDATE "vault_access" SET "role" = 'OWNER' WHERE "vault_id" = '7E57C0DE-0000-4000-8000-000100001111' AND "authority_id" = 'group999';
+					""");
+		}
+		Assertions.assertEquals(Set.of(VaultAccess.Role.OWNER), effectiveVaultAccessRepo.listRoles(vaultId, "user999"));
+
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			s.execute("""
+					DELETE FROM "group_membership" WHERE "group_id" = 'group999' AND "member_id" = 'user999';
+					""");
+		}
+		Assertions.assertEquals(Set.of(), effectiveVaultAccessRepo.listRoles(vaultId, "user999"));
+		Assertions.assertEquals(Set.of(VaultAccess.Role.OWNER), effectiveVaultAccessRepo.listRoles(vaultId, "group999"));
+		Assertions.assertFalse(effectiveVaultAccessRepo.isUserOccupyingSeat("user999"));
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Effective web of trust follows signatures, deleted users and changes of max depth")
+	public void testEffectiveWotIsMaintained() throws SQLException {
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			// test data will be removed via @TestTransaction
+			s.execute("""
+					INSERT INTO "authority" ("id", "type", "name") VALUES ('wot1', 'USER', 'WoT 1'), ('wot2', 'USER', 'WoT 2'), ('wot3', 'USER', 'WoT 3'), ('wot4', 'USER', 'WoT 4');
+					INSERT INTO "user_details" ("id") VALUES ('wot1'), ('wot2'), ('wot3'), ('wot4');
+					UPDATE "settings" SET "wot_max_depth" = 1 WHERE "id" = 0;
+					INSERT INTO "wot" ("user_id", "signer_id", "signature") VALUES ('wot3', 'wot2', '2>3'), ('wot4', 'wot3', '3>4');
+					INSERT INTO "wot" ("user_id", "signer_id", "signature") VALUES ('wot2', 'wot1', '1>2');
+					""");
+			var rs = s.executeQuery("""
+					SELECT "trusted_user_id", array_to_string("signature_chain", ',') FROM "effective_wot" WHERE "trusting_user_id" = 'wot1' ORDER BY "trusted_user_id";
+					""");
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("wot2", rs.getString(1));
+			Assertions.assertEquals("1>2", rs.getString(2));
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("wot3", rs.getString(1));
+			Assertions.assertEquals("1>2,2>3", rs.getString(2));
+			Assertions.assertFalse(rs.next()); // wot4 exceeds max depth
+
+			s.execute("""
+					UPDATE "settings" SET "wot_max_depth" = 2 WHERE "id" = 0;
+					INSERT INTO "wot" ("user_id", "signer_id", "signature") VALUES ('wot4', 'wot1', '1>4');
+					UPDATE "wot" SET "signature" = '2>3 (renewed)' WHERE "user_id" = 'wot3' AND "signer_id" = 'wot2';
+					""");
+			rs = s.executeQuery("""
+					SELECT "trusted_user_id", array_to_string("signature_chain", ',') FROM "effective_wot" WHERE "trusting_user_id" = 'wot1' ORDER BY "trusted_user_id";
+					""");
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("wot2", rs.getString(1));
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("wot3", rs.getString(1));
+			Assertions.assertEquals("1>2,2>3 (renewed)", rs.getString(2));
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("wot4", rs.getString(1));
+			Assertions.assertEquals("1>4", rs.getString(2)); // shortest chain
+			Assertions.assertFalse(rs.next());
+
+			s.execute("""
+					DELETE FROM "authority" WHERE "id" = 'wot2';
+					""");
+			rs = s.executeQuery("""
+					SELECT "trusting_user_id", "trusted_user_id" FROM "effective_wot" WHERE "trusting_user_id" LIKE 'wot%' ORDER BY "trusting_user_id", "trusted_user_id";
+					""");
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("wot1", rs.getString(1));
+			Assertions.assertEquals("wot4", rs.getString(2));
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("wot3", rs.getString(1));
+			Assertions.assertEquals("wot4", rs.getString(2));
+			Assertions.assertFalse(rs.next());
+		}
+	}
+
+	@Test
+	@TestTransaction
+	@DisplayName("Creating an audit log partition moves events from the default partition")
+	public void testCreatePartitionMovesEvents() throws SQLException {
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			// test data will be removed via @TestTransaction
+			s.execute("""
+					INSERT INTO "audit_event" ("id", "type", "timestamp", "created_by", "vault_id", "vault_name")
+					VALUES
+						(9990, 'VAULT_CREATE', '2099-01-15T12:00:00Z', 'user1', '7E57C0DE-0000-4000-8000-000100001111', 'Vault 1'),
+						(9991, 'VAULT_CREATE', '2099-02-01T00:00:00Z', 'user1', '7E57C0DE-0000-4000-8000-000100001111', 'Vault 1');
+					""");
+
+			Assertions.assertTrue(auditEventRepo.createPartition(YearMonth.of(2099, 1)));
+			Assertions.assertFalse(auditEventRepo.createPartition(YearMonth.of(2099, 1)));
+
+			var rs = s.executeQuery("""
+					SELECT "id", "tableoid"::regclass::varchar FROM "audit_event" WHERE "id" IN (9990, 9991) ORDER BY "id";
+					""");
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("audit_event_p2099_01", rs.getString(2));
+			Assertions.assertTrue(rs.next());
+			Assertions.assertEquals("audit_event_default", rs.getString(2));
+			Assertions.assertFalse(rs.next());
+		}
+	}
+}
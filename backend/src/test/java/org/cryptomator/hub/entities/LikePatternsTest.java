@@ -0,0 +1,34 @@
+package org.cryptomator.hub.entities;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class LikePatternsTest {
+
+	@Test
+	@DisplayName("missing prefix matches everything")
+	void testNoPrefix() {
+		Assertions.assertEquals("%", LikePatterns.prefixPattern(null));
+	}
+
+	@ParameterizedTest
+	@CsvSource(value = {
+			"User, user%",
+			"50%, 50\\%%",
+			"a_b, a\\_b%",
+			"a\\b, a\\\\b%",
+	})
+	@DisplayName("prefix is lower-cased and LIKE wildcards are escaped")
+	void testPrefix(String prefix, String expected) {
+		Assertions.assertEquals(expected, LikePatterns.prefixPattern(prefix));
+	}
+
+	@Test
+	@DisplayName("contains pattern is wrapped in wildcards")
+	void testContains() {
+		Assertions.assertEquals("%a\\%b%", LikePatterns.containsPattern("A%b"));
+	}
+}
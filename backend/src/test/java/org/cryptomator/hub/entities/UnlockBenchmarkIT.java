@@ -0,0 +1,84 @@
+package org.cryptomator.hub.entities;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Compares the queries issued by the unlock endpoint before and after fetching the unlock state in a single round trip.
+ * Each unlock runs in its own transaction, like requests do. Run with {@code mvn verify -Dhub.benchmark=true}.
+ */
+@QuarkusTest
+@DisplayName("Unlock benchmark")
+@EnabledIfSystemProperty(named = "hub.benchmark", matches = "true")
+public class UnlockBenchmarkIT {
+
+	private static final Logger LOG = Logger.getLogger(UnlockBenchmarkIT.class);
+	private static final UUID VAULT_ID = UUID.fromString("7E57C0DE-0000-4000-8000-000100001111");
+	private static final String USER_ID = "user1";
+	private static final int WARMUP = 500;
+	private static final int ITERATIONS = 5000;
+
+	@Inject
+	AccessToken.Repository accessTokenRepo;
+	@Inject
+	Vault.Repository vaultRepo;
+	@Inject
+	User.Repository userRepo;
+	@Inject
+	EffectiveVaultAccess.Repository effectiveVaultAccessRepo;
+
+	@Test
+	@DisplayName("compare unlock with separate lookups and with a single query")
+	public void testCompareUnlockPaths() {
+		var separate = measure(this::unlockWithSeparateLookups);
+		var single = measure(this::unlockWithSingleQuery);
+
+		LOG.infof("Unlock with separate lookups: %d µs/op", separate.toNanos() / 1000 / ITERATIONS);
+		LOG.infof("Unlock with single query: %d µs/op", single.toNanos() / 1000 / ITERATIONS);
+		Assertions.assertEquals(unlockWithSeparateLookups(), unlockWithSingleQuery());
+	}
+
+	private String unlockWithSeparateLookups() {
+		return QuarkusTransaction.requiringNew().call(() -> {
+			var vault = vaultRepo.findById(VAULT_ID);
+			var seats = effectiveVaultAccessRepo.countSeatOccupyingUsersWithAccessToken();
+			var user = userRepo.findById(USER_ID);
+			var token = accessTokenRepo.unlock(VAULT_ID, USER_ID);
+			Assertions.assertFalse(vault.isArchived());
+			Assertions.assertTrue(seats > 0);
+			Assertions.assertNotNull(user.getEcdhPublicKey());
+			return token.getVaultKey();
+		});
+	}
+
+	private String unlockWithSingleQuery() {
+		return QuarkusTransaction.requiringNew().call(() -> {
+			var state = accessTokenRepo.findUnlockState(VAULT_ID, USER_ID).orElseThrow();
+			Assertions.assertFalse(state.archived());
+			Assertions.assertTrue(state.seatsWithAccessToken() > 0);
+			Assertions.assertTrue(state.userInitialized());
+			return state.vaultKey();
+		});
+	}
+
+	private Duration measure(Supplier<String> unlock) {
+		for (int i = 0; i < WARMUP; i++) {
+			unlock.get();
+		}
+		var start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			unlock.get();
+		}
+		return Duration.ofNanos(System.nanoTime() - start);
+	}
+}
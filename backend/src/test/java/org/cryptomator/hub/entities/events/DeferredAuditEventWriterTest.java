@@ -0,0 +1,91 @@
+package org.cryptomator.hub.entities.events;
+
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class DeferredAuditEventWriterTest {
+
+	private final TransactionSynchronizationRegistry txRegistry = Mockito.mock(TransactionSynchronizationRegistry.class);
+	private final AuditEvent.Repository auditEventRepository = Mockito.mock(AuditEvent.Repository.class);
+	private final List<BeforeTransactionCompletionProcess> registeredProcesses = new ArrayList<>();
+	private final Map<Object, Object> txResources = new HashMap<>();
+
+	private DeferredAuditEventWriter writer;
+
+	@BeforeEach
+	void setUp() {
+		writer = new DeferredAuditEventWriter() {
+			@Override
+			void registerBeforeCompletion(BeforeTransactionCompletionProcess process) {
+				registeredProcesses.add(process);
+			}
+		};
+		writer.flushSize = 3;
+		writer.txRegistry = txRegistry;
+		writer.auditEventRepository = auditEventRepository;
+
+		Mockito.doReturn(new Object()).when(txRegistry).getTransactionKey();
+		Mockito.doAnswer(invocation -> txResources.get(invocation.getArgument(0))).when(txRegistry).getResource(Mockito.any());
+		Mockito.doAnswer(invocation -> txResources.put(invocation.getArgument(0), invocation.getArgument(1))).when(txRegistry).putResource(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	@DisplayName("events are persisted in order before transaction completion")
+	void testWriteBeforeCompletion() {
+		var event1 = new VaultKeyRetrievedEvent();
+		var event2 = new VaultAccessGrantedEvent();
+
+		writer.write(event1);
+		writer.write(event2);
+
+		Mockito.verify(auditEventRepository, Mockito.never()).persist(Mockito.any(AuditEvent.class));
+		Assertions.assertEquals(1, registeredProcesses.size());
+
+		registeredProcesses.getFirst().doBeforeTransactionCompletion(null);
+
+		var inOrder = Mockito.inOrder(auditEventRepository);
+		inOrder.verify(auditEventRepository).persist(event1);
+		inOrder.verify(auditEventRepository).persist(event2);
+		inOrder.verify(auditEventRepository).flush();
+	}
+
+	@Test
+	@DisplayName("buffer is flushed early when reaching flush size")
+	void testFlushWhenFull() {
+		writer.write(new VaultAccessGrantedEvent());
+		writer.write(new VaultAccessGrantedEvent());
+		Mockito.verify(auditEventRepository, Mockito.never()).flush();
+
+		writer.write(new VaultAccessGrantedEvent());
+		Mockito.verify(auditEventRepository, Mockito.times(3)).persist(Mockito.any(AuditEvent.class));
+		Mockito.verify(auditEventRepository, Mockito.times(1)).flush();
+
+		writer.write(new VaultAccessGrantedEvent());
+		Assertions.assertEquals(1, registeredProcesses.size());
+		registeredProcesses.getFirst().doBeforeTransactionCompletion(null);
+		Mockito.verify(auditEventRepository, Mockito.times(4)).persist(Mockito.any(AuditEvent.class));
+		Mockito.verify(auditEventRepository, Mockito.times(2)).flush();
+	}
+
+	@Test
+	@DisplayName("events are persisted immediately without transaction")
+	void testWriteWithoutTransaction() {
+		Mockito.doReturn(null).when(txRegistry).getTransactionKey();
+		var event = new VaultKeyRetrievedEvent();
+
+		writer.write(event);
+
+		Mockito.verify(auditEventRepository).persist(event);
+		Assertions.assertTrue(registeredProcesses.isEmpty());
+	}
+}
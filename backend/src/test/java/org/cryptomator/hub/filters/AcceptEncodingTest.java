@@ -0,0 +1,26 @@
+package org.cryptomator.hub.filters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class AcceptEncodingTest {
+
+	@ParameterizedTest
+	@DisplayName("gzip is accepted")
+	@ValueSource(strings = {"gzip", "GZIP", "deflate, gzip;q=1.0, br", "br;q=1, gzip;q=0.5", "*", "br, *;q=0.1", "gzip;q=0.1, *;q=0"})
+	public void testAccepted(String header) {
+		Assertions.assertTrue(AcceptEncoding.accepts(header, "gzip"));
+	}
+
+	@ParameterizedTest
+	@DisplayName("gzip is not accepted")
+	@NullAndEmptySource
+	@ValueSource(strings = {"identity", "br, deflate", "gzip;q=0", "gzip;q=0.000", "*;q=0", "gzip;q=0, *"})
+	public void testNotAccepted(String header) {
+		Assertions.assertFalse(AcceptEncoding.accepts(header, "gzip"));
+	}
+
+}
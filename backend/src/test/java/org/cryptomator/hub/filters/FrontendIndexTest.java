@@ -0,0 +1,89 @@
+package org.cryptomator.hub.filters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+public class FrontendIndexTest {
+
+	private static final String HTML = """
+			<!DOCTYPE html>
+			<html lang="en">
+			<head>
+				<base href="/"/>
+				<meta charset="UTF-8"/>
+				<title>Cryptomator Hub</title>
+				<script type="module" crossorigin src="./assets/index.js"></script>
+				<link rel="stylesheet" href="./assets/index.css">
+			</head>
+			<body class="h-full">
+				<div id="app" class="h-full"></div>
+			</body>
+			</html>
+			""";
+
+	@Test
+	@DisplayName("public root path is applied once when rendering")
+	public void testRender() throws IOException {
+		var document = FrontendIndex.render(HTML, "/hub/");
+
+		var identity = new String(document.identity().body(), StandardCharsets.UTF_8);
+		Assertions.assertTrue(identity.contains("<base href=\"/hub/\"/>"));
+		Assertions.assertNull(document.identity().contentEncoding());
+		Assertions.assertNotNull(document.gzip());
+		Assertions.assertEquals("gzip", document.gzip().contentEncoding());
+		try (var in = new GZIPInputStream(new ByteArrayInputStream(document.gzip().body()))) {
+			Assertions.assertEquals(identity, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	@DisplayName("representations have distinct strong entity tags, which are stable across renderings")
+	public void testEntityTags() {
+		var document = FrontendIndex.render(HTML, "/hub/");
+		var rerendered = FrontendIndex.render(HTML, "/hub/");
+		var otherRoot = FrontendIndex.render(HTML, "/other/");
+
+		Assertions.assertNotEquals(document.identity().etag(), document.gzip().etag());
+		Assertions.assertFalse(document.identity().etag().startsWith("W/"));
+		Assertions.assertEquals(document.identity().etag(), rerendered.identity().etag());
+		Assertions.assertEquals(document.gzip().etag(), rerendered.gzip().etag());
+		Assertions.assertNotEquals(document.identity().etag(), otherRoot.identity().etag());
+	}
+
+	@Test
+	@DisplayName("gzip variant is omitted if it is not smaller")
+	public void testIncompressible() {
+		var document = FrontendIndex.render("<base href=\"/\"/>", "/");
+
+		Assertions.assertNull(document.gzip());
+		Assertions.assertSame(document.identity(), document.select("gzip"));
+	}
+
+	@ParameterizedTest
+	@DisplayName("matching If-None-Match")
+	@ValueSource(strings = {"*", "ETAG", "W/ETAG", "\"foo\", ETAG", "\"foo\",W/ETAG"})
+	public void testMatches(String ifNoneMatch) {
+		var representation = FrontendIndex.render(HTML, "/").identity();
+
+		Assertions.assertTrue(representation.matches(ifNoneMatch.replace("ETAG", representation.etag())));
+	}
+
+	@ParameterizedTest
+	@DisplayName("non-matching If-None-Match")
+	@ValueSource(strings = {"", "\"foo\"", "W/\"foo\", \"bar\""})
+	public void testDoesNotMatch(String ifNoneMatch) {
+		var representation = FrontendIndex.render(HTML, "/").identity();
+
+		Assertions.assertFalse(representation.matches(ifNoneMatch));
+		Assertions.assertFalse(representation.matches(null));
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.cryptomator.hub.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public class FrontendRootPathFilterTest {
+
+	private HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+	private HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+	private ServletOutputStream out = Mockito.mock(ServletOutputStream.class);
+	private FilterChain chain = Mockito.mock(FilterChain.class);
+	private FrontendIndex frontendIndex = Mockito.mock(FrontendIndex.class);
+	private FrontendIndex.Document document = FrontendIndex.render("<html><head><base href=\"/\"/></head><body>" + "Cryptomator Hub ".repeat(10) + "</body></html>", "/hub/");
+	private FrontendRootPathFilter filter = new FrontendRootPathFilter();
+
+	@BeforeEach
+	public void setup() throws IOException {
+		filter.frontendIndex = frontendIndex;
+		Mockito.doReturn(Optional.of(document)).when(frontendIndex).get();
+		Mockito.doReturn("GET").when(req).getMethod();
+		Mockito.doReturn(out).when(res).getOutputStream();
+	}
+
+	@Test
+	@DisplayName("serves pre-rendered document without calling the chain")
+	public void testServeIdentity() throws ServletException, IOException {
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(res).setHeader("ETag", document.identity().etag());
+		Mockito.verify(res).setHeader("Vary", "Accept-Encoding");
+		Mockito.verify(res, Mockito.never()).setHeader(Mockito.eq("Content-Encoding"), Mockito.any());
+		Mockito.verify(res).setContentLength(document.identity().body().length);
+		Mockito.verify(out).write(document.identity().body());
+		Mockito.verifyNoInteractions(chain);
+	}
+
+	@Test
+	@DisplayName("serves gzip variant if accepted")
+	public void testServeGzip() throws ServletException, IOException {
+		Mockito.doReturn("gzip, deflate, br").when(req).getHeader("Accept-Encoding");
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(res).setHeader("ETag", document.gzip().etag());
+		Mockito.verify(res).setHeader("Content-Encoding", "gzip");
+		Mockito.verify(out).write(document.gzip().body());
+	}
+
+	@Test
+	@DisplayName("revalidation with matching ETag results in 304")
+	public void testNotModified() throws ServletException, IOException {
+		Mockito.doReturn(document.identity().etag()).when(req).getHeader("If-None-Match");
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(res).setStatus(304);
+		Mockito.verify(res).setHeader("ETag", document.identity().etag());
+		Mockito.verifyNoInteractions(out, chain);
+	}
+
+	@Test
+	@DisplayName("HEAD requests get headers only")
+	public void testHead() throws ServletException, IOException {
+		Mockito.doReturn("HEAD").when(req).getMethod();
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(res).setContentLength(document.identity().body().length);
+		Mockito.verifyNoInteractions(out, chain);
+	}
+
+	@Test
+	@DisplayName("falls back to chain if frontend is not bundled")
+	public void testMissingFrontend() throws ServletException, IOException {
+		Mockito.doReturn(Optional.empty()).when(frontendIndex).get();
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(chain).doFilter(req, res);
+		Mockito.verifyNoInteractions(res);
+	}
+
+	@Test
+	@DisplayName("other methods are passed to the chain")
+	public void testPost() throws ServletException, IOException {
+		Mockito.doReturn("POST").when(req).getMethod();
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(chain).doFilter(req, res);
+		Mockito.verify(res, Mockito.never()).setHeader(Mockito.any(), Mockito.any());
+	}
+
+}
@@ -0,0 +1,132 @@
+package org.cryptomator.hub.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+
+public class PrecompressedAssetFilterTest {
+
+	private static final byte[] BROTLI = {0x01, 0x02};
+	private static final byte[] GZIP = {0x03, 0x04, 0x05};
+
+	private HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+	private HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+	private ServletContext servletContext = Mockito.mock(ServletContext.class);
+	private ServletOutputStream out = Mockito.mock(ServletOutputStream.class);
+	private FilterChain chain = Mockito.mock(FilterChain.class);
+	private PrecompressedAssetFilter filter = Mockito.spy(new PrecompressedAssetFilter());
+
+	@BeforeEach
+	public void setup() throws IOException {
+		Mockito.doReturn("GET").when(req).getMethod();
+		Mockito.doReturn("").when(req).getContextPath();
+		Mockito.doReturn("/assets/main-1234.js").when(req).getRequestURI();
+		Mockito.doReturn(servletContext).when(req).getServletContext();
+		Mockito.doReturn("text/javascript").when(servletContext).getMimeType("/assets/main-1234.js");
+		Mockito.doReturn(out).when(res).getOutputStream();
+		Mockito.doReturn(null).when(filter).loadResource(Mockito.any());
+		Mockito.doReturn(BROTLI).when(filter).loadResource("META-INF/resources/assets/main-1234.js.br");
+		Mockito.doReturn(GZIP).when(filter).loadResource("META-INF/resources/assets/main-1234.js.gz");
+	}
+
+	@Test
+	@DisplayName("brotli is preferred over gzip")
+	public void testBrotli() throws ServletException, IOException {
+		Mockito.doReturn("gzip, deflate, br").when(req).getHeader("Accept-Encoding");
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(res).setHeader("Content-Encoding", "br");
+		Mockito.verify(res).setHeader("Vary", "Accept-Encoding");
+		Mockito.verify(res).setContentType("text/javascript");
+		Mockito.verify(res).setContentLength(BROTLI.length);
+		Mockito.verify(out).write(BROTLI);
+		Mockito.verifyNoInteractions(chain);
+	}
+
+	@Test
+	@DisplayName("gzip is served if brotli is not accepted")
+	public void testGzip() throws ServletException, IOException {
+		Mockito.doReturn("gzip, deflate").when(req).getHeader("Accept-Encoding");
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(res).setHeader("Content-Encoding", "gzip");
+		Mockito.verify(out).write(GZIP);
+		Mockito.verifyNoInteractions(chain);
+	}
+
+	@Test
+	@DisplayName("uncompressed asset is served by chain if no encoding is accepted")
+	public void testIdentity() throws ServletException, IOException {
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(chain).doFilter(req, res);
+		Mockito.verify(res).setHeader("Vary", "Accept-Encoding");
+		Mockito.verify(res, Mockito.never()).setHeader(Mockito.eq("Content-Encoding"), Mockito.any());
+		Mockito.verify(filter, Mockito.never()).loadResource(Mockito.any());
+	}
+
+	@Test
+	@DisplayName("uncompressed asset is served by chain if there is no compressed variant")
+	public void testNoVariant() throws ServletException, IOException {
+		Mockito.doReturn("/assets/opensans-regular.woff2").when(req).getRequestURI();
+		Mockito.doReturn("gzip, br").when(req).getHeader("Accept-Encoding");
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(chain).doFilter(req, res);
+		Mockito.verify(res, Mockito.never()).setHeader(Mockito.eq("Content-Encoding"), Mockito.any());
+	}
+
+	@Test
+	@DisplayName("variants are read only once")
+	public void testCache() throws ServletException, IOException {
+		Mockito.doReturn("br").when(req).getHeader("Accept-Encoding");
+
+		filter.doFilter(req, res, chain);
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(filter, Mockito.times(1)).loadResource("META-INF/resources/assets/main-1234.js.br");
+		Mockito.verify(out, Mockito.times(2)).write(BROTLI);
+	}
+
+	@Test
+	@DisplayName("HEAD requests get headers only")
+	public void testHead() throws ServletException, IOException {
+		Mockito.doReturn("HEAD").when(req).getMethod();
+		Mockito.doReturn("br").when(req).getHeader("Accept-Encoding");
+
+		filter.doFilter(req, res, chain);
+
+		Mockito.verify(res).setContentLength(BROTLI.length);
+		Mockito.verifyNoInteractions(out, chain);
+	}
+
+	@ParameterizedTest
+	@DisplayName("suspicious paths are passed to chain")
+	@ValueSource(strings = {"/assets/../application.properties", "/assets//main-1234.js", "/assets/..\\main-1234.js", "/index.html"})
+	public void testSuspiciousPaths(String path) throws ServletException, IOException {
+		Mockito.doReturn(path).when(req).getRequestURI();
+		Mockito.doReturn("gzip, br").when(req).getHeader("Accept-Encoding");
+
+		filter.doFilter(req, res, chain);
+
+		Assertions.assertFalse(PrecompressedAssetFilter.isPlainAssetPath(path));
+		Mockito.verify(chain).doFilter(req, res);
+		Mockito.verify(filter, Mockito.never()).loadResource(Mockito.any());
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.cryptomator.hub.filters;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.security.TestSecurity;
+import io.quarkus.test.security.oidc.Claim;
+import io.quarkus.test.security.oidc.OidcSecurity;
+import io.restassured.RestAssured;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import static io.restassured.RestAssured.when;
+
+@QuarkusTest
+@DisplayName("Vault role cache")
+@TestSecurity(user = "User Name 2", roles = {"user"})
+@OidcSecurity(claims = {
+		@Claim(key = "sub", value = "user2")
+})
+@TestProfile(VaultRoleCacheIT.LongLivedCacheTestProfile.class)
+public class VaultRoleCacheIT {
+
+	private static final long NOTIFICATION_TIMEOUT_MILLIS = 10_000;
+
+	@Inject
+	AgroalDataSource dataSource;
+
+	@BeforeAll
+	public static void beforeAll() {
+		RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+	}
+
+	public static class LongLivedCacheTestProfile implements QuarkusTestProfile {
+		@Override
+		public Map<String, String> getConfigOverrides() {
+			return Map.of("hub.vault-role-cache.expire-after-write", "1h");
+		}
+	}
+
+	@Test
+	@DisplayName("GET /vaults/7E57C0DE-0000-4000-8000-000100002222 returns 403 after removing user2 from group2 and 200 after adding it again")
+	public void testInvalidationByNotification() throws SQLException, InterruptedException {
+		when().get("/vaults/{vaultId}", "7E57C0DE-0000-4000-8000-000100002222")
+				.then().statusCode(200);
+
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			s.execute("""
+					DELETE FROM "group_membership" WHERE "group_id" = 'group2' AND "member_id" = 'user2';
+					""");
+		}
+		awaitStatusCode("7E57C0DE-0000-4000-8000-000100002222", 403);
+
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			s.execute("""
+					INSERT INTO "group_membership" ("group_id", "member_id") VALUES ('group2', 'user2');
+					""");
+		}
+		awaitStatusCode("7E57C0DE-0000-4000-8000-000100002222", 200);
+	}
+
+	// the cache is invalidated asynchronously, as soon as the notification sent on commit arrives
+	private void awaitStatusCode(String vaultId, int expectedStatusCode) throws InterruptedException {
+		var deadline = System.currentTimeMillis() + NOTIFICATION_TIMEOUT_MILLIS;
+		int statusCode;
+		do {
+			statusCode = when().get("/vaults/{vaultId}", vaultId).statusCode();
+			if (statusCode == expectedStatusCode) {
+				return;
+			}
+			Thread.sleep(100);
+		} while (System.currentTimeMillis() < deadline);
+		Assertions.assertEquals(expectedStatusCode, statusCode);
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.cryptomator.hub.filters;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.security.TestSecurity;
+import io.quarkus.test.security.oidc.Claim;
+import io.quarkus.test.security.oidc.OidcSecurity;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.cryptomator.hub.api.VaultResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+
+@QuarkusTest
+@DisplayName("Vault role cache without notifications")
+@TestSecurity(user = "User Name 1", roles = {"user"})
+@OidcSecurity(claims = {
+		@Claim(key = "sub", value = "user1")
+})
+@TestProfile(VaultRoleCacheLocalInvalidationIT.NotificationsDisabledTestProfile.class)
+public class VaultRoleCacheLocalInvalidationIT {
+
+	private static final String VAULT_ID = "7E57C0DE-0000-4000-8000-000100005555";
+
+	@Inject
+	AgroalDataSource dataSource;
+
+	@BeforeAll
+	public static void beforeAll() {
+		RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+	}
+
+	public static class NotificationsDisabledTestProfile implements QuarkusTestProfile {
+		@Override
+		public Map<String, String> getConfigOverrides() {
+			return Map.of("hub.db-notifications.enabled", "false", "hub.vault-role-cache.expire-after-write", "1h");
+		}
+	}
+
+	@Test
+	@DisplayName("roles changed by this node take effect with the next request")
+	public void testCreateVaultThenGrantAndRevokeAccess() {
+		// denied while the vault doesn't exist yet:
+		given().contentType(ContentType.JSON).body(Map.of("user1", "jwe.jwe.jwe.vault5.user1"))
+				.when().post("/vaults/{vaultId}/access-tokens/", VAULT_ID)
+				.then().statusCode(403);
+
+		var vaultDto = new VaultResource.VaultDto(UUID.fromString(VAULT_ID), "My Vault", "Test vault 5", false, Instant.parse("2112-12-21T21:12:21Z"), "masterkey5", 42, "NaCl", "authPubKey5", "authPrvKey5");
+		given().contentType(ContentType.JSON).body(vaultDto)
+				.when().put("/vaults/{vaultId}", VAULT_ID)
+				.then().statusCode(201);
+
+		given().contentType(ContentType.JSON).body(Map.of("user1", "jwe.jwe.jwe.vault5.user1"))
+				.when().post("/vaults/{vaultId}/access-tokens/", VAULT_ID)
+				.then().statusCode(200);
+
+		given().when().delete("/vaults/{vaultId}/authority/{authorityId}", VAULT_ID, "user1")
+				.then().statusCode(204);
+
+		given().contentType(ContentType.JSON).body(Map.of("user1", "jwe.jwe.jwe.vault5.user1"))
+				.when().post("/vaults/{vaultId}/access-tokens/", VAULT_ID)
+				.then().statusCode(403);
+	}
+
+	@AfterEach
+	public void cleanup() throws SQLException {
+		try (var c = dataSource.getConnection(); var s = c.createStatement()) {
+			s.execute("""
+					DELETE FROM "vault" WHERE "id" = '7E57C0DE-0000-4000-8000-000100005555';
+					""");
+		}
+	}
+
+}
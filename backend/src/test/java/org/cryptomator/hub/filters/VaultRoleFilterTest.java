@@ -1,5 +1,9 @@
 package org.cryptomator.hub.filters;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.NotAuthorizedException;
 import jakarta.ws.rs.NotFoundException;
@@ -7,6 +11,8 @@ import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ResourceInfo;
 import jakarta.ws.rs.core.MultivaluedHashMap;
 import jakarta.ws.rs.core.UriInfo;
+import org.cryptomator.hub.cluster.DatabaseNotification;
+import org.cryptomator.hub.cluster.DatabaseNotificationListener;
 import org.cryptomator.hub.entities.EffectiveVaultAccess;
 import org.cryptomator.hub.entities.Vault;
 import org.cryptomator.hub.entities.VaultAccess;
@@ -16,12 +22,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 
 public class VaultRoleFilterTest {
 
@@ -31,14 +42,23 @@ public class VaultRoleFilterTest {
 	private final JsonWebToken jwt = Mockito.mock(JsonWebToken.class);
 	private final EffectiveVaultAccess.Repository effectiveVaultAccessRepo = Mockito.mock(EffectiveVaultAccess.Repository.class);
 	private final Vault.Repository vaultRepo = Mockito.mock(Vault.Repository.class);
+	private final TransactionSynchronizationRegistry txSyncRegistry = Mockito.mock(TransactionSynchronizationRegistry.class);
+	private final VaultRoleCache vaultRoleCache = new VaultRoleCache();
 	private final VaultRoleFilter filter = new VaultRoleFilter();
 
 	@BeforeEach
 	public void setup() {
+		vaultRoleCache.enabled = true;
+		vaultRoleCache.maximumSize = 100;
+		vaultRoleCache.expireAfterWrite = Duration.ofMinutes(1);
+		vaultRoleCache.effectiveVaultAccessRepo = effectiveVaultAccessRepo;
+		vaultRoleCache.vaultRepo = vaultRepo;
+		vaultRoleCache.meterRegistry = new SimpleMeterRegistry();
+		vaultRoleCache.txSyncRegistry = txSyncRegistry;
+		vaultRoleCache.init();
 		filter.resourceInfo = resourceInfo;
 		filter.jwt = jwt;
-		filter.effectiveVaultAccessRepo = effectiveVaultAccessRepo;
-		filter.vaultRepo = vaultRepo;
+		filter.vaultRoleCache = vaultRoleCache;
 
 		Mockito.doReturn(uriInfo).when(context).getUriInfo();
 	}
@@ -175,6 +195,160 @@ public class VaultRoleFilterTest {
 
 	}
 
+	@Nested
+	@DisplayName("when vault roles are cached")
+	public class Caching {
+
+		private static final UUID VAULT_ID = UUID.fromString("7E57C0DE-0000-4000-8000-000100001111");
+
+		@BeforeEach
+		public void setup() throws NoSuchMethodException {
+			Mockito.doReturn(VaultRoleFilterTest.class.getMethod("allowOwner")).when(resourceInfo).getResourceMethod();
+			Mockito.doReturn(new MultivaluedHashMap<>(Map.of(VaultRole.DEFAULT_VAULT_ID_PARAM, VAULT_ID.toString()))).when(uriInfo).getPathParameters();
+			Mockito.doReturn("user1").when(jwt).getSubject();
+			Mockito.when(vaultRepo.findByIdOptional(VAULT_ID)).thenReturn(Optional.of(Mockito.mock(Vault.class)));
+			Mockito.when(effectiveVaultAccessRepo.listRoles(VAULT_ID, "user1")).thenReturn(Set.of(VaultAccess.Role.OWNER));
+		}
+
+		@Test
+		@DisplayName("database is only queried on cache miss")
+		public void testCacheHit() {
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+
+			Mockito.verify(vaultRepo, Mockito.times(1)).findByIdOptional(VAULT_ID);
+			Mockito.verify(effectiveVaultAccessRepo, Mockito.times(1)).listRoles(VAULT_ID, "user1");
+		}
+
+		@Test
+		@DisplayName("database is queried again if caching is disabled")
+		public void testCacheDisabled() {
+			vaultRoleCache.enabled = false;
+
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+
+			Mockito.verify(effectiveVaultAccessRepo, Mockito.times(2)).listRoles(VAULT_ID, "user1");
+		}
+
+		@ParameterizedTest(name = "payload: {0}")
+		@DisplayName("revoked role takes effect after notification")
+		@ValueSource(strings = {"7e57c0de-0000-4000-8000-000100001111/user1", "7e57c0de-0000-4000-8000-000100001111", "malformed"})
+		public void testInvalidationByNotification(String payload) {
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			Mockito.when(effectiveVaultAccessRepo.listRoles(VAULT_ID, "user1")).thenReturn(Set.of(VaultAccess.Role.MEMBER));
+
+			vaultRoleCache.onDatabaseNotification(new DatabaseNotification(DatabaseNotificationListener.VAULT_ACCESS_CHANNEL, payload));
+
+			Assertions.assertThrows(ForbiddenException.class, () -> filter.filter(context));
+		}
+
+		@Test
+		@DisplayName("unrelated notification keeps cached role")
+		public void testNoInvalidationByUnrelatedNotification() {
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			Mockito.when(effectiveVaultAccessRepo.listRoles(VAULT_ID, "user1")).thenReturn(Set.of(VaultAccess.Role.MEMBER));
+
+			vaultRoleCache.onDatabaseNotification(new DatabaseNotification(DatabaseNotificationListener.VAULT_ACCESS_CHANNEL, "7e57c0de-0000-4000-8000-000100001111/user2"));
+			vaultRoleCache.onDatabaseNotification(new DatabaseNotification(DatabaseNotificationListener.VAULT_ACCESS_CHANNEL, "7e57c0de-0000-4000-8000-000100002222"));
+
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+		}
+
+		@Test
+		@DisplayName("roles loaded while the vault is invalidated are not served afterwards")
+		public void testInvalidationDuringLoad() {
+			Mockito.when(effectiveVaultAccessRepo.listRoles(VAULT_ID, "user1")).thenAnswer(invocation -> {
+				vaultRoleCache.invalidateVault(VAULT_ID); // change committed while the stale roles are being loaded
+				return Set.of(VaultAccess.Role.OWNER);
+			}).thenReturn(Set.of(VaultAccess.Role.MEMBER));
+
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			Assertions.assertThrows(ForbiddenException.class, () -> filter.filter(context));
+		}
+
+		@Test
+		@DisplayName("missing vault is not cached")
+		public void testMissingVaultNotCached() {
+			Mockito.when(vaultRepo.findByIdOptional(VAULT_ID)).thenReturn(Optional.empty(), Optional.of(Mockito.mock(Vault.class)));
+
+			Assertions.assertThrows(ForbiddenException.class, () -> filter.filter(context));
+			Assertions.assertDoesNotThrow(() -> filter.filter(context)); // vault created meanwhile
+		}
+
+		@Test
+		@DisplayName("local change without transaction invalidates immediately")
+		public void testInvalidationWithoutTransaction() {
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			Mockito.when(effectiveVaultAccessRepo.listRoles(VAULT_ID, "user1")).thenReturn(Set.of(VaultAccess.Role.MEMBER));
+
+			vaultRoleCache.invalidateVaultOnCommit(VAULT_ID);
+
+			Assertions.assertThrows(ForbiddenException.class, () -> filter.filter(context));
+		}
+
+		@Nested
+		@DisplayName("within a transaction")
+		public class WithinTransaction {
+
+			private final Map<Object, Object> resources = new HashMap<>();
+			private Synchronization synchronization;
+
+			@BeforeEach
+			public void setup() {
+				Mockito.doReturn(new Object()).when(txSyncRegistry).getTransactionKey();
+				Mockito.doAnswer(invocation -> resources.get(invocation.getArgument(0))).when(txSyncRegistry).getResource(Mockito.any());
+				Mockito.doAnswer(invocation -> resources.put(invocation.getArgument(0), invocation.getArgument(1))).when(txSyncRegistry).putResource(Mockito.any(), Mockito.any());
+				Mockito.doAnswer(invocation -> synchronization = invocation.getArgument(0)).when(txSyncRegistry).registerInterposedSynchronization(Mockito.any());
+				Assertions.assertDoesNotThrow(() -> filter.filter(context));
+				Mockito.when(effectiveVaultAccessRepo.listRoles(VAULT_ID, "user1")).thenReturn(Set.of(VaultAccess.Role.MEMBER));
+			}
+
+			@Test
+			@DisplayName("local change takes effect on commit")
+			public void testInvalidationOnCommit() {
+				vaultRoleCache.invalidateVaultOnCommit(VAULT_ID);
+				vaultRoleCache.invalidateVaultOnCommit(VAULT_ID);
+
+				Mockito.verify(txSyncRegistry, Mockito.times(1)).registerInterposedSynchronization(Mockito.any());
+				Assertions.assertDoesNotThrow(() -> filter.filter(context)); // not committed yet
+				synchronization.afterCompletion(Status.STATUS_COMMITTED);
+				Assertions.assertThrows(ForbiddenException.class, () -> filter.filter(context));
+			}
+
+			@Test
+			@DisplayName("local change of all roles takes effect on commit")
+			public void testInvalidationOfAllOnCommit() {
+				vaultRoleCache.invalidateAllOnCommit();
+
+				synchronization.afterCompletion(Status.STATUS_COMMITTED);
+				Assertions.assertThrows(ForbiddenException.class, () -> filter.filter(context));
+			}
+
+			@Test
+			@DisplayName("local change is discarded on rollback")
+			public void testNoInvalidationOnRollback() {
+				vaultRoleCache.invalidateVaultOnCommit(VAULT_ID);
+
+				synchronization.afterCompletion(Status.STATUS_ROLLEDBACK);
+				Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			}
+
+		}
+
+		@Test
+		@DisplayName("missed notifications invalidate all entries")
+		public void testInvalidationOnMissedNotifications() {
+			Assertions.assertDoesNotThrow(() -> filter.filter(context));
+			Mockito.when(effectiveVaultAccessRepo.listRoles(VAULT_ID, "user1")).thenReturn(Set.of(VaultAccess.Role.MEMBER));
+
+			vaultRoleCache.onDatabaseNotification(DatabaseNotification.missed(DatabaseNotificationListener.VAULT_ACCESS_CHANNEL));
+
+			Assertions.assertThrows(ForbiddenException.class, () -> filter.filter(context));
+		}
+
+	}
+
 	/*
 	 * "real" methods for testing below, as we can not mock Method.class without breaking Mockito
 	 */
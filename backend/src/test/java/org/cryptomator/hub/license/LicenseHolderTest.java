@@ -3,6 +3,8 @@ package org.cryptomator.hub.license;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import io.quarkus.scheduler.ScheduledExecution;
+import org.cryptomator.hub.cluster.ClusterSingleton;
 import org.cryptomator.hub.entities.Settings;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,6 +20,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpResponse;
+import java.time.Instant;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -25,6 +28,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +44,7 @@ public class LicenseHolderTest {
 	@BeforeEach
 	public void resetTestclass() {
 		licenseHolder = new LicenseHolder();
+		licenseHolder.managedInstance = false;
 		licenseHolder.licenseValidator = validator;
 		licenseHolder.settingsRepo = settingsRepo;
 		licenseHolder.randomMinuteSleeper = randomMinuteSleeper;
@@ -223,6 +228,99 @@ public class LicenseHolderTest {
 		}
 	}
 
+	@Nested
+	@DisplayName("Testing snapshot()")
+	class TestSnapshot {
+
+		@Test
+		@DisplayName("Without license, snapshot contains default seats")
+		public void testUnlicensed() {
+			var snapshot = licenseHolder.snapshot();
+
+			Assertions.assertFalse(snapshot.isSet());
+			Assertions.assertFalse(snapshot.isExpired(Instant.now()));
+			Assertions.assertEquals(licenseHolder.seatsOnNotExisingLicense(), snapshot.seats());
+		}
+
+		@Test
+		@DisplayName("Setting a license publishes a snapshot with claims read once")
+		public void testSetPublishesSnapshot() {
+			var seatsClaim = mock(Claim.class);
+			when(seatsClaim.asLong()).thenReturn(42L);
+			var decodedJWT = mock(DecodedJWT.class);
+			when(decodedJWT.getClaim("seats")).thenReturn(seatsClaim);
+			when(decodedJWT.getExpiresAtAsInstant()).thenReturn(Instant.parse("2024-01-01T00:00:00Z"));
+			when(validator.validate("token", "42")).thenReturn(decodedJWT);
+			Settings settings = mock(Settings.class);
+			when(settings.getHubId()).thenReturn("42");
+			when(settingsRepo.get()).thenReturn(settings);
+
+			licenseHolder.set("token");
+			var snapshot = licenseHolder.snapshot();
+			licenseHolder.getSeats();
+			licenseHolder.isExpired();
+
+			Assertions.assertSame(decodedJWT, snapshot.token());
+			Assertions.assertEquals("42", snapshot.hubId());
+			Assertions.assertEquals(42L, snapshot.seats());
+			Assertions.assertTrue(snapshot.isExpired(Instant.parse("2024-01-01T00:00:01Z")));
+			Assertions.assertFalse(snapshot.isExpired(Instant.parse("2023-12-31T23:59:59Z")));
+			verify(decodedJWT).getClaim("seats");
+			verify(decodedJWT).getExpiresAtAsInstant();
+		}
+
+		@Test
+		@DisplayName("Reload publishes license changed by another instance")
+		public void testReload() {
+			var decodedJWT = mock(DecodedJWT.class);
+			when(validator.validate("newToken", "42")).thenReturn(decodedJWT);
+			Settings settings = mock(Settings.class);
+			when(settings.getLicenseKey()).thenReturn("newToken");
+			when(settings.getHubId()).thenReturn("42");
+			when(settingsRepo.get()).thenReturn(settings);
+
+			licenseHolder.reload();
+
+			Assertions.assertSame(decodedJWT, licenseHolder.get());
+			verify(settingsRepo, never()).persistAndFlush(any());
+		}
+
+		@Test
+		@DisplayName("Reload publishes removal of license by another instance")
+		public void testReloadRemoved() {
+			var decodedJWT = mock(DecodedJWT.class);
+			when(validator.validate("token", "42")).thenReturn(decodedJWT);
+			Settings settings = mock(Settings.class);
+			when(settings.getHubId()).thenReturn("42");
+			when(settingsRepo.get()).thenReturn(settings);
+			licenseHolder.set("token");
+			when(settings.getLicenseKey()).thenReturn(null);
+
+			licenseHolder.reload();
+
+			Assertions.assertFalse(licenseHolder.isSet());
+			Assertions.assertEquals("42", licenseHolder.snapshot().hubId());
+		}
+
+		@Test
+		@DisplayName("Reload keeps current license if the one in the database is invalid")
+		public void testReloadInvalid() {
+			var decodedJWT = mock(DecodedJWT.class);
+			when(validator.validate("token", "42")).thenReturn(decodedJWT);
+			when(validator.validate("invalidToken", "42")).thenThrow(JWTVerificationException.class);
+			Settings settings = mock(Settings.class);
+			when(settings.getHubId()).thenReturn("42");
+			when(settingsRepo.get()).thenReturn(settings);
+			licenseHolder.set("token");
+			when(settings.getLicenseKey()).thenReturn("invalidToken");
+
+			licenseHolder.reload();
+
+			Assertions.assertSame(decodedJWT, licenseHolder.get());
+			verify(settings, never()).setLicenseKey(Mockito.isNull());
+		}
+	}
+
 	@Nested
 	@DisplayName("Testing refreshLicense()")
 	class RefreshLicense {
@@ -399,4 +497,61 @@ public class LicenseHolderTest {
 		}
 	}
 
+	@Nested
+	@DisplayName("Testing LicenseRefreshSkipper")
+	class RefreshSkipper {
+
+		ScheduledExecution execution = mock(ScheduledExecution.class);
+		ClusterSingleton clusterSingleton = mock(ClusterSingleton.class);
+		LicenseHolder.LicenseRefreshSkipper skipper = new LicenseHolder.LicenseRefreshSkipper();
+
+		@BeforeEach
+		public void setup() {
+			licenseHolder = Mockito.spy(licenseHolder);
+			Mockito.doNothing().when(licenseHolder).reloadInNewTransaction();
+			skipper.licenseHolder = licenseHolder;
+			skipper.clusterSingleton = clusterSingleton;
+		}
+
+		@Test
+		@DisplayName("lease holder refreshes the license")
+		public void testLeaseHolder() {
+			when(licenseHolder.snapshot()).thenReturn(new LicenseSnapshot(mock(DecodedJWT.class), "42", 5L, null, false));
+			when(clusterSingleton.test(execution)).thenReturn(false);
+
+			Assertions.assertFalse(skipper.test(execution));
+			verify(licenseHolder, never()).reloadInNewTransaction();
+		}
+
+		@Test
+		@DisplayName("other instances skip the refresh and reload the license from the database")
+		public void testOtherInstance() {
+			when(licenseHolder.snapshot()).thenReturn(new LicenseSnapshot(mock(DecodedJWT.class), "42", 5L, null, false));
+			when(clusterSingleton.test(execution)).thenReturn(true);
+
+			Assertions.assertTrue(skipper.test(execution));
+			verify(licenseHolder).reloadInNewTransaction();
+		}
+
+		@Test
+		@DisplayName("without license, refresh is skipped and license is reloaded from the database")
+		public void testNoLicense() {
+			when(licenseHolder.snapshot()).thenReturn(new LicenseSnapshot(null, "42", 5L, null, false));
+
+			Assertions.assertTrue(skipper.test(execution));
+			verify(licenseHolder).reloadInNewTransaction();
+			verify(clusterSingleton, never()).test(any());
+		}
+
+		@Test
+		@DisplayName("refresh is skipped even if reloading the license fails")
+		public void testReloadFailure() {
+			when(licenseHolder.snapshot()).thenReturn(new LicenseSnapshot(mock(DecodedJWT.class), "42", 5L, null, false));
+			when(clusterSingleton.test(execution)).thenReturn(true);
+			doThrow(new IllegalStateException("connection refused")).when(licenseHolder).reloadInNewTransaction();
+
+			Assertions.assertTrue(skipper.test(execution));
+		}
+	}
+
 }
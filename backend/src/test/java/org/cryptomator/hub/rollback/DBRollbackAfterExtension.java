@@ -1,8 +1,10 @@
 package org.cryptomator.hub.rollback;
 
+import io.quarkus.arc.Arc;
 import io.quarkus.test.junit.callback.QuarkusTestAfterConstructCallback;
 import io.quarkus.test.junit.callback.QuarkusTestAfterTestExecutionCallback;
 import io.quarkus.test.junit.callback.QuarkusTestMethodContext;
+import org.cryptomator.hub.filters.VaultRoleCache;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.Nested;
 
@@ -26,6 +28,8 @@ public class DBRollbackAfterExtension implements QuarkusTestAfterConstructCallba
 
 			flyway.clean();
 			flyway.migrate();
+			// recreating the schema doesn't notify about changed vault access:
+			Arc.container().instance(VaultRoleCache.class).get().invalidateAllOnCommit();
 		}
 	}
 
@@ -1,9 +1,11 @@
 package org.cryptomator.hub.rollback;
 
+import io.quarkus.arc.Arc;
 import io.quarkus.test.junit.callback.QuarkusTestAfterConstructCallback;
 import io.quarkus.test.junit.callback.QuarkusTestAfterTestExecutionCallback;
 import io.quarkus.test.junit.callback.QuarkusTestBeforeTestExecutionCallback;
 import io.quarkus.test.junit.callback.QuarkusTestMethodContext;
+import org.cryptomator.hub.filters.VaultRoleCache;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.Nested;
 
@@ -27,6 +29,8 @@ public class DBRollbackBeforeExtension implements QuarkusTestAfterConstructCallb
 
 			flyway.clean();
 			flyway.migrate();
+			// recreating the schema doesn't notify about changed vault access:
+			Arc.container().instance(VaultRoleCache.class).get().invalidateAllOnCommit();
 		}
 	}
 
@@ -142,6 +142,27 @@ export interface VaultIdHeader extends JWTHeader {
 // #endregion DTOs
 // #region Services
 
+/**
+ * Maximum page size of lists ordered by id, which are paginated by the `after` and `limit` query parameters.
+ */
+const PAGE_SIZE = 1000;
+
+/**
+ * Fetches all entries of a paginated list, requesting the next page after the last id of each full page.
+ * @param path Path of the list
+ * @returns All entries ordered by id
+ */
+async function listAllPages<T extends { id: string }>(path: string): Promise<T[]> {
+  const entries: T[] = [];
+  let page: T[];
+  do {
+    const after = entries.length > 0 ? entries[entries.length - 1].id : undefined;
+    page = await axiosAuth.get<T[]>(path, { params: { after: after, limit: PAGE_SIZE } }).then(response => response.data);
+    entries.push(...page);
+  } while (page.length === PAGE_SIZE);
+  return entries;
+}
+
 class VaultService {
   public async listAccessible(role?: 'MEMBER' | 'OWNER'): Promise<VaultDto[]> {
     const queryParams = role ? { role: role } : {};
@@ -154,7 +175,7 @@ class VaultService {
   }
 
   public async listAll(): Promise<VaultDto[]> {
-    return axiosAuth.get('/vaults/all').then(response => response.data);
+    return listAllPages<VaultDto>('/vaults/all');
   }
 
   public async get(vaultId: string): Promise<VaultDto> {
@@ -252,7 +273,7 @@ class UserService {
   }
 
   public async listAll(): Promise<UserDto[]> {
-    return axiosAuth.get<UserDto[]>('/users/').then(response => response.data.map(AuthorityService.fillInMissingPicture));
+    return listAllPages<UserDto>('/users/').then(users => users.map(AuthorityService.fillInMissingPicture));
   }
 }
 
@@ -0,0 +1,68 @@
+import { readdir, readFile, writeFile } from 'fs/promises';
+import path from 'path';
+import { performance } from 'perf_hooks';
+import type { Plugin } from 'vite';
+import { brotliCompressSync, constants, gzipSync } from 'zlib';
+
+const COMPRESSIBLE = /\.(js|css|svg|json|map|html|txt)$/;
+const MIN_SIZE = 1024; // bytes, anything smaller fits into the first TCP segments anyway
+const MAX_RATIO = 0.9; // skip variants that don't save at least 10 %
+const REPORT_BANDWIDTH = 10_000_000 / 8; // bytes per second, used to estimate transfer times for the report
+
+type Variant = { extension: string, compress: (data: Buffer) => Buffer };
+
+const VARIANTS: Variant[] = [
+  { extension: '.br', compress: data => brotliCompressSync(data, { params: { [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY, [constants.BROTLI_PARAM_SIZE_HINT]: data.length } }) },
+  { extension: '.gz', compress: data => gzipSync(data, { level: constants.Z_BEST_COMPRESSION }) },
+];
+
+/**
+ * Writes brotli and gzip compressed siblings (e.g. `main.js.br`, `main.js.gz`) of all compressible assets, which are
+ * served by the backend depending on the client's `Accept-Encoding`, so no compression happens at runtime.
+ * Prints a report with sizes, compression times and estimated transfer times at 10 Mbit/s.
+ */
+export default function precompress(dir = 'assets'): Plugin {
+  let outDir: string;
+  return {
+    name: 'precompress',
+    apply: 'build',
+    configResolved(config) {
+      outDir = path.resolve(config.root, config.build.outDir);
+    },
+    async closeBundle() {
+      const assetsDir = path.join(outDir, dir);
+      const files = (await readdir(assetsDir)).filter(file => COMPRESSIBLE.test(file)).sort();
+      const report = [];
+      for (const file of files) {
+        const data = await readFile(path.join(assetsDir, file));
+        if (data.length < MIN_SIZE) {
+          continue;
+        }
+        const row: Record<string, string> = { file, size: formatSize(data.length), transfer: formatTime(data.length) };
+        for (const variant of VARIANTS) {
+          const start = performance.now();
+          const compressed = variant.compress(data);
+          const duration = performance.now() - start;
+          if (compressed.length <= data.length * MAX_RATIO) {
+            await writeFile(path.join(assetsDir, file + variant.extension), compressed);
+            row[variant.extension] = `${formatSize(compressed.length)} (${Math.round(100 * compressed.length / data.length)} %, ${duration.toFixed(0)} ms)`;
+            row[variant.extension + ' transfer'] = formatTime(compressed.length);
+          } else {
+            row[variant.extension] = 'skipped';
+          }
+        }
+        report.push(row);
+      }
+      console.log(`\nPrecompressed ${report.length} of ${files.length} compressible files in ${assetsDir}:`);
+      console.table(report);
+    }
+  };
+}
+
+function formatSize(bytes: number): string {
+  return `${(bytes / 1024).toFixed(1)} KiB`;
+}
+
+function formatTime(bytes: number): string {
+  return `${(1000 * bytes / REPORT_BANDWIDTH).toFixed(0)} ms`;
+}
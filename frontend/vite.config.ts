@@ -2,6 +2,7 @@ import vueI18nPlugin from '@intlify/unplugin-vue-i18n/vite';
 import vue from '@vitejs/plugin-vue';
 import path from 'path';
 import { defineConfig } from 'vite';
+import precompress from './vite-precompress';
 
 // https://vitejs.dev/config/
 export default defineConfig({
@@ -11,6 +12,7 @@ export default defineConfig({
     vueI18nPlugin({
       include: path.resolve(__dirname, './src/i18n/*.json')
     }),
+    precompress(),
   ],
   build: {
     minify: 'esbuild',